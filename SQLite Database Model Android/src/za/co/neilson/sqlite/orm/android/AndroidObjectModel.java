@@ -88,7 +88,7 @@ public abstract class AndroidObjectModel<T> extends ObjectModel<T, Cursor, Conte
 	 */
 	protected final Cursor getCursor(String whereClause, Object[] whereArgs, String groupBy, String having, String orderBy, Integer limit) throws SQLException {
 		try {
-			return (Cursor) getDatabaseModel().getDatabaseDriverInterface().query(getTableName(), getColumnNames(), whereClause, whereArgs, groupBy, having, orderBy, limit);
+			return query(getColumnNames(), whereClause, whereArgs, groupBy, having, orderBy, limit, getFetchSize());
 		} catch (SQLException e) {
 			throw e;
 		}
@@ -371,7 +371,15 @@ public abstract class AndroidObjectModel<T> extends ObjectModel<T, Cursor, Conte
 	 * @since 0.1
 	 */
 	public T getFirst(String whereClause, Object[] whereArgs, String orderBy) {
-		T t = null;
+		List<T> preloaded = getPreloadedResults(whereClause, whereArgs, orderBy, 1);
+		if (preloaded != null)
+			return preloaded.isEmpty() ? null : preloaded.get(0);
+
+		T t = getCachedInstance(whereClause, whereArgs);
+		if (t != null)
+			return t;
+
+		long cacheStamp = getCacheStamp();
 		Cursor cursor = null;
 		try {
 			cursor = getCursor(whereClause, whereArgs, null, null, orderBy, 1);
@@ -386,6 +394,7 @@ public abstract class AndroidObjectModel<T> extends ObjectModel<T, Cursor, Conte
 				cursor.close();
 			}
 		}
+		cacheInstance(whereClause, whereArgs, t, cacheStamp);
 		return t;
 	}
 
@@ -407,7 +416,17 @@ public abstract class AndroidObjectModel<T> extends ObjectModel<T, Cursor, Conte
 	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
 	 */
 	public final List<T> getAll(String whereClause, Object[] whereArgs, String orderBy, Integer limit) throws SQLException {
-		List<T> list = new ArrayList<T>();
+		List<T> list = getPreloadedResults(whereClause, whereArgs, orderBy, limit);
+		if (list != null)
+			return list;
+
+		list = getCachedResults(whereClause, whereArgs, orderBy, limit);
+		if (list != null)
+			return list;
+
+		long queryVersion = getQueryVersion();
+		long cacheStamp = getCacheStamp();
+		list = new ArrayList<T>();
 		Cursor cursor = null;
 		try {
 			cursor = getCursor(whereClause, whereArgs, null, null, orderBy, limit);
@@ -428,20 +447,27 @@ public abstract class AndroidObjectModel<T> extends ObjectModel<T, Cursor, Conte
 				cursor.close();
 			}
 		}
+		cacheResults(whereClause, whereArgs, orderBy, limit, list, queryVersion, cacheStamp);
 		return list;
 	}
 
 	/**
 	 * @param t
 	 *            the Object to insert
-	 * @return <b>long</b> the row id of the inserted record
+	 * @return <b>long</b> the row id of the inserted record, or 0 if the
+	 *         insert has been queued in write-behind mode
 	 * @throws SQLException
 	 * @since 0.1
 	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
 	 */
 	public final long insert(T t) throws SQLException {
+		if (enqueueWrite(t, QueryType.INSERT))
+			return 0;
+
 		long result = ((AndroidSqliteDatabaseDriverInterface) getDatabaseModel().getDatabaseDriverInterface()).insert(getTableName(), setColumnValues(t, QueryType.INSERT));
 
+		onTableChanged(QueryType.INSERT, null, null);
+
 		result += insertOrUpdateRelatedChildObjects(t);
 
 		return result;
@@ -456,11 +482,13 @@ public abstract class AndroidObjectModel<T> extends ObjectModel<T, Cursor, Conte
 	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
 	 */
 	public final long[] insertAll(Collection<T> collection) throws SQLException {
+		flushPendingWrites();
 		long[] rowIds = new long[collection.size()];
 		int i = 0;
 		for (Object t : collection) {
 			rowIds[i++] = ((AndroidSqliteDatabaseDriverInterface) getDatabaseModel().getDatabaseDriverInterface()).insert(getTableName(), setColumnValues(t, QueryType.INSERT));
 		}
+		onTableChanged(QueryType.INSERT, null, null);
 		return rowIds;
 	}
 
@@ -482,8 +510,11 @@ public abstract class AndroidObjectModel<T> extends ObjectModel<T, Cursor, Conte
 	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
 	 */
 	public final int update(T t, String whereClause, Object... whereArgs) throws SQLException {
+		flushPendingWrites();
 		int result = ((AndroidSqliteDatabaseDriverInterface) getDatabaseModel().getDatabaseDriverInterface()).update(getTableName(), setColumnValues(t, QueryType.UPDATE), whereClause, whereArgs);
 
+		onTableChanged(QueryType.UPDATE, whereClause, whereArgs);
+
 		result += insertOrUpdateRelatedChildObjects(t);
 
 		return result;
@@ -491,6 +522,7 @@ public abstract class AndroidObjectModel<T> extends ObjectModel<T, Cursor, Conte
 
 	@Override
 	public int deleteAll(String whereClause, Object... whereArgs) throws SQLException {
+		flushPendingWrites();
 		int result = 0;
 
 		/*
@@ -525,6 +557,7 @@ public abstract class AndroidObjectModel<T> extends ObjectModel<T, Cursor, Conte
 			}
 		}
 		result += getDatabaseModel().getDatabaseDriverInterface().delete(getTableName(), whereClause, whereArgs);
+		onTableChanged(QueryType.DELETE, whereClause, whereArgs);
 		return result;
 	}
 }
@@ -13,6 +13,8 @@ package za.co.neilson.sqlite.orm.android;
 
 import java.io.File;
 import java.sql.SQLException;
+import java.util.List;
+
 import za.co.neilson.sqlite.orm.DatabaseDriverInterface;
 import za.co.neilson.sqlite.orm.DatabaseModel;
 import za.co.neilson.sqlite.orm.Query;
@@ -40,8 +42,12 @@ import android.database.sqlite.SQLiteStatement;
  */
 public class AndroidSqliteDatabaseDriverInterface extends SQLiteOpenHelper implements DatabaseDriverInterface<Cursor, ContentValues> {
 
+	private final Context context;
+	private final String databaseName;
+	private final int databaseVersion;
 	private File dataBaseFile;
 	private SQLiteDatabase sqLiteDatabase;
+	private boolean readOnly;
 
 	/**
 	 * <p>
@@ -60,6 +66,9 @@ public class AndroidSqliteDatabaseDriverInterface extends SQLiteOpenHelper imple
 	 */
 	public AndroidSqliteDatabaseDriverInterface(Context context, DatabaseModel<Cursor, ContentValues> databaseModel) {
 		super(context, databaseModel.getDatabaseName(), null, databaseModel.getDatabaseVersion());
+		this.context = context;
+		this.databaseName = databaseModel.getDatabaseName();
+		this.databaseVersion = databaseModel.getDatabaseVersion();
 		try {
 			
 			if (databaseModel.getDatabaseName() == null || databaseModel.getDatabaseName().isEmpty()) {
@@ -79,6 +88,22 @@ public class AndroidSqliteDatabaseDriverInterface extends SQLiteOpenHelper imple
 		}
 	}
 	
+	/**
+	 * Creates a driver for an additional read-only connection to an existing
+	 * database file
+	 * 
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	private AndroidSqliteDatabaseDriverInterface(Context context, String databaseName, int databaseVersion, File dataBaseFile) {
+		super(context, databaseName, null, databaseVersion);
+		this.context = context;
+		this.databaseName = databaseName;
+		this.databaseVersion = databaseVersion;
+		this.dataBaseFile = dataBaseFile;
+		this.readOnly = true;
+	}
+
 	/* (non-Javadoc)
 	 * @see za.co.neilson.sqlite.orm.DatabaseDriverInterface#getDatabaseFile()
 	 */
@@ -98,10 +123,14 @@ public class AndroidSqliteDatabaseDriverInterface extends SQLiteOpenHelper imple
 	public void connect() throws SQLException {
 		if (!isConnected()) {
 			if (dataBaseFile != null) {
-				sqLiteDatabase = getWritableDatabase();
+				if (readOnly) {
+					sqLiteDatabase = SQLiteDatabase.openDatabase(dataBaseFile.getPath(), null, SQLiteDatabase.OPEN_READONLY);
+				} else {
+					sqLiteDatabase = getWritableDatabase();
 
-				// Ensure referential integrity is maintained
-				execute("PRAGMA foreign_keys = 1;");
+					// Ensure referential integrity is maintained
+					execute("PRAGMA foreign_keys = 1;");
+				}
 			}
 		}
 	}
@@ -172,6 +201,38 @@ public class AndroidSqliteDatabaseDriverInterface extends SQLiteOpenHelper imple
 		return false;
 	}
 
+	/**
+	 * Executes the statement with SQLiteDatabase.execSQL() and reads the
+	 * number of changed rows with SELECT changes(), as
+	 * SQLiteStatement.executeUpdateDelete() requires API level 11. Both run in
+	 * one transaction so that they use the same connection and no other write
+	 * can come between them.
+	 * 
+	 * @see za.co.neilson.sqlite.orm.DatabaseDriverInterface#executeUpdate(java.lang.String,
+	 *      java.lang.Object[])
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	@Override
+	public int executeUpdate(String sql, Object[] bindArgs) throws SQLException {
+		SQLiteDatabase sqLiteDatabase = getConnection();
+		sqLiteDatabase.beginTransaction();
+		try {
+			sqLiteDatabase.execSQL(sql, bindArgs == null ? new Object[0] : bindArgs);
+			SQLiteStatement statement = sqLiteDatabase.compileStatement("SELECT changes()");
+			int changes;
+			try {
+				changes = (int) statement.simpleQueryForLong();
+			} finally {
+				statement.close();
+			}
+			sqLiteDatabase.setTransactionSuccessful();
+			return changes;
+		} finally {
+			sqLiteDatabase.endTransaction();
+		}
+	}
+
 	/**
 	 * Queries the given table using any non-null clauses, returning a single
 	 * ResultSet object containing the results of the query.
@@ -202,12 +263,32 @@ public class AndroidSqliteDatabaseDriverInterface extends SQLiteOpenHelper imple
 	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
 	 */
 	public Cursor query(String tableName, String[] columnNames, String whereClause, Object[] whereArgs, String groupBy, String having, String orderBy, Integer limit) throws SQLException {
+		return query(tableName, columnNames, whereClause, whereArgs, groupBy, having, orderBy, limit, 0);
+	}
+
+	/**
+	 * Queries the given table, reading the results a window of
+	 * <b>fetchSize</b> rows at a time through a WindowedCursor if fetchSize is
+	 * greater than 0 and the query is neither grouped nor ordered
+	 * 
+	 * @see za.co.neilson.sqlite.orm.DatabaseDriverInterface#query(java.lang.String,
+	 *      java.lang.String[], java.lang.String, java.lang.Object[],
+	 *      java.lang.String, java.lang.String, java.lang.String,
+	 *      java.lang.Integer, int)
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	@Override
+	public Cursor query(String tableName, String[] columnNames, String whereClause, Object[] whereArgs, String groupBy, String having, String orderBy, Integer limit, int fetchSize)
+			throws SQLException {
 		String[] selectionArgs = null;
 		if (whereArgs != null) {
 			selectionArgs = new String[whereArgs.length];
 			for (int i = 0; i < whereArgs.length; i++)
 				selectionArgs[i] = String.valueOf(whereArgs[i]);
 		}
+		if (fetchSize > 0 && groupBy == null && having == null && orderBy == null)
+			return new WindowedCursor(getConnection(), tableName, columnNames, whereClause, selectionArgs, limit, fetchSize);
 		return getConnection().query(tableName, columnNames, whereClause, selectionArgs, groupBy, having, orderBy, limit == null ? null : String.valueOf(limit));
 	}
 
@@ -295,6 +376,151 @@ public class AndroidSqliteDatabaseDriverInterface extends SQLiteOpenHelper imple
 		return getConnection().insert(tableName, null, columnValues);
 	}
 
+	/**
+	 * Opens an additional connection to the database file in read-only mode
+	 * 
+	 * @return <b>AndroidSqliteDatabaseDriverInterface</b> a new, connected,
+	 *         read-only driver which must be disconnected when it is no longer
+	 *         needed
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	@Override
+	public AndroidSqliteDatabaseDriverInterface openReadOnlyConnection() throws SQLException {
+		AndroidSqliteDatabaseDriverInterface readOnlyConnection = new AndroidSqliteDatabaseDriverInterface(context, databaseName, databaseVersion, dataBaseFile);
+		readOnlyConnection.connect();
+		return readOnlyConnection;
+	}
+
+	/* (non-Javadoc)
+	 * @see za.co.neilson.sqlite.orm.DatabaseDriverInterface#next(java.lang.Object)
+	 */
+	@Override
+	public boolean next(Cursor cursor) throws SQLException {
+		return cursor.moveToNext();
+	}
+
+	/* (non-Javadoc)
+	 * @see za.co.neilson.sqlite.orm.DatabaseDriverInterface#getLong(java.lang.Object, int)
+	 */
+	@Override
+	public long getLong(Cursor cursor, int columnIndex) throws SQLException {
+		return cursor.getLong(columnIndex);
+	}
+
+	/* (non-Javadoc)
+	 * @see za.co.neilson.sqlite.orm.DatabaseDriverInterface#getDouble(java.lang.Object, int)
+	 */
+	@Override
+	public double getDouble(Cursor cursor, int columnIndex) throws SQLException {
+		return cursor.getDouble(columnIndex);
+	}
+
+	/* (non-Javadoc)
+	 * @see za.co.neilson.sqlite.orm.DatabaseDriverInterface#getString(java.lang.Object, int)
+	 */
+	@Override
+	public String getString(Cursor cursor, int columnIndex) throws SQLException {
+		return cursor.isNull(columnIndex) ? null : cursor.getString(columnIndex);
+	}
+
+	/* (non-Javadoc)
+	 * @see za.co.neilson.sqlite.orm.DatabaseDriverInterface#getBlob(java.lang.Object, int)
+	 */
+	@Override
+	public byte[] getBlob(Cursor cursor, int columnIndex) throws SQLException {
+		return cursor.isNull(columnIndex) ? null : cursor.getBlob(columnIndex);
+	}
+
+	/* (non-Javadoc)
+	 * @see za.co.neilson.sqlite.orm.DatabaseDriverInterface#isNull(java.lang.Object, int)
+	 */
+	@Override
+	public boolean isNull(Cursor cursor, int columnIndex) throws SQLException {
+		return cursor.isNull(columnIndex);
+	}
+
+	/* (non-Javadoc)
+	 * @see za.co.neilson.sqlite.orm.DatabaseDriverInterface#close(java.lang.Object)
+	 */
+	@Override
+	public void close(Cursor cursor) {
+		cursor.close();
+	}
+
+	/* (non-Javadoc)
+	 * @see za.co.neilson.sqlite.orm.DatabaseDriverInterface#beginTransaction()
+	 */
+	@Override
+	public void beginTransaction() throws SQLException {
+		getConnection().beginTransaction();
+	}
+
+	/* (non-Javadoc)
+	 * @see za.co.neilson.sqlite.orm.DatabaseDriverInterface#setTransactionSuccessful()
+	 */
+	@Override
+	public void setTransactionSuccessful() throws SQLException {
+		getConnection().setTransactionSuccessful();
+	}
+
+	/* (non-Javadoc)
+	 * @see za.co.neilson.sqlite.orm.DatabaseDriverInterface#endTransaction()
+	 */
+	@Override
+	public void endTransaction() throws SQLException {
+		getConnection().endTransaction();
+	}
+
+	/* (non-Javadoc)
+	 * @see za.co.neilson.sqlite.orm.DatabaseDriverInterface#inTransaction()
+	 */
+	@Override
+	public boolean inTransaction() {
+		return isConnected() && sqLiteDatabase.inTransaction();
+	}
+
+	/**
+	 * Inserts the rows by rebinding and executing one compiled SQLiteStatement
+	 * 
+	 * @see za.co.neilson.sqlite.orm.DatabaseDriverInterface#insertBatch(java.lang.String,
+	 *      java.lang.String[], java.util.List)
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	@Override
+	public int insertBatch(String tableName, String[] columnNames, List<Object[]> rows) throws SQLException {
+		if (rows.isEmpty())
+			return 0;
+
+		SQLiteStatement statement = getConnection().compileStatement(Query.insertStatement(tableName, columnNames));
+		try {
+			for (Object[] row : rows) {
+				statement.clearBindings();
+				for (int i = 0; i < columnNames.length; i++) {
+					Object value = row[i];
+					if (value == null) {
+						statement.bindNull(i + 1);
+					} else if (value instanceof Double || value instanceof Float) {
+						statement.bindDouble(i + 1, ((Number) value).doubleValue());
+					} else if (value instanceof Number) {
+						statement.bindLong(i + 1, ((Number) value).longValue());
+					} else if (value instanceof byte[]) {
+						statement.bindBlob(i + 1, (byte[]) value);
+					} else {
+						statement.bindString(i + 1, value.toString());
+					}
+				}
+				if (statement.executeInsert() == -1)
+					throw new SQLException("Unable to insert into " + tableName);
+			}
+		} finally {
+			statement.close();
+		}
+		return rows.size();
+	}
+
 	/**
 	 * @param type
 	 * 			the type to validate as numeric
@@ -0,0 +1,349 @@
+/* Copyright 2014 Sheldon Neilson www.neilson.co.za
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package za.co.neilson.sqlite.orm.android;
+
+import java.util.Arrays;
+
+import android.database.Cursor;
+import android.database.CursorWrapper;
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * <p>
+ * A Cursor which reads the results of a query a window of <b>fetchSize</b>
+ * rows at a time, so that no more than one window is held in memory and the
+ * CursorWindow of a large scan is never filled.
+ * </p>
+ * <p>
+ * Rows are returned in ROWID order and paged by ROWID: each window selects the
+ * rows following the last ROWID of the previous window, which SQLite finds
+ * with an index seek, so every window costs the same however far into the
+ * results it is. Ordered queries are not windowed, as paging them with an
+ * OFFSET would sort and skip every previous row for each window.
+ * </p>
+ * <p>
+ * The cursor is intended to be read forwards. Moving backwards re-runs the
+ * query from the first window, and getCount() runs a COUNT(*) query the first
+ * time it is called.
+ * </p>
+ *
+ * @version 0.2
+ * @since 0.2
+ * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+ */
+public class WindowedCursor extends CursorWrapper {
+
+	private static final String ROWID_ALIAS = "_window_rowid";
+
+	private final SQLiteDatabase sqLiteDatabase;
+	private final String tableName;
+	private final String[] columnNames;
+	private final String whereClause;
+	private final String[] selectionArgs;
+	private final Integer limit;
+	private final int fetchSize;
+
+	private Cursor window;
+	private int windowStart;
+	private int windowLength;
+	private int position = -1;
+	private boolean afterLast;
+	private long lastRowId;
+	private int count = -1;
+
+	/**
+	 * @param sqLiteDatabase
+	 *            the database to query
+	 * @param tableName
+	 *            the table to query
+	 * @param columnNames
+	 *            the columns to return or null to return every column
+	 * @param whereClause
+	 *            the optional WHERE clause of the query
+	 * @param selectionArgs
+	 *            the arguments of the WHERE clause
+	 * @param limit
+	 *            the optional limit on the number of rows returned
+	 * @param fetchSize
+	 *            the number of rows read per window
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public WindowedCursor(SQLiteDatabase sqLiteDatabase, String tableName, String[] columnNames, String whereClause, String[] selectionArgs, Integer limit, int fetchSize) {
+		super(queryWindow(sqLiteDatabase, tableName, columnNames, whereClause, selectionArgs, null, windowLimit(fetchSize, limit, 0)));
+		if (fetchSize < 1)
+			throw new IllegalArgumentException("fetchSize must be greater than 0");
+
+		this.sqLiteDatabase = sqLiteDatabase;
+		this.tableName = tableName;
+		this.columnNames = columnNames;
+		this.whereClause = whereClause;
+		this.selectionArgs = selectionArgs;
+		this.limit = limit;
+		this.fetchSize = fetchSize;
+		this.window = getWrappedCursor();
+		this.windowLength = window.getCount();
+	}
+
+	/**
+	 * @return <b>int</b> the number of rows read per window
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public int getFetchSize() {
+		return fetchSize;
+	}
+
+	@Override
+	public boolean moveToNext() {
+		if (afterLast)
+			return false;
+		if (window.moveToNext()) {
+			position++;
+			rememberRowId();
+			return true;
+		}
+		if (isLastWindow() || !loadNextWindow()) {
+			position = windowStart + windowLength;
+			afterLast = true;
+			return false;
+		}
+		position++;
+		rememberRowId();
+		return true;
+	}
+
+	@Override
+	public boolean moveToFirst() {
+		if (windowStart != 0)
+			loadFirstWindow();
+		afterLast = false;
+		if (window.moveToFirst()) {
+			position = 0;
+			rememberRowId();
+			return true;
+		}
+		position = 0;
+		afterLast = true;
+		return false;
+	}
+
+	@Override
+	public boolean moveToPosition(int target) {
+		if (target < 0) {
+			loadFirstWindow();
+			position = -1;
+			afterLast = false;
+			return false;
+		}
+		if (target < position || target < windowStart || afterLast) {
+			loadFirstWindow();
+			position = -1;
+			afterLast = false;
+		}
+		while (position < target) {
+			if (!moveToNext())
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public boolean move(int offset) {
+		return moveToPosition(position + offset);
+	}
+
+	@Override
+	public boolean moveToPrevious() {
+		return moveToPosition(position - 1);
+	}
+
+	@Override
+	public boolean moveToLast() {
+		int last = getCount() - 1;
+		return last >= 0 && moveToPosition(last);
+	}
+
+	@Override
+	public int getPosition() {
+		return position;
+	}
+
+	@Override
+	public boolean isBeforeFirst() {
+		return position < 0;
+	}
+
+	@Override
+	public boolean isFirst() {
+		return position == 0 && !afterLast;
+	}
+
+	@Override
+	public boolean isLast() {
+		return !afterLast && position == getCount() - 1;
+	}
+
+	@Override
+	public boolean isAfterLast() {
+		return afterLast;
+	}
+
+	/**
+	 * @return <b>int</b> the number of rows returned by the query, counted
+	 *         with a separate COUNT(*) query the first time it is called
+	 */
+	@Override
+	public int getCount() {
+		if (count < 0) {
+			Cursor cursor = sqLiteDatabase.query(tableName, new String[] { "COUNT(*)" }, whereClause, selectionArgs, null, null, null, null);
+			try {
+				count = cursor.moveToFirst() ? cursor.getInt(0) : 0;
+			} finally {
+				cursor.close();
+			}
+			if (limit != null)
+				count = Math.min(count, limit);
+		}
+		return count;
+	}
+
+	@Override
+	public int getColumnCount() {
+		return window.getColumnCount() - 1;
+	}
+
+	@Override
+	public String[] getColumnNames() {
+		String[] names = window.getColumnNames();
+		return Arrays.copyOf(names, names.length - 1);
+	}
+
+	@Override
+	public String getColumnName(int columnIndex) {
+		return window.getColumnName(columnIndex);
+	}
+
+	@Override
+	public int getColumnIndex(String columnName) {
+		return window.getColumnIndex(columnName);
+	}
+
+	@Override
+	public int getColumnIndexOrThrow(String columnName) {
+		return window.getColumnIndexOrThrow(columnName);
+	}
+
+	@Override
+	public int getType(int columnIndex) {
+		return window.getType(columnIndex);
+	}
+
+	@Override
+	public boolean isNull(int columnIndex) {
+		return window.isNull(columnIndex);
+	}
+
+	@Override
+	public String getString(int columnIndex) {
+		return window.getString(columnIndex);
+	}
+
+	@Override
+	public byte[] getBlob(int columnIndex) {
+		return window.getBlob(columnIndex);
+	}
+
+	@Override
+	public short getShort(int columnIndex) {
+		return window.getShort(columnIndex);
+	}
+
+	@Override
+	public int getInt(int columnIndex) {
+		return window.getInt(columnIndex);
+	}
+
+	@Override
+	public long getLong(int columnIndex) {
+		return window.getLong(columnIndex);
+	}
+
+	@Override
+	public float getFloat(int columnIndex) {
+		return window.getFloat(columnIndex);
+	}
+
+	@Override
+	public double getDouble(int columnIndex) {
+		return window.getDouble(columnIndex);
+	}
+
+	@Override
+	public void close() {
+		window.close();
+		super.close();
+	}
+
+	@Override
+	public boolean isClosed() {
+		return window.isClosed();
+	}
+
+	private void rememberRowId() {
+		lastRowId = window.getLong(window.getColumnCount() - 1);
+	}
+
+	private boolean isLastWindow() {
+		return windowLength < windowLimit(fetchSize, limit, windowStart) || (limit != null && windowStart + windowLength >= limit);
+	}
+
+	private boolean loadNextWindow() {
+		int start = windowStart + windowLength;
+		replaceWindow(queryWindow(sqLiteDatabase, tableName, columnNames, whereClause, selectionArgs, lastRowId, windowLimit(fetchSize, limit, start)), start);
+		return window.moveToFirst();
+	}
+
+	private void loadFirstWindow() {
+		replaceWindow(queryWindow(sqLiteDatabase, tableName, columnNames, whereClause, selectionArgs, null, windowLimit(fetchSize, limit, 0)), 0);
+	}
+
+	private void replaceWindow(Cursor cursor, int start) {
+		window.close();
+		window = cursor;
+		windowStart = start;
+		windowLength = cursor.getCount();
+	}
+
+	private static int windowLimit(int fetchSize, Integer limit, int start) {
+		return limit == null ? fetchSize : Math.max(0, Math.min(fetchSize, limit - start));
+	}
+
+	private static Cursor queryWindow(SQLiteDatabase sqLiteDatabase, String tableName, String[] columnNames, String whereClause, String[] selectionArgs, Long afterRowId, int length) {
+		String[] columns;
+		if (columnNames == null || columnNames.length == 0) {
+			columns = new String[] { "*", "ROWID AS " + ROWID_ALIAS };
+		} else {
+			columns = Arrays.copyOf(columnNames, columnNames.length + 1);
+			columns[columnNames.length] = "ROWID AS " + ROWID_ALIAS;
+		}
+
+		String where = whereClause;
+		String[] args = selectionArgs;
+		if (afterRowId != null) {
+			where = whereClause == null ? "ROWID > ?" : "(" + whereClause + ") AND ROWID > ?";
+			args = selectionArgs == null ? new String[1] : Arrays.copyOf(selectionArgs, selectionArgs.length + 1);
+			args[args.length - 1] = String.valueOf(afterRowId);
+		}
+		return sqLiteDatabase.query(tableName, columns, where, args, null, null, "ROWID", String.valueOf(length));
+	}
+}
@@ -0,0 +1,361 @@
+/* Copyright 2014 Sheldon Neilson www.neilson.co.za
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package za.co.neilson.collections.queryable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import za.co.neilson.collections.queryable.Queryable.Field;
+import za.co.neilson.collections.queryable.Queryable.Matcher;
+import za.co.neilson.collections.queryable.Queryable.Selector;
+import za.co.neilson.collections.queryable.Queryable.Visitor;
+
+/**
+ * A query over a list which records its filters, projections, orderings and
+ * limits and runs them in a single pass when a terminal operation - toList(),
+ * first(), count() or forEach() - is called. The source list is never copied
+ * between steps or sorted in place, so a shared list can be queried safely
+ * from several threads as long as it is not modified. An ordering followed
+ * directly by a limit keeps only the first elements in a bounded heap rather
+ * than sorting every element.
+ * 
+ * DeferredQueryables are immutable; each operation returns a new
+ * DeferredQueryable and a DeferredQueryable may be run any number of times.
+ */
+public class DeferredQueryable<T> {
+
+	/**
+	 * Receives the elements of one step of the pipeline
+	 */
+	private static abstract class Sink {
+		/**
+		 * @return false once no more elements are wanted
+		 */
+		abstract boolean accept(Object o);
+
+		/**
+		 * Called after the last element
+		 */
+		void end() {
+		}
+	}
+
+	private static abstract class Stage {
+		abstract Sink wrap(Sink downstream);
+	}
+
+	private static class LimitStage extends Stage {
+		private final int limit;
+
+		private LimitStage(int limit) {
+			this.limit = limit;
+		}
+
+		@Override
+		Sink wrap(final Sink downstream) {
+			return new Sink() {
+				private int count;
+
+				@Override
+				boolean accept(Object o) {
+					if (count >= limit)
+						return false;
+					count++;
+					return downstream.accept(o) && count < limit;
+				}
+
+				@Override
+				void end() {
+					downstream.end();
+				}
+			};
+		}
+	}
+
+	private static class SortStage extends Stage {
+		private final Comparator<Object> comparator;
+		private final Ordering<Object> ordering;
+
+		private SortStage(Comparator<Object> comparator) {
+			this.comparator = comparator;
+			this.ordering = null;
+		}
+
+		private SortStage(Ordering<Object> ordering) {
+			this.comparator = ordering.comparator();
+			this.ordering = ordering;
+		}
+
+		@Override
+		Sink wrap(final Sink downstream) {
+			return new Sink() {
+				private final List<Object> buffer = new ArrayList<Object>();
+
+				@Override
+				boolean accept(Object o) {
+					buffer.add(o);
+					return true;
+				}
+
+				@Override
+				void end() {
+					if (ordering != null) {
+						// Each key is extracted once and the positions sorted
+						for (int i : SortKeys.sort(buffer, ordering)) {
+							if (!downstream.accept(buffer.get(i)))
+								break;
+						}
+					} else {
+						Collections.sort(buffer, comparator);
+						for (Object o : buffer) {
+							if (!downstream.accept(o))
+								break;
+						}
+					}
+					downstream.end();
+				}
+			};
+		}
+
+		/**
+		 * Keeps the first <b>limit</b> elements in a heap whose head is the
+		 * last of them, so that each element is compared against the heap in
+		 * O(log limit) time. Ties are broken by arrival order to keep the sort
+		 * stable.
+		 */
+		Sink wrapTop(final Sink downstream, final int limit) {
+			return new Sink() {
+				private final PriorityQueue<Object[]> heap = new PriorityQueue<Object[]>(Math.max(1, limit), new Comparator<Object[]>() {
+					@Override
+					public int compare(Object[] a, Object[] b) {
+						int result = comparator.compare(b[0], a[0]);
+						return result != 0 ? result : ((Long) b[1]).compareTo((Long) a[1]);
+					}
+				});
+				private long sequence;
+
+				@Override
+				boolean accept(Object o) {
+					if (limit == 0)
+						return false;
+					Object[] entry = new Object[] { o, sequence++ };
+					if (heap.size() < limit) {
+						heap.add(entry);
+					} else if (heap.comparator().compare(entry, heap.peek()) > 0) {
+						heap.poll();
+						heap.add(entry);
+					}
+					return true;
+				}
+
+				@Override
+				void end() {
+					Object[] sorted = new Object[heap.size()];
+					for (int i = sorted.length - 1; i >= 0; i--)
+						sorted[i] = heap.poll()[0];
+					for (Object o : sorted) {
+						if (!downstream.accept(o))
+							break;
+					}
+					downstream.end();
+				}
+			};
+		}
+	}
+
+	private final List<?> source;
+	private final List<Stage> stages;
+
+	DeferredQueryable(List<?> source) {
+		this(source, Collections.<Stage> emptyList());
+	}
+
+	private DeferredQueryable(List<?> source, List<Stage> stages) {
+		this.source = source;
+		this.stages = stages;
+	}
+
+	private <U> DeferredQueryable<U> then(Stage stage) {
+		List<Stage> list = new ArrayList<Stage>(stages.size() + 1);
+		list.addAll(stages);
+		list.add(stage);
+		return new DeferredQueryable<U>(source, list);
+	}
+
+	public DeferredQueryable<T> where(final Matcher<T> matcher) {
+		return then(new Stage() {
+			@Override
+			Sink wrap(final Sink downstream) {
+				return new Sink() {
+					@SuppressWarnings("unchecked")
+					@Override
+					boolean accept(Object o) {
+						return !matcher.isMatch((T) o) || downstream.accept(o);
+					}
+
+					@Override
+					void end() {
+						downstream.end();
+					}
+				};
+			}
+		});
+	}
+
+	public <U> DeferredQueryable<U> select(final Selector<T, U> selector) {
+		return then(new Stage() {
+			@Override
+			Sink wrap(final Sink downstream) {
+				return new Sink() {
+					@SuppressWarnings("unchecked")
+					@Override
+					boolean accept(Object o) {
+						return downstream.accept(selector.select((T) o));
+					}
+
+					@Override
+					void end() {
+						downstream.end();
+					}
+				};
+			}
+		});
+	}
+
+	public DeferredQueryable<T> orderBy(final Field<T> field) {
+		return orderBy(Ordering.by(field));
+	}
+
+	public DeferredQueryable<T> orderByDescending(final Field<T> field) {
+		return orderBy(Ordering.byDescending(field));
+	}
+
+	/**
+	 * Orders the elements, stably, by the Ordering. Each key is extracted
+	 * once and the positions of the elements are sorted by the extracted
+	 * keys; an ordering followed by a limit compares the elements in a
+	 * bounded heap instead.
+	 */
+	@SuppressWarnings("unchecked")
+	public DeferredQueryable<T> orderBy(Ordering<T> ordering) {
+		return then(new SortStage((Ordering<Object>) (Ordering<?>) ordering));
+	}
+
+	@SuppressWarnings("unchecked")
+	public DeferredQueryable<T> orderBy(Comparator<? super T> comparator) {
+		return then(new SortStage((Comparator<Object>) comparator));
+	}
+
+	public DeferredQueryable<T> limit(int limit) {
+		if (limit < 0)
+			throw new IllegalArgumentException("limit may not be negative");
+		return then(new LimitStage(limit));
+	}
+
+	public DeferredQueryable<T> skip(final int count) {
+		return then(new Stage() {
+			@Override
+			Sink wrap(final Sink downstream) {
+				return new Sink() {
+					private int skipped;
+
+					@Override
+					boolean accept(Object o) {
+						if (skipped < count) {
+							skipped++;
+							return true;
+						}
+						return downstream.accept(o);
+					}
+
+					@Override
+					void end() {
+						downstream.end();
+					}
+				};
+			}
+		});
+	}
+
+	public Queryable<T> toList() {
+		final Queryable<T> result = new Queryable<T>();
+		run(new Sink() {
+			@SuppressWarnings("unchecked")
+			@Override
+			boolean accept(Object o) {
+				result.add((T) o);
+				return true;
+			}
+		});
+		return result;
+	}
+
+	public T first() {
+		final Object[] first = new Object[1];
+		run(new Sink() {
+			@Override
+			boolean accept(Object o) {
+				first[0] = o;
+				return false;
+			}
+		});
+		@SuppressWarnings("unchecked")
+		T t = (T) first[0];
+		return t;
+	}
+
+	public int count() {
+		final int[] count = new int[1];
+		run(new Sink() {
+			@Override
+			boolean accept(Object o) {
+				count[0]++;
+				return true;
+			}
+		});
+		return count[0];
+	}
+
+	/**
+	 * Passes each result to the Visitor until it returns false
+	 */
+	public void forEach(final Visitor<T> visitor) {
+		run(new Sink() {
+			@SuppressWarnings("unchecked")
+			@Override
+			boolean accept(Object o) {
+				return visitor.visit((T) o);
+			}
+		});
+	}
+
+	private void run(Sink terminal) {
+		Sink sink = terminal;
+		for (int i = stages.size() - 1; i >= 0; i--) {
+			Stage stage = stages.get(i);
+			if (stage instanceof LimitStage && i > 0 && stages.get(i - 1) instanceof SortStage) {
+				// Fuse an ordering followed by a limit into a top-N heap
+				sink = ((SortStage) stages.get(--i)).wrapTop(sink, ((LimitStage) stage).limit);
+			} else {
+				sink = stage.wrap(sink);
+			}
+		}
+		for (Object o : source) {
+			if (!sink.accept(o))
+				break;
+		}
+		sink.end();
+	}
+}
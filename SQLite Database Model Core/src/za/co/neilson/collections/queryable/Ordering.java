@@ -0,0 +1,105 @@
+/* Copyright 2014 Sheldon Neilson www.neilson.co.za
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package za.co.neilson.collections.queryable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import za.co.neilson.collections.queryable.Queryable.Field;
+
+/**
+ * An ordering by one or more Fields, each ascending or descending, where
+ * later Fields break ties between elements which are equal by the earlier
+ * ones.
+ * 
+ * <pre>
+ * people.orderBy(Ordering.by(surname).thenBy(name).thenByDescending(age));
+ * </pre>
+ * 
+ * Sorting extracts the keys of each element once, into primitive arrays for
+ * IntFields, LongFields and DoubleFields, and sorts the positions of the
+ * elements rather than comparing the elements themselves.
+ */
+public final class Ordering<T> {
+
+	private final List<Field<T>> fields;
+	private final boolean[] descending;
+
+	private Ordering(Field<T> field, boolean descending) {
+		if (field == null)
+			throw new IllegalArgumentException("field may not be null");
+		this.fields = new ArrayList<Field<T>>(1);
+		this.fields.add(field);
+		this.descending = new boolean[] { descending };
+	}
+
+	private Ordering(Ordering<T> ordering, Field<T> field, boolean descending) {
+		if (field == null)
+			throw new IllegalArgumentException("field may not be null");
+		int count = ordering.fields.size();
+		this.fields = new ArrayList<Field<T>>(ordering.fields);
+		this.fields.add(field);
+		this.descending = Arrays.copyOf(ordering.descending, count + 1);
+		this.descending[count] = descending;
+	}
+
+	public static <T> Ordering<T> by(Field<T> field) {
+		return new Ordering<T>(field, false);
+	}
+
+	public static <T> Ordering<T> byDescending(Field<T> field) {
+		return new Ordering<T>(field, true);
+	}
+
+	public Ordering<T> thenBy(Field<T> field) {
+		return new Ordering<T>(this, field, false);
+	}
+
+	public Ordering<T> thenByDescending(Field<T> field) {
+		return new Ordering<T>(this, field, true);
+	}
+
+	int size() {
+		return fields.size();
+	}
+
+	Field<T> getField(int key) {
+		return fields.get(key);
+	}
+
+	boolean isDescending(int key) {
+		return descending[key];
+	}
+
+	/**
+	 * @return a Comparator which reads the keys of the elements on every
+	 *         comparison, for callers which cannot extract them up front
+	 */
+	Comparator<Object> comparator() {
+		final List<Comparator<Object>> comparators = new ArrayList<Comparator<Object>>(fields.size());
+		for (int k = 0; k < fields.size(); k++)
+			comparators.add(Queryable.comparator(fields.get(k), descending[k]));
+		return new Comparator<Object>() {
+			@Override
+			public int compare(Object o1, Object o2) {
+				for (Comparator<Object> comparator : comparators) {
+					int result = comparator.compare(o1, o2);
+					if (result != 0)
+						return result;
+				}
+				return 0;
+			}
+		};
+	}
+}
@@ -0,0 +1,279 @@
+/* Copyright 2014 Sheldon Neilson www.neilson.co.za
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package za.co.neilson.collections.queryable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import za.co.neilson.collections.queryable.Queryable.Field;
+import za.co.neilson.collections.queryable.Queryable.Matcher;
+
+/**
+ * Runs the operators of a Queryable on several threads. Lists smaller than
+ * the threshold are processed on the calling thread. Results are new
+ * Queryables in the order a sequential operator would produce; the source
+ * list is not modified and must not be modified while an operator runs.
+ * 
+ * Work is split into contiguous chunks and run on a fixed pool of daemon
+ * threads rather than a ForkJoinPool, which Android only provides from API
+ * level 21. The calling thread works through the chunks as well, taking any
+ * that no pool thread has started, so it never waits on queued work. Operators
+ * called from within a chunk, such as from a Matcher or a Field, run
+ * sequentially, so nested operators cannot exhaust the pool and deadlock.
+ */
+public class ParallelQueryable<T> {
+
+	public static final int DEFAULT_THRESHOLD = 8192;
+
+	private static ExecutorService defaultExecutor;
+
+	/**
+	 * Set while the current thread is running a chunk of a parallel operator
+	 */
+	private static final ThreadLocal<Boolean> RUNNING_CHUNK = new ThreadLocal<Boolean>();
+
+	private final List<T> source;
+	private final ExecutorService executor;
+	private final int parallelism;
+	private final int threshold;
+
+	ParallelQueryable(List<T> source, ExecutorService executor, int parallelism, int threshold) {
+		if (parallelism < 1)
+			throw new IllegalArgumentException("parallelism must be greater than 0");
+		this.source = source;
+		this.executor = executor;
+		this.parallelism = parallelism;
+		this.threshold = threshold;
+	}
+
+	/**
+	 * @return the shared pool, with one daemon thread per processor, used
+	 *         when no ExecutorService is given
+	 */
+	static synchronized ExecutorService getDefaultExecutor() {
+		if (defaultExecutor == null) {
+			defaultExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "queryable-parallel-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return defaultExecutor;
+	}
+
+	/**
+	 * @return a ParallelQueryable with the same source and executor which
+	 *         runs in parallel once the source holds <b>threshold</b> elements
+	 */
+	public ParallelQueryable<T> threshold(int threshold) {
+		return new ParallelQueryable<T>(source, executor, parallelism, threshold);
+	}
+
+	private boolean isSequential() {
+		return parallelism == 1 || source.size() < threshold || RUNNING_CHUNK.get() != null;
+	}
+
+	/**
+	 * Filters each chunk of the source on its own thread and concatenates the
+	 * matches in source order
+	 */
+	public Queryable<T> where(final Matcher<T> matcher) {
+		if (isSequential()) {
+			Queryable<T> result = new Queryable<T>();
+			for (T t : source) {
+				if (matcher.isMatch(t))
+					result.add(t);
+			}
+			return result;
+		}
+
+		int[] bounds = chunks(source.size(), parallelism * 4);
+		List<Callable<List<T>>> tasks = new ArrayList<Callable<List<T>>>(bounds.length - 1);
+		for (int c = 0; c < bounds.length - 1; c++) {
+			final int from = bounds[c];
+			final int to = bounds[c + 1];
+			tasks.add(new Callable<List<T>>() {
+				@Override
+				public List<T> call() {
+					List<T> matches = new ArrayList<T>();
+					for (int i = from; i < to; i++) {
+						T t = source.get(i);
+						if (matcher.isMatch(t))
+							matches.add(t);
+					}
+					return matches;
+				}
+			});
+		}
+
+		List<List<T>> chunks = invokeAll(tasks);
+		int size = 0;
+		for (List<T> chunk : chunks)
+			size += chunk.size();
+		Queryable<T> result = new Queryable<T>();
+		result.ensureCapacity(size);
+		for (List<T> chunk : chunks)
+			result.addAll(chunk);
+		return result;
+	}
+
+	public Queryable<T> orderBy(Field<T> field) {
+		return orderBy(Ordering.by(field));
+	}
+
+	public Queryable<T> orderByDescending(Field<T> field) {
+		return orderBy(Ordering.byDescending(field));
+	}
+
+	/**
+	 * Extracts every key once, in parallel, then sorts the positions of the
+	 * elements with a stable parallel merge sort: each chunk is sorted on its
+	 * own thread and neighbouring runs are merged in parallel rounds
+	 */
+	public Queryable<T> orderBy(Ordering<T> ordering) {
+		if (isSequential())
+			return permute(SortKeys.sort(source, ordering));
+
+		final int size = source.size();
+		final SortKeys<T> comparator = new SortKeys<T>(source, ordering);
+		final int[] permutation = PermutationSort.identity(size);
+		final int[] buffer = new int[size];
+
+		final int[] bounds = chunks(size, parallelism);
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(bounds.length - 1);
+		for (int c = 0; c < bounds.length - 1; c++) {
+			final int from = bounds[c];
+			final int to = bounds[c + 1];
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					comparator.extract(from, to);
+					PermutationSort.sort(permutation, buffer, from, to, comparator);
+					return null;
+				}
+			});
+		}
+		invokeAll(tasks);
+
+		// Merge pairs of neighbouring runs until one run remains, alternating
+		// between the two arrays
+		int[] runs = bounds;
+		int[] sorted = permutation;
+		int[] spare = buffer;
+		while (runs.length > 2) {
+			final int[] from = sorted;
+			final int[] to = spare;
+			int[] merged = new int[(runs.length - 1 + 1) / 2 + 1];
+			List<Callable<Void>> merges = new ArrayList<Callable<Void>>();
+			int m = 0;
+			for (int r = 0; r < runs.length - 1; r += 2) {
+				final int start = runs[r];
+				final int middle = runs[r + 1];
+				final int end = r + 2 < runs.length ? runs[r + 2] : middle;
+				merged[m++] = start;
+				merges.add(new Callable<Void>() {
+					@Override
+					public Void call() {
+						if (end == middle)
+							System.arraycopy(from, start, to, start, end - start);
+						else
+							PermutationSort.merge(from, to, start, middle, end, comparator);
+						return null;
+					}
+				});
+			}
+			merged[m] = runs[runs.length - 1];
+			invokeAll(merges);
+			runs = merged;
+			sorted = to;
+			spare = from;
+		}
+		return permute(sorted);
+	}
+
+	private Queryable<T> permute(int[] permutation) {
+		Queryable<T> result = new Queryable<T>();
+		result.ensureCapacity(permutation.length);
+		for (int position : permutation)
+			result.add(source.get(position));
+		return result;
+	}
+
+	/**
+	 * @return the boundaries of up to <b>count</b> chunks of roughly equal
+	 *         size covering 0 to size
+	 */
+	private static int[] chunks(int size, int count) {
+		count = Math.max(1, Math.min(count, size));
+		int[] bounds = new int[count + 1];
+		for (int i = 0; i <= count; i++)
+			bounds[i] = (int) ((long) size * i / count);
+		return bounds;
+	}
+
+	private <V> List<V> invokeAll(List<Callable<V>> tasks) {
+		List<FutureTask<V>> futures = new ArrayList<FutureTask<V>>(tasks.size());
+		for (final Callable<V> task : tasks) {
+			futures.add(new FutureTask<V>(new Callable<V>() {
+				@Override
+				public V call() throws Exception {
+					RUNNING_CHUNK.set(Boolean.TRUE);
+					try {
+						return task.call();
+					} finally {
+						RUNNING_CHUNK.remove();
+					}
+				}
+			}));
+		}
+		try {
+			for (int i = 1; i < futures.size(); i++)
+				executor.execute(futures.get(i));
+		} catch (RejectedExecutionException e) {
+			// The calling thread runs whatever the executor did not accept
+		}
+
+		// Run every task no pool thread has started yet on this thread.
+		// FutureTask.run() does nothing once a task has started elsewhere
+		for (FutureTask<V> future : futures)
+			future.run();
+
+		List<V> results = new ArrayList<V>(tasks.size());
+		try {
+			for (FutureTask<V> future : futures)
+				results.add(future.get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while running a parallel operator", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			if (e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+			throw new IllegalStateException(e.getCause());
+		}
+		return results;
+	}
+}
@@ -0,0 +1,82 @@
+/* Copyright 2014 Sheldon Neilson www.neilson.co.za
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package za.co.neilson.collections.queryable;
+
+/**
+ * A stable merge sort of an array of element positions by keys that were
+ * extracted from the elements beforehand, so that each key is computed once
+ * rather than on every comparison
+ */
+class PermutationSort {
+
+	private static final int INSERTION_SORT_THRESHOLD = 16;
+
+	/**
+	 * Compares the keys of the elements at two positions
+	 */
+	static abstract class Keys {
+		abstract int compare(int a, int b);
+	}
+
+	private PermutationSort() {
+	}
+
+	/**
+	 * @return the positions 0 to size - 1 in order
+	 */
+	static int[] identity(int size) {
+		int[] permutation = new int[size];
+		for (int i = 0; i < size; i++)
+			permutation[i] = i;
+		return permutation;
+	}
+
+	/**
+	 * Sorts permutation[from..to) by key, using buffer as scratch space
+	 */
+	static void sort(int[] permutation, int[] buffer, int from, int to, Keys keys) {
+		if (to - from <= INSERTION_SORT_THRESHOLD) {
+			for (int i = from + 1; i < to; i++) {
+				int position = permutation[i];
+				int j = i - 1;
+				while (j >= from && keys.compare(permutation[j], position) > 0) {
+					permutation[j + 1] = permutation[j];
+					j--;
+				}
+				permutation[j + 1] = position;
+			}
+			return;
+		}
+		int middle = (from + to) >>> 1;
+		sort(permutation, buffer, from, middle, keys);
+		sort(permutation, buffer, middle, to, keys);
+		if (keys.compare(permutation[middle - 1], permutation[middle]) <= 0)
+			return;
+		System.arraycopy(permutation, from, buffer, from, to - from);
+		merge(buffer, permutation, from, middle, to, keys);
+	}
+
+	/**
+	 * Merges the sorted runs source[from..middle) and source[middle..to) into
+	 * target[from..to), taking from the first run on ties
+	 */
+	static void merge(int[] source, int[] target, int from, int middle, int to, Keys keys) {
+		int left = from;
+		int right = middle;
+		for (int i = from; i < to; i++) {
+			if (right >= to || (left < middle && keys.compare(source[left], source[right]) <= 0))
+				target[i] = source[left++];
+			else
+				target[i] = source[right++];
+		}
+	}
+}
@@ -11,10 +11,14 @@
  */
 package za.co.neilson.collections.queryable;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 public class Queryable<T> extends ArrayList<T> {
 
@@ -26,6 +30,48 @@ public class Queryable<T> extends ArrayList<T> {
 		public abstract Comparable<?> getFieldValue(T o);
 	}
 
+	/**
+	 * A Field of type int. Ordering by it compares primitive keys instead of
+	 * boxed values
+	 */
+	public static abstract class IntField<T> extends Field<T> {
+		public abstract int getInt(T o);
+
+		@Override
+		public Comparable<?> getFieldValue(T o) {
+			return getInt(o);
+		}
+	}
+
+	public static abstract class LongField<T> extends Field<T> {
+		public abstract long getLong(T o);
+
+		@Override
+		public Comparable<?> getFieldValue(T o) {
+			return getLong(o);
+		}
+	}
+
+	public static abstract class DoubleField<T> extends Field<T> {
+		public abstract double getDouble(T o);
+
+		@Override
+		public Comparable<?> getFieldValue(T o) {
+			return getDouble(o);
+		}
+	}
+
+	public static abstract class Selector<T, U> {
+		public abstract U select(T t);
+	}
+
+	public static abstract class Visitor<T> {
+		/**
+		 * @return false to stop visiting
+		 */
+		public abstract boolean visit(T t);
+	}
+
 	public static <X> Queryable<X> asQueryable(List<X> list) {
 		Queryable<X> queryable = new Queryable<X>();
 		queryable.addAll(list);
@@ -34,6 +80,377 @@ public class Queryable<T> extends ArrayList<T> {
 
 	private static final long serialVersionUID = 1L;
 
+	/**
+	 * A hash index from the values of a Field to the elements holding them
+	 */
+	private static class Index<T> {
+		private final Field<T> field;
+		private final boolean unique;
+		private final HashMap<Object, List<T>> entries = new HashMap<Object, List<T>>();
+
+		private Index(Field<T> field, boolean unique) {
+			this.field = field;
+			this.unique = unique;
+		}
+
+		private void add(T t) {
+			Object key = field.getFieldValue(t);
+			List<T> list = entries.get(key);
+			if (list == null) {
+				list = new ArrayList<T>(1);
+				entries.put(key, list);
+			} else if (unique) {
+				throw new IllegalArgumentException("Duplicate value for a unique index: " + key);
+			}
+			list.add(t);
+		}
+
+		private void remove(T t) {
+			Object key = field.getFieldValue(t);
+			List<T> list = entries.get(key);
+			if (list == null)
+				return;
+			for (int i = 0; i < list.size(); i++) {
+				if (list.get(i) == t) {
+					list.remove(i);
+					break;
+				}
+			}
+			if (list.isEmpty())
+				entries.remove(key);
+		}
+	}
+
+	private transient HashMap<Field<T>, Index<T>> indexes;
+
+	/**
+	 * The modCount at which the indexes were last known to match the list.
+	 * Changes which do not pass through the methods below, such as removeIf()
+	 * and replaceAll(), leave it behind and cause the indexes to be rebuilt
+	 */
+	private transient int indexedModCount;
+
+	/**
+	 * Builds a hash index on the values of a Field, which where(Field, Object)
+	 * and first(Field, Object) use instead of scanning the list. The index is
+	 * kept up to date as elements are added, removed and replaced, including
+	 * through subList() and iterators, but not when the indexed values of
+	 * elements already in the list change; call reindex() after changing them.
+	 * 
+	 * @param field
+	 *            the Field to index. Lookups must pass the same Field
+	 *            instance
+	 * @param unique
+	 *            true to reject elements whose value is already indexed
+	 * @return <b>Queryable&ltT&gt</b> this Queryable
+	 * @throws IllegalArgumentException
+	 *             if the index is unique and two elements share a value
+	 */
+	public Queryable<T> indexBy(Field<T> field, boolean unique) {
+		Index<T> index = new Index<T>(field, unique);
+		for (T t : this)
+			index.add(t);
+		if (indexes == null)
+			indexes = new HashMap<Field<T>, Index<T>>();
+		indexes.put(field, index);
+		indexedModCount = modCount;
+		return this;
+	}
+
+	public Queryable<T> indexBy(Field<T> field) {
+		return indexBy(field, false);
+	}
+
+	public Queryable<T> dropIndex(Field<T> field) {
+		if (indexes != null)
+			indexes.remove(field);
+		return this;
+	}
+
+	public boolean isIndexed(Field<T> field) {
+		return indexes != null && indexes.containsKey(field);
+	}
+
+	/**
+	 * Rebuilds every index from the current elements
+	 */
+	public Queryable<T> reindex() {
+		if (indexes != null) {
+			for (Index<T> index : new ArrayList<Index<T>>(indexes.values()))
+				indexBy(index.field, index.unique);
+		}
+		return this;
+	}
+
+	private Index<T> getIndex(Field<T> field) {
+		if (indexes == null)
+			return null;
+		if (modCount != indexedModCount)
+			reindex();
+		return indexes.get(field);
+	}
+
+	/**
+	 * @return the elements whose Field value equals the value, found through
+	 *         the Field's index if it has one and by a scan otherwise. Indexed
+	 *         results are in the order in which the elements were indexed
+	 */
+	public Queryable<T> where(Field<T> field, Object value) {
+		Queryable<T> result = new Queryable<T>();
+		Index<T> index = getIndex(field);
+		if (index != null) {
+			List<T> list = index.entries.get(value);
+			if (list != null)
+				result.addAll(list);
+			return result;
+		}
+		for (T t : this) {
+			if (equal(field.getFieldValue(t), value))
+				result.add(t);
+		}
+		return result;
+	}
+
+	public T first(Field<T> field, Object value) {
+		Index<T> index = getIndex(field);
+		if (index != null) {
+			List<T> list = index.entries.get(value);
+			return list == null ? null : list.get(0);
+		}
+		for (T t : this) {
+			if (equal(field.getFieldValue(t), value))
+				return t;
+		}
+		return null;
+	}
+
+	private static boolean equal(Object a, Object b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
+	/**
+	 * Adds the element to every index, or to none if a unique index rejects
+	 * it
+	 */
+	private void index(T t) {
+		if (indexes == null)
+			return;
+		List<Index<T>> added = new ArrayList<Index<T>>(indexes.size());
+		try {
+			for (Index<T> index : indexes.values()) {
+				index.add(t);
+				added.add(index);
+			}
+		} catch (IllegalArgumentException e) {
+			for (Index<T> index : added)
+				index.remove(t);
+			throw e;
+		}
+	}
+
+	private void indexAll(Collection<? extends T> collection) {
+		if (indexes == null)
+			return;
+		List<T> added = new ArrayList<T>(collection.size());
+		try {
+			for (T t : collection) {
+				index(t);
+				added.add(t);
+			}
+		} catch (IllegalArgumentException e) {
+			for (T t : added)
+				unindex(t);
+			throw e;
+		}
+	}
+
+	private void unindex(T t) {
+		if (indexes == null)
+			return;
+		for (Index<T> index : indexes.values())
+			index.remove(t);
+	}
+
+	@Override
+	public boolean add(T t) {
+		index(t);
+		super.add(t);
+		indexedModCount = modCount;
+		return true;
+	}
+
+	@Override
+	public void add(int position, T t) {
+		index(t);
+		super.add(position, t);
+		indexedModCount = modCount;
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends T> collection) {
+		indexAll(collection);
+		boolean changed = super.addAll(collection);
+		indexedModCount = modCount;
+		return changed;
+	}
+
+	@Override
+	public boolean addAll(int position, Collection<? extends T> collection) {
+		indexAll(collection);
+		boolean changed = super.addAll(position, collection);
+		indexedModCount = modCount;
+		return changed;
+	}
+
+	@Override
+	public T set(int position, T t) {
+		T previous = get(position);
+		unindex(previous);
+		try {
+			index(t);
+		} catch (IllegalArgumentException e) {
+			index(previous);
+			throw e;
+		}
+		return super.set(position, t);
+	}
+
+	@Override
+	public T remove(int position) {
+		T t = super.remove(position);
+		unindex(t);
+		indexedModCount = modCount;
+		return t;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		int position = indexOf(o);
+		if (position < 0)
+			return false;
+		remove(position);
+		return true;
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> collection) {
+		boolean changed = super.removeAll(collection);
+		if (changed && indexes != null)
+			reindex();
+		return changed;
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> collection) {
+		boolean changed = super.retainAll(collection);
+		if (changed && indexes != null)
+			reindex();
+		return changed;
+	}
+
+	@Override
+	protected void removeRange(int fromIndex, int toIndex) {
+		super.removeRange(fromIndex, toIndex);
+		if (indexes != null)
+			reindex();
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		if (indexes != null) {
+			for (Index<T> index : indexes.values())
+				index.entries.clear();
+		}
+		indexedModCount = modCount;
+	}
+
+	/**
+	 * The indexed values of the elements are copied, rather than shared with
+	 * this list
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public Object clone() {
+		Queryable<T> clone = (Queryable<T>) super.clone();
+		clone.indexes = null;
+		if (indexes != null) {
+			for (Index<T> index : indexes.values())
+				clone.indexBy(index.field, index.unique);
+		}
+		return clone;
+	}
+
+	/**
+	 * Changes made through the sublist of an indexed Queryable pass through
+	 * this list's own methods, so that its indexes are kept up to date
+	 */
+	@Override
+	public List<T> subList(int fromIndex, int toIndex) {
+		if (indexes == null)
+			return super.subList(fromIndex, toIndex);
+		if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex)
+			throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", size: " + size());
+		return new SubList(fromIndex, toIndex - fromIndex);
+	}
+
+	private class SubList extends AbstractList<T> {
+		private final int offset;
+		private int size;
+		private int expectedModCount;
+
+		private SubList(int offset, int size) {
+			this.offset = offset;
+			this.size = size;
+			this.expectedModCount = Queryable.this.modCount;
+		}
+
+		private void check(int position, int bound) {
+			if (Queryable.this.modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			if (position < 0 || position >= bound)
+				throw new IndexOutOfBoundsException("Index: " + position + ", Size: " + size);
+		}
+
+		@Override
+		public T get(int position) {
+			check(position, size);
+			return Queryable.this.get(offset + position);
+		}
+
+		@Override
+		public T set(int position, T t) {
+			check(position, size);
+			return Queryable.this.set(offset + position, t);
+		}
+
+		@Override
+		public void add(int position, T t) {
+			check(position, size + 1);
+			Queryable.this.add(offset + position, t);
+			expectedModCount = Queryable.this.modCount;
+			size++;
+			modCount++;
+		}
+
+		@Override
+		public T remove(int position) {
+			check(position, size);
+			T t = Queryable.this.remove(offset + position);
+			expectedModCount = Queryable.this.modCount;
+			size--;
+			modCount++;
+			return t;
+		}
+
+		@Override
+		public int size() {
+			if (Queryable.this.modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			return size;
+		}
+	}
+
 	public Queryable<T> where(Matcher<T> matcher) {
 		Queryable<T> result = new Queryable<>();
 		for (T t : this) {
@@ -53,31 +470,60 @@ public class Queryable<T> extends ArrayList<T> {
 		return null;
 	}
 
-	public Queryable<T> orderBy(final Field<T> field) {
+	/**
+	 * @return a DeferredQueryable over this list, whose operations are run in
+	 *         a single pass without copying or sorting this list
+	 */
+	public DeferredQueryable<T> deferred() {
+		return new DeferredQueryable<T>(this);
+	}
 
-		Collections.sort(this, new Comparator<Object>() {
-			@SuppressWarnings("unchecked")
-			@Override
-			public int compare(Object o1, Object o2) {
-				return ((Comparable<Object>) field.getFieldValue((T) o1))
-						.compareTo((Comparable<Object>) field
-								.getFieldValue((T) o2));
-			}
-		});
+	/**
+	 * @return a ParallelQueryable over this list which runs on a shared pool
+	 *         of one thread per processor
+	 */
+	public ParallelQueryable<T> parallel() {
+		return new ParallelQueryable<T>(this, ParallelQueryable.getDefaultExecutor(), Runtime.getRuntime().availableProcessors(), ParallelQueryable.DEFAULT_THRESHOLD);
+	}
 
-		return this;
+	/**
+	 * @return a ParallelQueryable over this list which splits its work into
+	 *         <b>parallelism</b> parts run on the given ExecutorService
+	 */
+	public ParallelQueryable<T> parallel(ExecutorService executor, int parallelism) {
+		return new ParallelQueryable<T>(this, executor, parallelism, ParallelQueryable.DEFAULT_THRESHOLD);
 	}
 
-	public Queryable<T> orderByDescending(final Field<T> field) {
-		Collections.sort(this, new Comparator<Object>() {
+	static <T> Comparator<Object> comparator(final Field<T> field, final boolean descending) {
+		return new Comparator<Object>() {
 			@SuppressWarnings("unchecked")
 			@Override
 			public int compare(Object o1, Object o2) {
-				return ((Comparable<Object>) field.getFieldValue((T) o2))
-						.compareTo((Comparable<Object>) field
-								.getFieldValue((T) o1));
+				int result = ((Comparable<Object>) field.getFieldValue((T) o1)).compareTo((Comparable<Object>) field.getFieldValue((T) o2));
+				return descending ? -result : result;
 			}
-		});
+		};
+	}
+
+	public Queryable<T> orderBy(Field<T> field) {
+		return orderBy(Ordering.by(field));
+	}
+
+	public Queryable<T> orderByDescending(Field<T> field) {
+		return orderBy(Ordering.byDescending(field));
+	}
+
+	/**
+	 * Sorts this list, stably, by the Ordering. Each key is extracted once
+	 * and the positions of the elements are sorted by the extracted keys
+	 */
+	@SuppressWarnings("unchecked")
+	public Queryable<T> orderBy(Ordering<T> ordering) {
+		int[] permutation = SortKeys.sort(this, ordering);
+		Object[] elements = toArray();
+		// The elements stay the same, so the indexes need no update
+		for (int i = 0; i < permutation.length; i++)
+			super.set(i, (T) elements[permutation[i]]);
 		return this;
 	}
 }
@@ -0,0 +1,131 @@
+/* Copyright 2014 Sheldon Neilson www.neilson.co.za
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package za.co.neilson.collections.queryable;
+
+import java.util.List;
+
+import za.co.neilson.collections.queryable.Queryable.DoubleField;
+import za.co.neilson.collections.queryable.Queryable.Field;
+import za.co.neilson.collections.queryable.Queryable.IntField;
+import za.co.neilson.collections.queryable.Queryable.LongField;
+
+/**
+ * The sort keys of every element of a list, extracted once per Field of an
+ * Ordering. Keys of IntFields, LongFields and DoubleFields are held in
+ * primitive arrays so that comparing them neither boxes nor casts.
+ */
+final class SortKeys<T> extends PermutationSort.Keys {
+
+	private static final int INT = 0;
+	private static final int LONG = 1;
+	private static final int DOUBLE = 2;
+	private static final int COMPARABLE = 3;
+
+	private final List<T> list;
+	private final Ordering<T> ordering;
+	private final int[] types;
+	private final Object[] keys;
+
+	SortKeys(List<T> list, Ordering<T> ordering) {
+		int size = list.size();
+		this.list = list;
+		this.ordering = ordering;
+		this.types = new int[ordering.size()];
+		this.keys = new Object[ordering.size()];
+		for (int k = 0; k < types.length; k++) {
+			Field<T> field = ordering.getField(k);
+			if (field instanceof IntField) {
+				types[k] = INT;
+				keys[k] = new int[size];
+			} else if (field instanceof LongField) {
+				types[k] = LONG;
+				keys[k] = new long[size];
+			} else if (field instanceof DoubleField) {
+				types[k] = DOUBLE;
+				keys[k] = new double[size];
+			} else {
+				types[k] = COMPARABLE;
+				keys[k] = new Comparable<?>[size];
+			}
+		}
+	}
+
+	/**
+	 * Extracts the keys of the elements at positions from to to - 1
+	 */
+	void extract(int from, int to) {
+		for (int k = 0; k < types.length; k++) {
+			Field<T> field = ordering.getField(k);
+			switch (types[k]) {
+			case INT:
+				int[] ints = (int[]) keys[k];
+				for (int i = from; i < to; i++)
+					ints[i] = ((IntField<T>) field).getInt(list.get(i));
+				break;
+			case LONG:
+				long[] longs = (long[]) keys[k];
+				for (int i = from; i < to; i++)
+					longs[i] = ((LongField<T>) field).getLong(list.get(i));
+				break;
+			case DOUBLE:
+				double[] doubles = (double[]) keys[k];
+				for (int i = from; i < to; i++)
+					doubles[i] = ((DoubleField<T>) field).getDouble(list.get(i));
+				break;
+			default:
+				Comparable<?>[] comparables = (Comparable<?>[]) keys[k];
+				for (int i = from; i < to; i++)
+					comparables[i] = field.getFieldValue(list.get(i));
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	int compare(int a, int b) {
+		for (int k = 0; k < types.length; k++) {
+			int result;
+			switch (types[k]) {
+			case INT:
+				int[] ints = (int[]) keys[k];
+				result = ints[a] < ints[b] ? -1 : (ints[a] == ints[b] ? 0 : 1);
+				break;
+			case LONG:
+				long[] longs = (long[]) keys[k];
+				result = longs[a] < longs[b] ? -1 : (longs[a] == longs[b] ? 0 : 1);
+				break;
+			case DOUBLE:
+				double[] doubles = (double[]) keys[k];
+				result = Double.compare(doubles[a], doubles[b]);
+				break;
+			default:
+				Comparable<?>[] comparables = (Comparable<?>[]) keys[k];
+				result = ((Comparable<Object>) comparables[a]).compareTo(comparables[b]);
+			}
+			if (result != 0)
+				return ordering.isDescending(k) ? -result : result;
+		}
+		return 0;
+	}
+
+	/**
+	 * @return the positions of the elements of the list in sorted order
+	 */
+	static <T> int[] sort(List<T> list, Ordering<T> ordering) {
+		int size = list.size();
+		SortKeys<T> keys = new SortKeys<T>(list, ordering);
+		keys.extract(0, size);
+		int[] permutation = PermutationSort.identity(size);
+		PermutationSort.sort(permutation, new int[size], 0, size, keys);
+		return permutation;
+	}
+}
@@ -0,0 +1,139 @@
+/* Copyright 2014 Sheldon Neilson www.neilson.co.za
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package za.co.neilson.sqlite.orm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>
+ * The SET clause of a set-based UPDATE performed by
+ * ObjectModel.updateWhere(). Each assignment writes one column from a bound
+ * value, from the column's current value plus a delta, or from a SQL
+ * expression such as a CASE, so that rows can be changed without being read
+ * first.
+ * </p>
+ *
+ * <pre>
+ * orderModel.updateWhere(&quot;customerId = ?&quot;, new Object[] { customerId }, new Assignments()
+ * 		.increment(&quot;retries&quot;, 1)
+ * 		.expression(&quot;status&quot;, &quot;CASE WHEN retries &gt;= ? THEN ? ELSE status END&quot;, 3, &quot;FAILED&quot;));
+ * </pre>
+ *
+ * @version 0.2
+ * @since 0.2
+ * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+ */
+public class Assignments {
+
+	private final List<String> columnNames = new ArrayList<String>();
+	private final List<String> expressions = new ArrayList<String>();
+	private final List<Object> args = new ArrayList<Object>();
+
+	/**
+	 * Assigns a value to a column: column = ?
+	 *
+	 * @param columnName
+	 *            the column to assign
+	 * @param value
+	 *            the value to assign, which may be null
+	 * @return <b>Assignments</b> these Assignments
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public Assignments set(String columnName, Object value) {
+		return expression(columnName, "?", value);
+	}
+
+	/**
+	 * Adds a delta to a column's current value in the database: column =
+	 * column + ?
+	 *
+	 * @param columnName
+	 *            the numeric column to increment
+	 * @param delta
+	 *            the amount to add, which may be negative
+	 * @return <b>Assignments</b> these Assignments
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public Assignments increment(String columnName, Number delta) {
+		if (delta == null)
+			throw new IllegalArgumentException("delta may not be null");
+		return expression(columnName, columnName + " + ?", delta);
+	}
+
+	/**
+	 * Assigns the result of a SQL expression to a column: column = expression
+	 *
+	 * @param columnName
+	 *            the column to assign
+	 * @param expression
+	 *            the SQL expression, which may refer to any column of the row
+	 *            being updated and may contain ?s
+	 * @param args
+	 *            the values bound to the ?s in the expression, in order
+	 * @return <b>Assignments</b> these Assignments
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public Assignments expression(String columnName, String expression, Object... args) {
+		if (columnName == null || expression == null)
+			throw new IllegalArgumentException("A column name and an expression are required");
+		columnNames.add(columnName);
+		expressions.add(expression);
+		if (args != null) {
+			for (Object arg : args)
+				this.args.add(ObjectModel.toArgument(arg));
+		}
+		return this;
+	}
+
+	/**
+	 * @return <b>List&ltString&gt</b> the assigned columns, in order
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public List<String> getColumnNames() {
+		return Collections.unmodifiableList(columnNames);
+	}
+
+	/**
+	 * @return <b>boolean</b> true if no column has been assigned
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public boolean isEmpty() {
+		return columnNames.isEmpty();
+	}
+
+	/**
+	 * @return <b>String</b> the SET clause, without the SET keyword
+	 */
+	String toSql() {
+		StringBuilder sql = new StringBuilder();
+		for (int i = 0; i < columnNames.size(); i++) {
+			if (i > 0)
+				sql.append(", ");
+			sql.append(columnNames.get(i)).append(" = ").append(expressions.get(i));
+		}
+		return sql.toString();
+	}
+
+	/**
+	 * @return <b>Object[]</b> the values bound to the SET clause, in order
+	 */
+	Object[] getArgs() {
+		return args.toArray();
+	}
+}
@@ -0,0 +1,232 @@
+/* Copyright 2014 Sheldon Neilson www.neilson.co.za
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package za.co.neilson.sqlite.orm;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * The executors on which the AsyncObjectModels of a DatabaseModel run their
+ * operations, obtained from DatabaseModel.getAsyncExecutor().
+ * </p>
+ * <p>
+ * Reads run concurrently, each on a read-only connection borrowed from a pool
+ * of at most <b>readConnections</b> connections, so SQLite's concurrent
+ * readers are used instead of contending for the DatabaseModel's connection.
+ * When the JVM provides virtual threads each read runs on its own virtual
+ * thread and waits for a free connection; otherwise reads run on a fixed pool
+ * of one thread per connection.
+ * </p>
+ * <p>
+ * Writes run one at a time, in the order they were submitted, on a single
+ * writer thread using the DatabaseModel's connection.
+ * </p>
+ *
+ * @param <R>
+ *            The type of the result collection returned by a query. Android
+ *            Returns a Cursor Object whilst JDBC returns a ResultSet
+ * @param <C>
+ *            The type of map used to map column names to column values.
+ *            Android requires the use of a ContentValues object whilst JDBC
+ *            simply uses a HashMap<String,Object>
+ * @version 0.2
+ * @since 0.2
+ * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+ */
+public class AsyncExecutor<R, C> {
+
+	private final DatabaseModel<R, C> databaseModel;
+	private final ExecutorService readExecutor;
+	private final ExecutorService writeExecutor;
+
+	private final Semaphore readPermits;
+	private final ConcurrentLinkedQueue<DatabaseDriverInterface<R, C>> idleConnections = new ConcurrentLinkedQueue<DatabaseDriverInterface<R, C>>();
+	private final List<DatabaseDriverInterface<R, C>> connections = new ArrayList<DatabaseDriverInterface<R, C>>();
+	private final int readConnections;
+
+	/**
+	 * AsyncExecutors should not be instantiated directly. Use
+	 * DatabaseModel.getAsyncExecutor() instead.
+	 * 
+	 * @param databaseModel
+	 *            the DatabaseModel whose operations are run
+	 * @param readConnections
+	 *            the maximum number of read-only connections, and therefore
+	 *            of concurrent reads
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected AsyncExecutor(DatabaseModel<R, C> databaseModel, int readConnections) {
+		if (readConnections < 1)
+			throw new IllegalArgumentException("readConnections must be greater than 0");
+
+		this.databaseModel = databaseModel;
+		this.readConnections = readConnections;
+		this.readPermits = new Semaphore(readConnections, true);
+
+		ExecutorService virtualThreadExecutor = newVirtualThreadExecutor();
+		this.readExecutor = virtualThreadExecutor != null ? virtualThreadExecutor : Executors.newFixedThreadPool(readConnections, new DaemonThreadFactory("sqlite-orm-read-"));
+		this.writeExecutor = Executors.newSingleThreadExecutor(new DaemonThreadFactory("sqlite-orm-write-"));
+	}
+
+	/**
+	 * Submits a read. The read runs with a read-only connection bound to its
+	 * thread (see DatabaseModel.bindConnection()), so every ObjectModel it
+	 * uses queries through that connection.
+	 * 
+	 * @param callable
+	 *            the read to run
+	 * @return <b>AsyncResult&ltV&gt</b> the pending result of the read
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public <V> AsyncResult<V> submitRead(final Callable<V> callable) {
+		AsyncResult<V> asyncResult = new AsyncResult<V>(new Callable<V>() {
+			@Override
+			public V call() throws Exception {
+				DatabaseDriverInterface<R, C> connection = acquireReadConnection();
+				DatabaseDriverInterface<R, C> previous = databaseModel.bindConnection(connection);
+				try {
+					return callable.call();
+				} finally {
+					databaseModel.bindConnection(previous);
+					releaseReadConnection(connection);
+				}
+			}
+		});
+		execute(readExecutor, asyncResult);
+		return asyncResult;
+	}
+
+	/**
+	 * Submits a write. Writes run one at a time in the order submitted.
+	 * 
+	 * @param callable
+	 *            the write to run
+	 * @return <b>AsyncResult&ltV&gt</b> the pending result of the write
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public <V> AsyncResult<V> submitWrite(Callable<V> callable) {
+		AsyncResult<V> asyncResult = new AsyncResult<V>(callable);
+		execute(writeExecutor, asyncResult);
+		return asyncResult;
+	}
+
+	/**
+	 * @return <b>int</b> the maximum number of read-only connections
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public int getReadConnections() {
+		return readConnections;
+	}
+
+	/**
+	 * Stops accepting operations, waits for submitted writes to complete and
+	 * closes the read-only connections. Reads still running are interrupted.
+	 * 
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public void shutdown() {
+		writeExecutor.shutdown();
+		readExecutor.shutdownNow();
+		try {
+			writeExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			readExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		synchronized (connections) {
+			for (DatabaseDriverInterface<R, C> connection : connections)
+				connection.disconnect();
+			connections.clear();
+			idleConnections.clear();
+		}
+	}
+
+	private void execute(ExecutorService executorService, AsyncResult<?> asyncResult) {
+		try {
+			executorService.execute(asyncResult);
+		} catch (RejectedExecutionException e) {
+			asyncResult.cancel(false);
+		}
+	}
+
+	private DatabaseDriverInterface<R, C> acquireReadConnection() throws SQLException {
+		try {
+			readPermits.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a read connection", e);
+		}
+		DatabaseDriverInterface<R, C> connection = idleConnections.poll();
+		if (connection != null)
+			return connection;
+
+		try {
+			connection = databaseModel.getDatabaseDriverInterface().openReadOnlyConnection();
+		} catch (SQLException | RuntimeException e) {
+			readPermits.release();
+			throw e;
+		}
+		synchronized (connections) {
+			connections.add(connection);
+		}
+		return connection;
+	}
+
+	private void releaseReadConnection(DatabaseDriverInterface<R, C> connection) {
+		idleConnections.offer(connection);
+		readPermits.release();
+	}
+
+	/**
+	 * @return <b>ExecutorService</b> an executor that runs each task on a new
+	 *         virtual thread, or null if the JVM does not support them
+	 */
+	private static ExecutorService newVirtualThreadExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	private static class DaemonThreadFactory implements ThreadFactory {
+		private final String prefix;
+		private final AtomicInteger count = new AtomicInteger();
+
+		DaemonThreadFactory(String prefix) {
+			this.prefix = prefix;
+		}
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
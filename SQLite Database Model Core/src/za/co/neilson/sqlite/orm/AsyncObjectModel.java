@@ -0,0 +1,256 @@
+/* Copyright 2014 Sheldon Neilson www.neilson.co.za
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package za.co.neilson.sqlite.orm;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * <p>
+ * A non-blocking view of an ObjectModel, obtained from ObjectModel.async().
+ * </p>
+ * <p>
+ * Each method submits the corresponding ObjectModel operation to the
+ * DatabaseModel's AsyncExecutor and returns immediately with an AsyncResult.
+ * Reads run concurrently on pooled read-only connections; writes run one at a
+ * time on a single writer thread. Reads only see writes that have completed.
+ * </p>
+ *
+ * @param <T>
+ *            The object type managed by the ObjectModel
+ * @param <R>
+ *            The type of the result collection returned by a query. Android
+ *            Returns a Cursor Object whilst JDBC returns a ResultSet
+ * @param <C>
+ *            The type of map used to map column names to column values.
+ *            Android requires the use of a ContentValues object whilst JDBC
+ *            simply uses a HashMap<String,Object>
+ * @version 0.2
+ * @since 0.2
+ * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+ */
+public class AsyncObjectModel<T, R, C> {
+
+	private final ObjectModel<T, R, C> objectModel;
+
+	/**
+	 * AsyncObjectModels should not be instantiated directly. Use
+	 * ObjectModel.async() instead.
+	 * 
+	 * @param objectModel
+	 *            the ObjectModel whose operations are run asynchronously
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected AsyncObjectModel(ObjectModel<T, R, C> objectModel) {
+		this.objectModel = objectModel;
+	}
+
+	/**
+	 * @return <b>ObjectModel&ltT,R,C&gt</b> the underlying ObjectModel
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public ObjectModel<T, R, C> getObjectModel() {
+		return objectModel;
+	}
+
+	/**
+	 * @see ObjectModel#getByPrimaryKey(Object...)
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public AsyncResult<T> getByPrimaryKeyAsync(final Object... primaryKey) {
+		return read(new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				return objectModel.getByPrimaryKey(primaryKey);
+			}
+		});
+	}
+
+	/**
+	 * @see ObjectModel#getFirst(String, Object...)
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public AsyncResult<T> getFirstAsync(String whereClause, Object... whereArgs) {
+		return getFirstAsync(whereClause, whereArgs, null);
+	}
+
+	/**
+	 * @see ObjectModel#getFirst(String, Object[], String)
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public AsyncResult<T> getFirstAsync(final String whereClause, final Object[] whereArgs, final String orderBy) {
+		return read(new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				return objectModel.getFirst(whereClause, whereArgs, orderBy);
+			}
+		});
+	}
+
+	/**
+	 * @see ObjectModel#getAll()
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public AsyncResult<List<T>> getAllAsync() {
+		return getAllAsync(null, null, null, null);
+	}
+
+	/**
+	 * @see ObjectModel#getAll(String, Object...)
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public AsyncResult<List<T>> getAllAsync(String whereClause, Object... whereArgs) {
+		return getAllAsync(whereClause, whereArgs, null, null);
+	}
+
+	/**
+	 * @see ObjectModel#getAll(String, Object[], String, Integer)
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public AsyncResult<List<T>> getAllAsync(final String whereClause, final Object[] whereArgs, final String orderBy, final Integer limit) {
+		return read(new Callable<List<T>>() {
+			@Override
+			public List<T> call() throws Exception {
+				return objectModel.getAll(whereClause, whereArgs, orderBy, limit);
+			}
+		});
+	}
+
+	/**
+	 * @see ObjectModel#insert(Object)
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public AsyncResult<Long> insertAsync(final T t) {
+		return write(new Callable<Long>() {
+			@Override
+			public Long call() throws Exception {
+				return objectModel.insert(t);
+			}
+		});
+	}
+
+	/**
+	 * @see ObjectModel#insertAll(Collection)
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public AsyncResult<long[]> insertAllAsync(final Collection<T> collection) {
+		return write(new Callable<long[]>() {
+			@Override
+			public long[] call() throws Exception {
+				return objectModel.insertAll(collection);
+			}
+		});
+	}
+
+	/**
+	 * @see ObjectModel#insertOrUpdate(Object)
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public AsyncResult<Integer> insertOrUpdateAsync(final T t) {
+		return write(new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				return objectModel.insertOrUpdate(t);
+			}
+		});
+	}
+
+	/**
+	 * @see ObjectModel#update(Object)
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public AsyncResult<Integer> updateAsync(final T t) {
+		return write(new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				return objectModel.update(t);
+			}
+		});
+	}
+
+	/**
+	 * @see ObjectModel#update(Object, String, Object...)
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public AsyncResult<Integer> updateAsync(final T t, final String whereClause, final Object... whereArgs) {
+		return write(new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				return objectModel.update(t, whereClause, whereArgs);
+			}
+		});
+	}
+
+	/**
+	 * @see ObjectModel#updateWhere(String, Object[], Assignments)
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public AsyncResult<Integer> updateWhereAsync(final String whereClause, final Object[] whereArgs, final Assignments assignments) {
+		return write(new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				return objectModel.updateWhere(whereClause, whereArgs, assignments);
+			}
+		});
+	}
+
+	/**
+	 * @see ObjectModel#delete(Object)
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public AsyncResult<Integer> deleteAsync(final T t) {
+		return write(new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				return objectModel.delete(t);
+			}
+		});
+	}
+
+	/**
+	 * @see ObjectModel#deleteAll(String, Object...)
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public AsyncResult<Integer> deleteAllAsync(final String whereClause, final Object... whereArgs) {
+		return write(new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				return objectModel.deleteAll(whereClause, whereArgs);
+			}
+		});
+	}
+
+	private <V> AsyncResult<V> read(Callable<V> callable) {
+		return objectModel.getDatabaseModel().getAsyncExecutor().submitRead(callable);
+	}
+
+	private <V> AsyncResult<V> write(Callable<V> callable) {
+		return objectModel.getDatabaseModel().getAsyncExecutor().submitWrite(callable);
+	}
+}
@@ -0,0 +1,142 @@
+/* Copyright 2014 Sheldon Neilson www.neilson.co.za
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package za.co.neilson.sqlite.orm;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * <p>
+ * The pending result of an operation submitted through an AsyncObjectModel.
+ * </p>
+ * <p>
+ * Callbacks added before the operation completes are called by the thread
+ * that ran the operation. Callbacks added afterwards are called immediately by
+ * the thread adding them. Callbacks should not block, as doing so holds up the
+ * executor running the operations.
+ * </p>
+ *
+ * @param <V>
+ *            The type of the result
+ * @version 0.2
+ * @since 0.2
+ * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+ */
+public class AsyncResult<V> extends FutureTask<V> {
+
+	/**
+	 * Receives the outcome of an AsyncResult
+	 * 
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public static abstract class Callback<V> {
+		public abstract void onSuccess(V v);
+
+		public void onFailure(Throwable throwable) {
+			throwable.printStackTrace();
+		}
+	}
+
+	private final List<Callback<? super V>> callbacks = new ArrayList<Callback<? super V>>();
+
+	/**
+	 * @param callable
+	 *            the operation to run
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected AsyncResult(Callable<V> callable) {
+		super(callable);
+	}
+
+	/**
+	 * @param callback
+	 *            the Callback to call when the operation completes
+	 * @return <b>AsyncResult&ltV&gt</b> this AsyncResult
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public AsyncResult<V> addCallback(Callback<? super V> callback) {
+		synchronized (callbacks) {
+			if (!isDone()) {
+				callbacks.add(callback);
+				return this;
+			}
+		}
+		complete(callback);
+		return this;
+	}
+
+	/**
+	 * Waits for the operation to complete
+	 * 
+	 * @return <b>V</b> the result of the operation
+	 * @throws SQLException
+	 *             if the operation failed, was cancelled or the wait was
+	 *             interrupted
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public V await() throws SQLException {
+		try {
+			return get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for the result", e);
+		} catch (CancellationException e) {
+			throw new SQLException("The operation was cancelled", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof SQLException)
+				throw (SQLException) e.getCause();
+			throw new SQLException(e.getCause());
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.concurrent.FutureTask#done()
+	 */
+	@Override
+	protected void done() {
+		List<Callback<? super V>> pending;
+		synchronized (callbacks) {
+			pending = new ArrayList<Callback<? super V>>(callbacks);
+			callbacks.clear();
+		}
+		for (Callback<? super V> callback : pending)
+			complete(callback);
+	}
+
+	private void complete(Callback<? super V> callback) {
+		V v;
+		try {
+			v = get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		} catch (CancellationException e) {
+			callback.onFailure(e);
+			return;
+		} catch (ExecutionException e) {
+			callback.onFailure(e.getCause());
+			return;
+		}
+		callback.onSuccess(v);
+	}
+}
@@ -0,0 +1,39 @@
+/* Copyright 2014 Sheldon Neilson www.neilson.co.za
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package za.co.neilson.sqlite.orm;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * An Iterator over the results of a query which holds the underlying
+ * ResultSet or Cursor open until it is exhausted or closed. Use it in a
+ * try-with-resources statement so that it is closed if iteration stops early.
+ *
+ * @param <T>
+ *            The object type returned by the iterator
+ * @version 0.2
+ * @since 0.2
+ * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+ */
+public interface CloseableIterator<T> extends Iterator<T>, Closeable {
+
+	/**
+	 * Releases the underlying query result. Calling this method more than once
+	 * has no effect.
+	 *
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	@Override
+	public void close();
+}
@@ -0,0 +1,345 @@
+/* Copyright 2014 Sheldon Neilson www.neilson.co.za
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package za.co.neilson.sqlite.orm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * <p>
+ * The columns of a query result held in primitive arrays, obtained from
+ * ObjectModel.columns().
+ * </p>
+ * <p>
+ * Integer columns are held in an int[] or long[], floating point columns in a
+ * double[] and text columns as an int[] of codes into a dictionary of the
+ * column's distinct values. NULL values are recorded in a BitSet per column
+ * and read as 0 (or code -1) from the arrays.
+ * </p>
+ * <p>
+ * The arrays returned by the getters are the batch's own arrays, trimmed to
+ * size(), and are not copied.
+ * </p>
+ *
+ * @version 0.2
+ * @since 0.2
+ * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+ */
+public class ColumnBatch {
+
+	/**
+	 * The storage used for a column of a ColumnBatch
+	 * 
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public static enum ColumnType {
+		INT, LONG, DOUBLE, STRING
+	}
+
+	private static final int INITIAL_CAPACITY = 256;
+
+	private final String[] names;
+	private final ColumnType[] types;
+	private final Object[] arrays;
+	private final BitSet[] nulls;
+	private final List<List<String>> dictionaries;
+	private final List<HashMap<String, Integer>> dictionaryCodes;
+	private int capacity;
+	private int size;
+
+	/**
+	 * ColumnBatches should not be instantiated directly. Use
+	 * ObjectModel.columns() instead.
+	 * 
+	 * @param names
+	 *            the names of the columns
+	 * @param types
+	 *            the storage used for each column
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected ColumnBatch(String[] names, ColumnType[] types) {
+		this.names = names;
+		this.types = types;
+		this.arrays = new Object[names.length];
+		this.nulls = new BitSet[names.length];
+		this.dictionaries = new ArrayList<List<String>>(names.length);
+		this.dictionaryCodes = new ArrayList<HashMap<String, Integer>>(names.length);
+		this.capacity = INITIAL_CAPACITY;
+
+		for (int i = 0; i < names.length; i++) {
+			nulls[i] = new BitSet();
+			switch (types[i]) {
+			case INT:
+			case STRING:
+				arrays[i] = new int[capacity];
+				break;
+			case LONG:
+				arrays[i] = new long[capacity];
+				break;
+			case DOUBLE:
+				arrays[i] = new double[capacity];
+				break;
+			}
+			dictionaries.add(types[i] == ColumnType.STRING ? new ArrayList<String>() : null);
+			dictionaryCodes.add(types[i] == ColumnType.STRING ? new HashMap<String, Integer>() : null);
+		}
+	}
+
+	/**
+	 * @return <b>int</b> the number of rows in the batch
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return <b>int</b> the number of columns in the batch
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public int getColumnCount() {
+		return names.length;
+	}
+
+	/**
+	 * @param column
+	 *            the index of the column
+	 * @return <b>String</b> the name of the column
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public String getColumnName(int column) {
+		return names[column];
+	}
+
+	/**
+	 * @param name
+	 *            the name of the column, ignoring case
+	 * @return <b>int</b> the index of the column
+	 * @throws IllegalArgumentException
+	 *             if the batch has no such column
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public int getColumnIndex(String name) {
+		for (int i = 0; i < names.length; i++) {
+			if (names[i].toLowerCase(Locale.ENGLISH).equals(name.toLowerCase(Locale.ENGLISH)))
+				return i;
+		}
+		throw new IllegalArgumentException("The batch has no column named " + name);
+	}
+
+	/**
+	 * @param column
+	 *            the index of the column
+	 * @return <b>ColumnType</b> the storage used for the column
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public ColumnType getColumnType(int column) {
+		return types[column];
+	}
+
+	/**
+	 * @param column
+	 *            the index of the column
+	 * @param row
+	 *            the index of the row
+	 * @return <b>boolean</b> true if the value of the column is NULL in the
+	 *         given row
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public boolean isNull(int column, int row) {
+		return nulls[column].get(row);
+	}
+
+	/**
+	 * @param column
+	 *            the index of the column
+	 * @return <b>BitSet</b> the rows in which the column is NULL
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public BitSet getNulls(int column) {
+		return nulls[column];
+	}
+
+	/**
+	 * @param column
+	 *            the index of an INT column
+	 * @return <b>int[]</b> the values of the column
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public int[] getInts(int column) {
+		return (int[]) array(column, ColumnType.INT);
+	}
+
+	/**
+	 * @param column
+	 *            the index of a LONG column
+	 * @return <b>long[]</b> the values of the column
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public long[] getLongs(int column) {
+		return (long[]) array(column, ColumnType.LONG);
+	}
+
+	/**
+	 * @param column
+	 *            the index of a DOUBLE column
+	 * @return <b>double[]</b> the values of the column
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public double[] getDoubles(int column) {
+		return (double[]) array(column, ColumnType.DOUBLE);
+	}
+
+	/**
+	 * @param column
+	 *            the index of a STRING column
+	 * @return <b>int[]</b> the index of each row's value in the column's
+	 *         dictionary, or -1 where the value is NULL
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public int[] getStringCodes(int column) {
+		return (int[]) array(column, ColumnType.STRING);
+	}
+
+	/**
+	 * @param column
+	 *            the index of a STRING column
+	 * @return <b>String[]</b> the distinct values of the column in order of
+	 *         first appearance
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public String[] getDictionary(int column) {
+		array(column, ColumnType.STRING);
+		List<String> dictionary = dictionaries.get(column);
+		return dictionary.toArray(new String[dictionary.size()]);
+	}
+
+	/**
+	 * @param column
+	 *            the index of a STRING column
+	 * @param row
+	 *            the index of the row
+	 * @return <b>String</b> the value of the column in the given row
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public String getString(int column, int row) {
+		int code = getStringCodes(column)[row];
+		return code < 0 ? null : dictionaries.get(column).get(code);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "ColumnBatch [columns=" + Arrays.toString(names) + ", types=" + Arrays.toString(types) + ", size=" + size + "]";
+	}
+
+	/**
+	 * Grows the arrays geometrically if they cannot hold another row
+	 */
+	void ensureCapacity() {
+		if (size < capacity)
+			return;
+
+		capacity = capacity + (capacity >> 1);
+		for (int i = 0; i < arrays.length; i++)
+			arrays[i] = resize(arrays[i], capacity);
+	}
+
+	void setInt(int column, int value) {
+		((int[]) arrays[column])[size] = value;
+	}
+
+	void setLong(int column, long value) {
+		((long[]) arrays[column])[size] = value;
+	}
+
+	void setDouble(int column, double value) {
+		((double[]) arrays[column])[size] = value;
+	}
+
+	void setString(int column, String value) {
+		int code = -1;
+		if (value != null) {
+			HashMap<String, Integer> codes = dictionaryCodes.get(column);
+			Integer existing = codes.get(value);
+			if (existing == null) {
+				List<String> dictionary = dictionaries.get(column);
+				existing = dictionary.size();
+				dictionary.add(value);
+				codes.put(value, existing);
+			}
+			code = existing;
+		}
+		((int[]) arrays[column])[size] = code;
+	}
+
+	void setNull(int column) {
+		nulls[column].set(size);
+		if (types[column] == ColumnType.STRING)
+			((int[]) arrays[column])[size] = -1;
+	}
+
+	void nextRow() {
+		size++;
+	}
+
+	/**
+	 * Trims the arrays to size() and releases the dictionary lookups once the
+	 * batch is complete
+	 */
+	void trim() {
+		if (capacity != size) {
+			capacity = size;
+			for (int i = 0; i < arrays.length; i++)
+				arrays[i] = resize(arrays[i], size);
+		}
+		for (int i = 0; i < dictionaryCodes.size(); i++)
+			dictionaryCodes.set(i, null);
+	}
+
+	private Object array(int column, ColumnType type) {
+		if (types[column] != type)
+			throw new IllegalArgumentException(names[column] + " is a " + types[column] + " column");
+		return arrays[column];
+	}
+
+	private static Object resize(Object array, int length) {
+		if (array instanceof int[])
+			return Arrays.copyOf((int[]) array, length);
+		if (array instanceof long[])
+			return Arrays.copyOf((long[]) array, length);
+		return Arrays.copyOf((double[]) array, length);
+	}
+}
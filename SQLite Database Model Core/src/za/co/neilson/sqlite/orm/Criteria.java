@@ -0,0 +1,624 @@
+/* Copyright 2014 Sheldon Neilson www.neilson.co.za
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package za.co.neilson.sqlite.orm;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * <p>
+ * A query built from Conditions on an ObjectModel's columns instead of a
+ * hand written WHERE clause. Column names are checked against the
+ * ObjectModel's columns as each Condition is added, and every value is passed
+ * to the database as a bound argument rather than being written into the SQL.
+ * </p>
+ * <p>
+ * The WHERE clause of a Criteria depends only on its shape: the operators and
+ * columns of its Conditions and the number of values in each IN list. The
+ * ObjectModel keeps the WHERE clause of each shape it has seen, so Criteria
+ * that differ only in their values compile to the same SQL and are not
+ * rendered again.
+ * </p>
+ *
+ * <pre>
+ * List&lt;Person&gt; people = personModel.criteria()
+ * 		.eq(&quot;surname&quot;, &quot;Smith&quot;)
+ * 		.or(Criteria.Condition.lt(&quot;age&quot;, 18), Criteria.Condition.isNull(&quot;employer&quot;))
+ * 		.orderBy(&quot;age&quot;, true)
+ * 		.limit(10)
+ * 		.getAll();
+ * </pre>
+ *
+ * @param <T>
+ *            The object type returned by the query
+ * @version 0.2
+ * @since 0.2
+ * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+ */
+public class Criteria<T> {
+
+	/**
+	 * The number of WHERE clause templates an ObjectModel keeps before its
+	 * template cache is cleared
+	 */
+	static final int MAX_TEMPLATES = 256;
+
+	private static enum Operator {
+		EQ(" = ?"), NE(" <> ?"), LT(" < ?"), LE(" <= ?"), GT(" > ?"), GE(" >= ?"), LIKE(" LIKE ?"), BETWEEN(" BETWEEN ? AND ?"), IS_NULL(" IS NULL"), IS_NOT_NULL(
+				" IS NOT NULL"), IN(null), AND(" AND "), OR(" OR "), NOT(null);
+
+		private final String sql;
+
+		private Operator(String sql) {
+			this.sql = sql;
+		}
+	}
+
+	/**
+	 * <p>
+	 * A single term of a Criteria's WHERE clause, or a group of terms joined
+	 * by AND or OR. Conditions are immutable and may be shared between
+	 * Criteria.
+	 * </p>
+	 *
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public static final class Condition {
+
+		private final Operator operator;
+		private final String columnName;
+		private final Object[] values;
+		private final Condition[] conditions;
+
+		private Condition(Operator operator, String columnName, Object[] values, Condition[] conditions) {
+			this.operator = operator;
+			this.columnName = columnName;
+			this.values = values;
+			this.conditions = conditions;
+		}
+
+		private static Condition compare(Operator operator, String columnName, Object value) {
+			if (columnName == null)
+				throw new IllegalArgumentException("A column name is required");
+			return new Condition(operator, columnName, new Object[] { value }, null);
+		}
+
+		private static Condition group(Operator operator, Condition[] conditions) {
+			if (conditions == null || conditions.length == 0)
+				throw new IllegalArgumentException("At least one condition is required");
+			for (Condition condition : conditions) {
+				if (condition == null)
+					throw new IllegalArgumentException("Conditions may not be null");
+			}
+			return new Condition(operator, null, null, conditions.clone());
+		}
+
+		/**
+		 * @return <b>Condition</b> columnName = value, or columnName IS NULL
+		 *         if the value is null
+		 */
+		public static Condition eq(String columnName, Object value) {
+			return value == null ? isNull(columnName) : compare(Operator.EQ, columnName, value);
+		}
+
+		/**
+		 * @return <b>Condition</b> columnName &lt;&gt; value, or columnName IS
+		 *         NOT NULL if the value is null
+		 */
+		public static Condition ne(String columnName, Object value) {
+			return value == null ? isNotNull(columnName) : compare(Operator.NE, columnName, value);
+		}
+
+		/**
+		 * @return <b>Condition</b> columnName &lt; value
+		 */
+		public static Condition lt(String columnName, Object value) {
+			return compare(Operator.LT, columnName, value);
+		}
+
+		/**
+		 * @return <b>Condition</b> columnName &lt;= value
+		 */
+		public static Condition le(String columnName, Object value) {
+			return compare(Operator.LE, columnName, value);
+		}
+
+		/**
+		 * @return <b>Condition</b> columnName &gt; value
+		 */
+		public static Condition gt(String columnName, Object value) {
+			return compare(Operator.GT, columnName, value);
+		}
+
+		/**
+		 * @return <b>Condition</b> columnName &gt;= value
+		 */
+		public static Condition ge(String columnName, Object value) {
+			return compare(Operator.GE, columnName, value);
+		}
+
+		/**
+		 * @return <b>Condition</b> columnName LIKE pattern
+		 */
+		public static Condition like(String columnName, String pattern) {
+			return compare(Operator.LIKE, columnName, pattern);
+		}
+
+		/**
+		 * @return <b>Condition</b> columnName BETWEEN from AND to
+		 */
+		public static Condition between(String columnName, Object from, Object to) {
+			if (columnName == null)
+				throw new IllegalArgumentException("A column name is required");
+			return new Condition(Operator.BETWEEN, columnName, new Object[] { from, to }, null);
+		}
+
+		/**
+		 * @return <b>Condition</b> columnName IN (values), which matches no
+		 *         rows if no values are given
+		 */
+		public static Condition in(String columnName, Object... values) {
+			if (columnName == null)
+				throw new IllegalArgumentException("A column name is required");
+			return new Condition(Operator.IN, columnName, values == null ? new Object[0] : values.clone(), null);
+		}
+
+		/**
+		 * @return <b>Condition</b> columnName IS NULL
+		 */
+		public static Condition isNull(String columnName) {
+			if (columnName == null)
+				throw new IllegalArgumentException("A column name is required");
+			return new Condition(Operator.IS_NULL, columnName, new Object[0], null);
+		}
+
+		/**
+		 * @return <b>Condition</b> columnName IS NOT NULL
+		 */
+		public static Condition isNotNull(String columnName) {
+			if (columnName == null)
+				throw new IllegalArgumentException("A column name is required");
+			return new Condition(Operator.IS_NOT_NULL, columnName, new Object[0], null);
+		}
+
+		/**
+		 * @return <b>Condition</b> a group which matches rows that match every
+		 *         one of the conditions
+		 */
+		public static Condition and(Condition... conditions) {
+			return group(Operator.AND, conditions);
+		}
+
+		/**
+		 * @return <b>Condition</b> a group which matches rows that match any
+		 *         one of the conditions
+		 */
+		public static Condition or(Condition... conditions) {
+			return group(Operator.OR, conditions);
+		}
+
+		/**
+		 * @return <b>Condition</b> NOT (condition)
+		 */
+		public static Condition not(Condition condition) {
+			return group(Operator.NOT, new Condition[] { condition });
+		}
+	}
+
+	private final ObjectModel<T, ?, ?> objectModel;
+	private final List<Condition> conditions = new ArrayList<Condition>();
+	private final StringBuilder orderBy = new StringBuilder();
+	private Integer limit;
+
+	private String whereClause;
+	private Object[] whereArgs;
+	private boolean compiled;
+
+	/**
+	 * Criteria should not be instantiated directly. Use ObjectModel.criteria()
+	 * instead.
+	 *
+	 * @param objectModel
+	 *            the ObjectModel to query
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected Criteria(ObjectModel<T, ?, ?> objectModel) {
+		this.objectModel = objectModel;
+	}
+
+	/**
+	 * Adds conditions which every returned row must match
+	 *
+	 * @param conditions
+	 *            the conditions to add
+	 * @return <b>Criteria&ltT&gt</b> this Criteria
+	 * @throws IllegalArgumentException
+	 *             if a condition refers to a column that the ObjectModel does
+	 *             not have
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public Criteria<T> where(Condition... conditions) {
+		for (Condition condition : conditions) {
+			if (condition == null)
+				throw new IllegalArgumentException("Conditions may not be null");
+			validate(condition);
+		}
+		for (Condition condition : conditions)
+			this.conditions.add(condition);
+		compiled = false;
+		return this;
+	}
+
+	/**
+	 * @see Condition#eq(String, Object)
+	 */
+	public Criteria<T> eq(String columnName, Object value) {
+		return where(Condition.eq(columnName, value));
+	}
+
+	/**
+	 * @see Condition#ne(String, Object)
+	 */
+	public Criteria<T> ne(String columnName, Object value) {
+		return where(Condition.ne(columnName, value));
+	}
+
+	/**
+	 * @see Condition#lt(String, Object)
+	 */
+	public Criteria<T> lt(String columnName, Object value) {
+		return where(Condition.lt(columnName, value));
+	}
+
+	/**
+	 * @see Condition#le(String, Object)
+	 */
+	public Criteria<T> le(String columnName, Object value) {
+		return where(Condition.le(columnName, value));
+	}
+
+	/**
+	 * @see Condition#gt(String, Object)
+	 */
+	public Criteria<T> gt(String columnName, Object value) {
+		return where(Condition.gt(columnName, value));
+	}
+
+	/**
+	 * @see Condition#ge(String, Object)
+	 */
+	public Criteria<T> ge(String columnName, Object value) {
+		return where(Condition.ge(columnName, value));
+	}
+
+	/**
+	 * @see Condition#like(String, String)
+	 */
+	public Criteria<T> like(String columnName, String pattern) {
+		return where(Condition.like(columnName, pattern));
+	}
+
+	/**
+	 * @see Condition#between(String, Object, Object)
+	 */
+	public Criteria<T> between(String columnName, Object from, Object to) {
+		return where(Condition.between(columnName, from, to));
+	}
+
+	/**
+	 * @see Condition#in(String, Object...)
+	 */
+	public Criteria<T> in(String columnName, Object... values) {
+		return where(Condition.in(columnName, values));
+	}
+
+	/**
+	 * @see Condition#isNull(String)
+	 */
+	public Criteria<T> isNull(String columnName) {
+		return where(Condition.isNull(columnName));
+	}
+
+	/**
+	 * @see Condition#isNotNull(String)
+	 */
+	public Criteria<T> isNotNull(String columnName) {
+		return where(Condition.isNotNull(columnName));
+	}
+
+	/**
+	 * @see Condition#or(Condition...)
+	 */
+	public Criteria<T> or(Condition... conditions) {
+		return where(Condition.or(conditions));
+	}
+
+	/**
+	 * Appends a column to the ORDER BY clause of the query
+	 *
+	 * @param columnName
+	 *            the column to order by
+	 * @param ascending
+	 *            true to order from the lowest value to the highest
+	 * @return <b>Criteria&ltT&gt</b> this Criteria
+	 * @throws IllegalArgumentException
+	 *             if the ObjectModel has no such column
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public Criteria<T> orderBy(String columnName, boolean ascending) {
+		ObjectModelColumn objectModelColumn = getObjectModelColumn(columnName);
+		if (orderBy.length() > 0)
+			orderBy.append(", ");
+		orderBy.append(objectModelColumn.getName()).append(ascending ? " ASC" : " DESC");
+		return this;
+	}
+
+	/**
+	 * @param limit
+	 *            the maximum number of rows to return or null to return every
+	 *            matching row
+	 * @return <b>Criteria&ltT&gt</b> this Criteria
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public Criteria<T> limit(Integer limit) {
+		if (limit != null && limit < 0)
+			throw new IllegalArgumentException("limit may not be negative");
+		this.limit = limit;
+		return this;
+	}
+
+	/**
+	 * @return <b>String</b> the parameterized WHERE clause of the query or
+	 *         null if the Criteria has no conditions
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public String getWhereClause() {
+		compile();
+		return whereClause;
+	}
+
+	/**
+	 * @return <b>Object[]</b> the arguments bound to the WHERE clause, in
+	 *         order
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public Object[] getWhereArgs() {
+		compile();
+		return whereArgs.clone();
+	}
+
+	/**
+	 * @return <b>String</b> the ORDER BY clause of the query or null if no
+	 *         order was given
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public String getOrderBy() {
+		return orderBy.length() == 0 ? null : orderBy.toString();
+	}
+
+	/**
+	 * @return <b>Integer</b> the maximum number of rows to return or null
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public Integer getLimit() {
+		return limit;
+	}
+
+	/**
+	 * @return <b>List&ltT&gt</b> every row matching the Criteria
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public List<T> getAll() throws SQLException {
+		compile();
+		return objectModel.getAll(whereClause, whereArgs, getOrderBy(), limit);
+	}
+
+	/**
+	 * @return <b>T</b> the first row matching the Criteria or null
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public T getFirst() throws SQLException {
+		compile();
+		return objectModel.getFirst(whereClause, whereArgs, getOrderBy());
+	}
+
+	/**
+	 * @return <b>CloseableIterator&ltT&gt</b> an iterator over the rows
+	 *         matching the Criteria, which must be closed
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public CloseableIterator<T> iterate() throws SQLException {
+		compile();
+		return objectModel.iterate(whereClause, whereArgs, getOrderBy(), limit, objectModel.getFetchSize());
+	}
+
+	/**
+	 * @return <b>long</b> the number of rows matching the Criteria, ignoring
+	 *         its order and limit
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public long count() throws SQLException {
+		compile();
+		return objectModel.count(whereClause, whereArgs);
+	}
+
+	/**
+	 * @return <b>boolean</b> true if any row matches the Criteria
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public boolean exists() throws SQLException {
+		compile();
+		return objectModel.exists(whereClause, whereArgs);
+	}
+
+	/**
+	 * Updates every row matching the Criteria with a single UPDATE statement,
+	 * ignoring its order and limit
+	 *
+	 * @param assignments
+	 *            the columns to assign and their values
+	 * @return <b>int</b> the number of rows updated
+	 * @throws SQLException
+	 * @see ObjectModel#updateWhere(String, Object[], Assignments)
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public int updateAll(Assignments assignments) throws SQLException {
+		compile();
+		return objectModel.updateWhere(whereClause, whereArgs, assignments);
+	}
+
+	/**
+	 * Deletes every row matching the Criteria, ignoring its order and limit
+	 *
+	 * @return <b>int</b> the number of rows deleted
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public int deleteAll() throws SQLException {
+		compile();
+		return objectModel.deleteAll(whereClause, whereArgs);
+	}
+
+	private void compile() {
+		if (compiled)
+			return;
+
+		if (conditions.isEmpty()) {
+			whereClause = null;
+			whereArgs = new Object[0];
+			compiled = true;
+			return;
+		}
+
+		StringBuilder shape = new StringBuilder();
+		List<Object> args = new ArrayList<Object>();
+		for (Condition condition : conditions)
+			appendShape(condition, shape, args);
+
+		Map<String, String> templates = objectModel.getCriteriaTemplates();
+		String key = shape.toString();
+		String template = templates.get(key);
+		if (template == null) {
+			StringBuilder sql = new StringBuilder();
+			for (int i = 0; i < conditions.size(); i++) {
+				if (i > 0)
+					sql.append(" AND ");
+				appendSql(conditions.get(i), sql, conditions.size() > 1);
+			}
+			template = sql.toString();
+			if (templates.size() >= MAX_TEMPLATES)
+				templates.clear();
+			templates.put(key, template);
+		}
+
+		whereClause = template;
+		whereArgs = args.toArray();
+		compiled = true;
+	}
+
+	/**
+	 * Writes a key for the condition which is equal for every condition that
+	 * renders the same SQL and collects its arguments
+	 */
+	private static void appendShape(Condition condition, StringBuilder shape, List<Object> args) {
+		shape.append(condition.operator.ordinal());
+		if (condition.conditions != null) {
+			shape.append('(');
+			for (Condition child : condition.conditions) {
+				appendShape(child, shape, args);
+				shape.append(',');
+			}
+			shape.append(')');
+			return;
+		}
+		shape.append(':').append(condition.columnName.toLowerCase(Locale.ENGLISH));
+		if (condition.operator == Operator.IN)
+			shape.append('#').append(condition.values.length);
+		shape.append(';');
+		for (Object value : condition.values)
+			args.add(ObjectModel.toArgument(value));
+	}
+
+	private void appendSql(Condition condition, StringBuilder sql, boolean parenthesize) {
+		switch (condition.operator) {
+		case AND:
+		case OR:
+			if (parenthesize && condition.conditions.length > 1)
+				sql.append('(');
+			for (int i = 0; i < condition.conditions.length; i++) {
+				if (i > 0)
+					sql.append(condition.operator.sql);
+				appendSql(condition.conditions[i], sql, condition.conditions.length > 1);
+			}
+			if (parenthesize && condition.conditions.length > 1)
+				sql.append(')');
+			break;
+		case NOT:
+			sql.append("NOT (");
+			appendSql(condition.conditions[0], sql, false);
+			sql.append(')');
+			break;
+		case IN:
+			if (condition.values.length == 0) {
+				sql.append("0");
+				break;
+			}
+			sql.append(getObjectModelColumn(condition.columnName).getName()).append(" IN (");
+			for (int i = 0; i < condition.values.length; i++)
+				sql.append(i == 0 ? "?" : ", ?");
+			sql.append(')');
+			break;
+		default:
+			sql.append(getObjectModelColumn(condition.columnName).getName()).append(condition.operator.sql);
+		}
+	}
+
+	private void validate(Condition condition) {
+		if (condition.conditions != null) {
+			for (Condition child : condition.conditions)
+				validate(child);
+		} else {
+			getObjectModelColumn(condition.columnName);
+		}
+	}
+
+	private ObjectModelColumn getObjectModelColumn(String columnName) {
+		ObjectModelColumn objectModelColumn = objectModel.getObjectModelColumn(columnName);
+		if (objectModelColumn == null)
+			throw new IllegalArgumentException(objectModel.getTableName() + " has no column named " + columnName);
+		return objectModelColumn;
+	}
+}
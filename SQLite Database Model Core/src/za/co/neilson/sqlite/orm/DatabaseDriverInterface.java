@@ -13,6 +13,7 @@ package za.co.neilson.sqlite.orm;
 
 import java.io.File;
 import java.sql.SQLException;
+import java.util.List;
 
 /**
  * <p>
@@ -98,6 +99,22 @@ public interface DatabaseDriverInterface<R,C> {
 	 */
 	public abstract boolean execute(String sql) throws SQLException;
 
+	/**
+	 * Executes a single INSERT, UPDATE or DELETE statement with bound
+	 * arguments
+	 * 
+	 * @param sql
+	 *            the sql statement to execute
+	 * @param bindArgs
+	 *            the values bound to the ?s in the statement, in order. Values
+	 *            must be null, a Number, a String or a byte[]
+	 * @return <b>int</b> the number of rows changed by the statement
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public abstract int executeUpdate(String sql, Object[] bindArgs) throws SQLException;
+
 	/**
 	 * Queries the given table using any non-null clauses, returning a single
 	 * ResultSet object containing the results of the query.
@@ -129,6 +146,25 @@ public interface DatabaseDriverInterface<R,C> {
 	 */
 	public abstract R query(String tableName, String[] columnNames, String whereClause, Object[] whereArgs, String groupBy, String having, String orderBy, Integer limit) throws SQLException;
 
+	/**
+	 * Queries the given table as query() does, with a hint of the number of
+	 * rows to read from the database at a time. JDBC drivers pass the hint to
+	 * Statement.setFetchSize(); Android reads the results in windows of
+	 * fetchSize rows.
+	 * 
+	 * @param fetchSize
+	 *            the number of rows to read at a time or 0 to use the driver's
+	 *            default
+	 * @return <b>ResultSet</b> the results of the query
+	 * @throws SQLException
+	 * @see #query(String, String[], String, Object[], String, String, String,
+	 *      Integer)
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public abstract R query(String tableName, String[] columnNames, String whereClause, Object[] whereArgs, String groupBy, String having, String orderBy, Integer limit, int fetchSize)
+			throws SQLException;
+
 	/**
 	 * @param sql
 	 *            the sql query to execute
@@ -188,6 +224,173 @@ public interface DatabaseDriverInterface<R,C> {
 	 */
 	public abstract long insert(String tableName, C columnValues) throws SQLException;
 
+	/**
+	 * Opens an additional, read-only connection to the database which can be
+	 * used by another thread while this connection is in use. The connection
+	 * must be closed with disconnect() when it is no longer needed.
+	 * 
+	 * @return <b>DatabaseDriverInterface</b> a new, connected, read-only
+	 *         DatabaseDriverInterface for the same database
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public abstract DatabaseDriverInterface<R, C> openReadOnlyConnection() throws SQLException;
+
+	/**
+	 * Moves a query result to its next row. A result returned by query() or
+	 * rawQuery() is positioned before its first row.
+	 * 
+	 * @param r
+	 *            the result of a query
+	 * @return <b>boolean</b> true if the result is positioned on a row, false
+	 *         if there are no more rows
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public abstract boolean next(R r) throws SQLException;
+
+	/**
+	 * Reads an integer column of the current row without boxing the value
+	 * 
+	 * @param r
+	 *            the result of a query, positioned on a row
+	 * @param columnIndex
+	 *            the index of the column, relative to getFirstColumnIndex()
+	 * @return <b>long</b> the value of the column, or 0 if it is NULL
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public abstract long getLong(R r, int columnIndex) throws SQLException;
+
+	/**
+	 * Reads a floating point column of the current row without boxing the
+	 * value
+	 * 
+	 * @param r
+	 *            the result of a query, positioned on a row
+	 * @param columnIndex
+	 *            the index of the column, relative to getFirstColumnIndex()
+	 * @return <b>double</b> the value of the column, or 0 if it is NULL
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public abstract double getDouble(R r, int columnIndex) throws SQLException;
+
+	/**
+	 * Reads a text column of the current row
+	 * 
+	 * @param r
+	 *            the result of a query, positioned on a row
+	 * @param columnIndex
+	 *            the index of the column, relative to getFirstColumnIndex()
+	 * @return <b>String</b> the value of the column, or null if it is NULL
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public abstract String getString(R r, int columnIndex) throws SQLException;
+
+	/**
+	 * Reads a blob column of the current row
+	 * 
+	 * @param r
+	 *            the result of a query, positioned on a row
+	 * @param columnIndex
+	 *            the index of the column, relative to getFirstColumnIndex()
+	 * @return <b>byte[]</b> the value of the column, or null if it is NULL
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public abstract byte[] getBlob(R r, int columnIndex) throws SQLException;
+
+	/**
+	 * @param r
+	 *            the result of a query, positioned on a row
+	 * @param columnIndex
+	 *            the index of the column, relative to getFirstColumnIndex()
+	 * @return <b>boolean</b> true if the column of the current row is NULL
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public abstract boolean isNull(R r, int columnIndex) throws SQLException;
+
+	/**
+	 * Releases a query result and any resources used to produce it
+	 * 
+	 * @param r
+	 *            the result of a query
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public abstract void close(R r);
+
+	/**
+	 * Begins a transaction. Transactions may be nested; changes are only
+	 * committed when the outermost transaction ends and every nested
+	 * transaction has been marked as successful. A transaction belongs to the
+	 * thread which began it and must be ended by that thread; statements
+	 * executed by other threads wait until it has ended instead of joining it.
+	 * 
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public abstract void beginTransaction() throws SQLException;
+
+	/**
+	 * Marks the current transaction as successful. No further database work
+	 * should be done between calling this method and calling
+	 * endTransaction().
+	 * 
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public abstract void setTransactionSuccessful() throws SQLException;
+
+	/**
+	 * Ends the current transaction. If this is the outermost transaction its
+	 * changes are committed if every transaction was marked as successful,
+	 * otherwise they are rolled back.
+	 * 
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public abstract void endTransaction() throws SQLException;
+
+	/**
+	 * @return <b>boolean</b> true if the calling thread has begun a
+	 *         transaction which has not yet ended
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public abstract boolean inTransaction();
+
+	/**
+	 * Inserts many rows through a single prepared INSERT statement. The caller
+	 * is responsible for wrapping the call in a transaction.
+	 * 
+	 * @param tableName
+	 *            the table to insert into
+	 * @param columnNames
+	 *            the columns bound by each row, in order
+	 * @param rows
+	 *            the values of each row, in the order of columnNames. Values
+	 *            must be null, a Number, a String or a byte[]
+	 * @return <b>int</b> the number of rows inserted
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public abstract int insertBatch(String tableName, String[] columnNames, List<Object[]> rows) throws SQLException;
+
 	/**
 	 * Returns true if a value need not be wrapped in quotes in a SQL query
 	 * 
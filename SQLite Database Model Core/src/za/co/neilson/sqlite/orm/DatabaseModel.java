@@ -13,8 +13,14 @@ package za.co.neilson.sqlite.orm;
 
 import java.lang.reflect.Type;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * The base class for a DatabaseModel
@@ -35,6 +41,9 @@ public abstract class DatabaseModel<R, C> {
 
 	private DatabaseDriverInterface<R, C> databaseDriverInterface;
 	protected HashMap<Type, ObjectModel<?, R, C>> objectModels;
+	private final ThreadLocal<DatabaseDriverInterface<R, C>> boundConnection = new ThreadLocal<DatabaseDriverInterface<R, C>>();
+	private AsyncExecutor<R, C> asyncExecutor;
+	private volatile QueryPlanAdvisor queryPlanAdvisor;
 	
 	/**
 	 * @throws SQLException
@@ -69,7 +78,13 @@ public abstract class DatabaseModel<R, C> {
 			DatabaseInfo databaseInfo = (DatabaseInfo) databaseInfoModel.getFirst(null);
 			if (databaseInfo.getVersion() < getDatabaseVersion()) {
 				onUpgrade(databaseInfo.getVersion());
+
+				// Bring the indexes of tables kept by onUpgrade() up to date
+				for (ObjectModel<?, R, C> objectModel : getObjectModels().values())
+					objectModel.reconcileIndexes();
 			}
+
+			preloadObjectModels();
 		}
 	}
 
@@ -108,7 +123,90 @@ public abstract class DatabaseModel<R, C> {
 	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
 	 */
 	public DatabaseDriverInterface<R, C> getDatabaseDriverInterface() {
-		return this.databaseDriverInterface;
+		DatabaseDriverInterface<R, C> connection = boundConnection.get();
+		return connection != null ? connection : this.databaseDriverInterface;
+	}
+
+	/**
+	 * Binds a connection to the calling thread. Until the binding is removed,
+	 * getDatabaseDriverInterface() returns the bound connection to every
+	 * ObjectModel used by the calling thread.
+	 * 
+	 * @param connection
+	 *            the connection to bind or null to remove the binding
+	 * @return <b>DatabaseDriverInterface</b> the connection previously bound
+	 *         to the calling thread or null if there was none
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected final DatabaseDriverInterface<R, C> bindConnection(DatabaseDriverInterface<R, C> connection) {
+		DatabaseDriverInterface<R, C> previous = boundConnection.get();
+		if (connection == null) {
+			boundConnection.remove();
+		} else {
+			boundConnection.set(connection);
+		}
+		return previous;
+	}
+
+	/**
+	 * @return <b>AsyncExecutor</b> the executors on which the AsyncObjectModels
+	 *         of this DatabaseModel run their reads and writes, created on
+	 *         first use
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public synchronized AsyncExecutor<R, C> getAsyncExecutor() {
+		if (asyncExecutor == null)
+			asyncExecutor = onCreateAsyncExecutor();
+		return asyncExecutor;
+	}
+
+	/**
+	 * Override this method to change the number of read connections used by
+	 * AsyncObjectModels.
+	 * 
+	 * @return <b>AsyncExecutor</b> a new AsyncExecutor for this DatabaseModel
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected AsyncExecutor<R, C> onCreateAsyncExecutor() {
+		return new AsyncExecutor<R, C>(this, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Starts reading the query plan of each distinct query made through this
+	 * DatabaseModel's ObjectModels
+	 * 
+	 * @return <b>QueryPlanAdvisor</b> the advisor collecting the query plans
+	 * @see QueryPlanAdvisor
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public synchronized QueryPlanAdvisor enableQueryPlanAdvisor() {
+		if (queryPlanAdvisor == null)
+			queryPlanAdvisor = new QueryPlanAdvisor();
+		return queryPlanAdvisor;
+	}
+
+	/**
+	 * Stops reading query plans and discards the QueryPlanAdvisor
+	 * 
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public synchronized void disableQueryPlanAdvisor() {
+		queryPlanAdvisor = null;
+	}
+
+	/**
+	 * @return <b>QueryPlanAdvisor</b> the advisor collecting query plans or
+	 *         null if it is not enabled
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public QueryPlanAdvisor getQueryPlanAdvisor() {
+		return queryPlanAdvisor;
 	}
 
 	/**
@@ -167,8 +265,8 @@ public abstract class DatabaseModel<R, C> {
 	public abstract int getDatabaseVersion();
 
 	/**
-	 * Opens a connection to the database via the DatabaseDriverInterface. If
-	 * the connection is already open calling this method will have no effect.
+	 * Opens a connection to the database via the DatabaseDriverInterface and
+	 * loads any preloaded tables into memory.
 	 * 
 	 * @throws SQLException
 	 * @since 0.1
@@ -176,6 +274,67 @@ public abstract class DatabaseModel<R, C> {
 	 */
 	public void connect() throws SQLException {
 		getDatabaseDriverInterface().connect();
+		preloadObjectModels();
+	}
+
+	/**
+	 * Loads the table of every preloaded ObjectModel into memory. If
+	 * getPreloadExecutor() returns an ExecutorService the tables are loaded in
+	 * parallel.
+	 * 
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public void preloadObjectModels() throws SQLException {
+		List<ObjectModel<?, R, C>> preloadedObjectModels = new ArrayList<ObjectModel<?, R, C>>();
+		for (ObjectModel<?, R, C> objectModel : getObjectModels().values()) {
+			if (objectModel.isPreloaded())
+				preloadedObjectModels.add(objectModel);
+		}
+
+		ExecutorService executorService = getPreloadExecutor();
+		if (executorService == null || preloadedObjectModels.size() < 2) {
+			for (ObjectModel<?, R, C> objectModel : preloadedObjectModels)
+				objectModel.preload();
+			return;
+		}
+
+		List<Future<Void>> futures = new ArrayList<Future<Void>>(preloadedObjectModels.size());
+		for (final ObjectModel<?, R, C> objectModel : preloadedObjectModels) {
+			futures.add(executorService.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws SQLException {
+					objectModel.preload();
+					return null;
+				}
+			}));
+		}
+		for (Future<Void> future : futures) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SQLException("Interrupted while preloading tables", e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof SQLException)
+					throw (SQLException) e.getCause();
+				throw new SQLException(e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Override this method to load preloaded tables in parallel.
+	 * 
+	 * @return <b>ExecutorService</b> the ExecutorService used to load
+	 *         preloaded tables or null to load them sequentially in the
+	 *         calling thread
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected ExecutorService getPreloadExecutor() {
+		return null;
 	}
 
 	/**
@@ -190,15 +349,44 @@ public abstract class DatabaseModel<R, C> {
 	}
 
 	/**
-	 * Close the DatabaseDriverInterface's connection to the database.
+	 * Close the DatabaseDriverInterface's connection to the database. The
+	 * AsyncExecutor, if any, is shut down once its queued writes have run, and
+	 * every ObjectModel's WriteBehindBuffer is flushed and closed so that its
+	 * background thread stops before the connection is closed.
 	 * 
 	 * @since 0.1
 	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
 	 */
 	public void disconnect() {
+		synchronized (this) {
+			if (asyncExecutor != null) {
+				asyncExecutor.shutdown();
+				asyncExecutor = null;
+			}
+		}
+		for (ObjectModel<?, ?, ?> objectModel : getObjectModels().values()) {
+			try {
+				objectModel.disableWriteBehind();
+			} catch (SQLException e) {
+				e.printStackTrace();
+			}
+		}
 		getDatabaseDriverInterface().disconnect();
 	}
 
+	/**
+	 * Opens a new Session, a unit of work with its own identity map, through
+	 * which objects can be read and written. Repeated lookups of the same
+	 * record by primary key within a Session are served from memory.
+	 * 
+	 * @return <b>Session</b> a new Session bound to this DatabaseModel
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public Session<R, C> openSession() {
+		return new Session<R, C>(this);
+	}
+
 	/**
 	 * Called if the specified database file does not exist during the
 	 * instantiation of the DatabaseModel. This method creates the database
@@ -0,0 +1,383 @@
+/* Copyright 2014 Sheldon Neilson www.neilson.co.za
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package za.co.neilson.sqlite.orm;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>
+ * A shared, size bounded second-level cache of the objects managed by an
+ * ObjectModel, keyed by primary key.
+ * </p>
+ * <p>
+ * The cache is split into lock-striped segments. Each segment stores its
+ * entries in a ConcurrentHashMap so that lookups never block, and tracks the
+ * order in which entries were used in an access ordered LinkedHashMap which is
+ * only updated by a lookup if the segment's lock is free. When a segment
+ * exceeds its share of the entry or byte bound, its least recently used
+ * entries are evicted.
+ * </p>
+ * <p>
+ * The ObjectModel puts copies of the objects it loads into the cache and
+ * returns copies of cached objects, so callers never share an instance with
+ * the cache or with each other. The ObjectModel invalidates the cache when
+ * records are written through it; changes made to the database by other means
+ * are not detected.
+ * </p>
+ *
+ * @param <T>
+ *            The object type held by the cache
+ * @version 0.2
+ * @since 0.2
+ * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+ */
+public class EntityCache<T> {
+
+	/**
+	 * Estimates the size of a cached object in bytes
+	 *
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public static abstract class Weigher<T> {
+		public abstract long weigh(T t);
+	}
+
+	private static final int MAXIMUM_SEGMENTS = 16;
+
+	private final Segment<T>[] segments;
+	private final long maxEntries;
+	private final long maxBytes;
+	private final Weigher<T> weigher;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong generation = new AtomicLong();
+
+	/**
+	 * @param maxEntries
+	 *            the maximum number of objects held by the cache
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public EntityCache(long maxEntries) {
+		this(maxEntries, 0, null);
+	}
+
+	/**
+	 * @param maxEntries
+	 *            the maximum number of objects held by the cache
+	 * @param maxBytes
+	 *            the maximum estimated size of the objects held by the cache.
+	 *            0 disables the size bound
+	 * @param weigher
+	 *            estimates the size of each object in bytes. Required if
+	 *            maxBytes is greater than 0
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public EntityCache(long maxEntries, long maxBytes, Weigher<T> weigher) {
+		if (maxEntries < 1)
+			throw new IllegalArgumentException("maxEntries must be greater than 0");
+		if (maxBytes > 0 && weigher == null)
+			throw new IllegalArgumentException("A Weigher is required to bound the cache by size");
+
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+		this.weigher = weigher;
+
+		int segmentCount = 1;
+		while (segmentCount < MAXIMUM_SEGMENTS && segmentCount * 2 <= maxEntries)
+			segmentCount *= 2;
+
+		this.segments = newSegments(segmentCount);
+		for (int i = 0; i < segmentCount; i++) {
+			long segmentMaxEntries = maxEntries / segmentCount + (i < maxEntries % segmentCount ? 1 : 0);
+			long segmentMaxBytes = maxBytes > 0 ? Math.max(1, maxBytes / segmentCount) : 0;
+			segments[i] = new Segment<T>(segmentMaxEntries, segmentMaxBytes);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> Segment<T>[] newSegments(int segmentCount) {
+		return (Segment<T>[]) new Segment<?>[segmentCount];
+	}
+
+	/**
+	 * @param key
+	 *            the primary key of the object to find
+	 * @return <b>T</b> the cached object or null if it is not cached
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public T get(List<String> key) {
+		Segment<T> segment = segmentFor(key);
+		Entry<T> entry = segment.entries.get(key);
+		if (entry == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		// Record the access only if it does not require waiting for a writer
+		if (segment.lock.tryLock()) {
+			try {
+				segment.order.get(key);
+			} finally {
+				segment.lock.unlock();
+			}
+		}
+		hits.incrementAndGet();
+		return entry.value;
+	}
+
+	/**
+	 * @return <b>long</b> a stamp to pass to put(). Objects loaded from the
+	 *         database after the stamp was taken are only cached if the cache
+	 *         has not been invalidated in the meantime.
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public long getStamp() {
+		return generation.get();
+	}
+
+	/**
+	 * Adds an object to the cache unless the cache has been invalidated since
+	 * the stamp was taken, evicting the least recently used objects if the
+	 * cache's bounds are exceeded.
+	 *
+	 * @param key
+	 *            the primary key of the object
+	 * @param t
+	 *            the object to cache
+	 * @param stamp
+	 *            the value returned by getStamp() before the object was loaded
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public void put(List<String> key, T t, long stamp) {
+		if (key == null || t == null)
+			return;
+
+		long weight = weigher == null ? 0 : weigher.weigh(t);
+		Segment<T> segment = segmentFor(key);
+		segment.lock.lock();
+		try {
+			if (generation.get() != stamp)
+				return;
+
+			Entry<T> entry = new Entry<T>(t, weight);
+			Entry<T> previous = segment.entries.put(key, entry);
+			segment.order.put(key, entry);
+			segment.bytes += weight - (previous == null ? 0 : previous.weight);
+
+			Iterator<Map.Entry<List<String>, Entry<T>>> iterator = segment.order.entrySet().iterator();
+			while (segment.isOverBound() && iterator.hasNext()) {
+				Map.Entry<List<String>, Entry<T>> eldest = iterator.next();
+				if (eldest.getValue() == entry && segment.order.size() == 1)
+					break;
+				iterator.remove();
+				segment.entries.remove(eldest.getKey());
+				segment.bytes -= eldest.getValue().weight;
+				evictions.incrementAndGet();
+			}
+		} finally {
+			segment.lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes the object with the given primary key from the cache
+	 *
+	 * @param key
+	 *            the primary key of the object to remove
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public void invalidate(List<String> key) {
+		generation.incrementAndGet();
+		if (key == null)
+			return;
+
+		Segment<T> segment = segmentFor(key);
+		segment.lock.lock();
+		try {
+			Entry<T> entry = segment.entries.remove(key);
+			segment.order.remove(key);
+			if (entry != null)
+				segment.bytes -= entry.weight;
+		} finally {
+			segment.lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes every object from the cache
+	 *
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public void invalidateAll() {
+		generation.incrementAndGet();
+		for (Segment<T> segment : segments) {
+			segment.lock.lock();
+			try {
+				segment.entries.clear();
+				segment.order.clear();
+				segment.bytes = 0;
+			} finally {
+				segment.lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * @return <b>long</b> the number of objects held by the cache
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public long size() {
+		long size = 0;
+		for (Segment<T> segment : segments)
+			size += segment.entries.size();
+		return size;
+	}
+
+	/**
+	 * @return <b>long</b> the estimated size in bytes of the objects held by
+	 *         the cache, or 0 if the cache is not bounded by size
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public long getEstimatedBytes() {
+		long bytes = 0;
+		for (Segment<T> segment : segments) {
+			segment.lock.lock();
+			try {
+				bytes += segment.bytes;
+			} finally {
+				segment.lock.unlock();
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * @return <b>long</b> the maximum number of objects held by the cache
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public long getMaxEntries() {
+		return maxEntries;
+	}
+
+	/**
+	 * @return <b>long</b> the maximum estimated size of the objects held by
+	 *         the cache, or 0 if the cache is not bounded by size
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * @return <b>long</b> the number of lookups that found a cached object
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * @return <b>long</b> the number of lookups that did not find a cached
+	 *         object
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/**
+	 * @return <b>long</b> the number of objects evicted to keep the cache
+	 *         within its bounds
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public long getEvictionCount() {
+		return evictions.get();
+	}
+
+	/**
+	 * Resets the hit, miss and eviction counters
+	 *
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public void resetStatistics() {
+		hits.set(0);
+		misses.set(0);
+		evictions.set(0);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "EntityCache [size=" + size() + ", maxEntries=" + maxEntries + ", maxBytes=" + maxBytes + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + "]";
+	}
+
+	private Segment<T> segmentFor(List<String> key) {
+		int hash = key.hashCode();
+		hash ^= (hash >>> 16);
+		return segments[hash & (segments.length - 1)];
+	}
+
+	private static class Entry<T> {
+		final T value;
+		final long weight;
+
+		Entry(T value, long weight) {
+			this.value = value;
+			this.weight = weight;
+		}
+	}
+
+	private static class Segment<T> {
+		final ReentrantLock lock = new ReentrantLock();
+		final ConcurrentHashMap<List<String>, Entry<T>> entries = new ConcurrentHashMap<List<String>, Entry<T>>();
+		final LinkedHashMap<List<String>, Entry<T>> order = new LinkedHashMap<List<String>, Entry<T>>(16, 0.75f, true);
+		final long maxEntries;
+		final long maxBytes;
+		long bytes;
+
+		Segment(long maxEntries, long maxBytes) {
+			this.maxEntries = Math.max(1, maxEntries);
+			this.maxBytes = maxBytes;
+		}
+
+		boolean isOverBound() {
+			return order.size() > maxEntries || (maxBytes > 0 && bytes > maxBytes);
+		}
+	}
+}
@@ -0,0 +1,405 @@
+/* Copyright 2014 Sheldon Neilson www.neilson.co.za
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package za.co.neilson.sqlite.orm;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.sql.SQLException;
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * <p>
+ * Streams the records of an ObjectModel's table to an OutputStream as CSV or
+ * newline delimited JSON, obtained from ObjectModel.exporter().
+ * </p>
+ * <p>
+ * Values are read straight from the ResultSet or Cursor and encoded into a
+ * single reusable ByteBuffer, which is written through a WritableByteChannel
+ * whenever it fills. No objects of the exported type are created and memory
+ * use does not grow with the number of records.
+ * </p>
+ * <p>
+ * CSV output has a header row of column names, quotes fields as described by
+ * RFC 4180 and writes NULL as an empty field. NDJSON output writes one object
+ * per record with a member per column. In both formats booleans are written
+ * as true or false, Date and Calendar columns as milliseconds since the epoch
+ * and blobs as hexadecimal.
+ * </p>
+ * 
+ * @version 0.2
+ * @since 0.2
+ * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+ */
+public class Exporter<R, C> {
+
+	/**
+	 * The output formats supported by an Exporter
+	 * 
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public static enum Format {
+		CSV, NDJSON
+	}
+
+	private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+	private static final byte[] HEX = "0123456789abcdef".getBytes();
+	private static final byte[] TRUE = "true".getBytes();
+	private static final byte[] FALSE = "false".getBytes();
+	private static final byte[] NULL = "null".getBytes();
+
+	static final byte CODEC_BOOLEAN = 1;
+	static final byte CODEC_INTEGER = 2;
+	static final byte CODEC_REAL = 3;
+	static final byte CODEC_TEXT = 4;
+	static final byte CODEC_BLOB = 5;
+
+	private final ObjectModel<?, R, C> objectModel;
+	private final Format format;
+	private final String[] columnNames;
+	private final byte[] codecs;
+	private final byte[][] names;
+	private final ByteBuffer buffer;
+	private WritableByteChannel channel;
+
+	/**
+	 * Exporters should not be instantiated directly. Use
+	 * ObjectModel.exporter() instead.
+	 * 
+	 * @param objectModel
+	 *            the ObjectModel whose table is exported
+	 * @param format
+	 *            the output format
+	 * @param bufferSize
+	 *            the size in bytes of the output buffer
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected Exporter(ObjectModel<?, R, C> objectModel, Format format, int bufferSize) {
+		if (bufferSize < 16)
+			throw new IllegalArgumentException("bufferSize must be at least 16 bytes");
+
+		this.objectModel = objectModel;
+		this.format = format;
+		this.buffer = ByteBuffer.allocate(bufferSize);
+
+		ObjectModelColumn[] objectModelColumns = objectModel.getObjectModelColumns();
+		this.columnNames = new String[objectModelColumns.length];
+		this.codecs = new byte[objectModelColumns.length];
+		this.names = new byte[objectModelColumns.length][];
+		for (int i = 0; i < objectModelColumns.length; i++) {
+			columnNames[i] = objectModelColumns[i].getName();
+			codecs[i] = getCodec(objectModelColumns[i].getType());
+		}
+	}
+
+	/**
+	 * @param objectModel
+	 *            the ObjectModel whose table is exported
+	 * @param format
+	 *            the output format
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected Exporter(ObjectModel<?, R, C> objectModel, Format format) {
+		this(objectModel, format, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * @return <b>Format</b> the output format
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public Format getFormat() {
+		return format;
+	}
+
+	/**
+	 * Writes the records returned by a query to an OutputStream. The stream
+	 * is flushed but not closed.
+	 * 
+	 * @param whereClause
+	 *            The optional WHERE clause to apply to the query. Passing null
+	 *            will select all rows
+	 * @param whereArgs
+	 *            Question marks in the whereClause String will be replaced with
+	 *            these whereArgs in order. (where id = ?)
+	 * @param orderBy
+	 *            The optional ORDER BY clause to apply to the query
+	 * @param outputStream
+	 *            the stream to write to
+	 * @return <b>long</b> the number of records written
+	 * @throws SQLException
+	 * @throws IOException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public synchronized long export(String whereClause, Object[] whereArgs, String orderBy, OutputStream outputStream) throws SQLException, IOException {
+		DatabaseDriverInterface<R, C> databaseDriverInterface = objectModel.getDatabaseModel().getDatabaseDriverInterface();
+		int firstColumnIndex = databaseDriverInterface.getFirstColumnIndex();
+		long count = 0;
+
+		channel = Channels.newChannel(outputStream);
+		buffer.clear();
+		try {
+			if (format == Format.CSV)
+				writeHeader();
+
+			R r = objectModel.query(columnNames, whereClause, whereArgs, null, null, orderBy, null, objectModel.getFetchSize());
+			try {
+				while (databaseDriverInterface.next(r)) {
+					if (format == Format.CSV) {
+						writeCsvRecord(databaseDriverInterface, r, firstColumnIndex);
+					} else {
+						writeJsonRecord(databaseDriverInterface, r, firstColumnIndex);
+					}
+					count++;
+				}
+			} finally {
+				databaseDriverInterface.close(r);
+			}
+			flush();
+			outputStream.flush();
+		} finally {
+			channel = null;
+		}
+		return count;
+	}
+
+	private void writeHeader() throws IOException {
+		for (int i = 0; i < columnNames.length; i++) {
+			if (i > 0)
+				put((byte) ',');
+			putCsvText(columnNames[i]);
+		}
+		put((byte) '\r');
+		put((byte) '\n');
+	}
+
+	private void writeCsvRecord(DatabaseDriverInterface<R, C> databaseDriverInterface, R r, int firstColumnIndex) throws SQLException, IOException {
+		for (int i = 0; i < codecs.length; i++) {
+			if (i > 0)
+				put((byte) ',');
+			int index = firstColumnIndex + i;
+			if (databaseDriverInterface.isNull(r, index))
+				continue;
+			if (codecs[i] == CODEC_TEXT) {
+				putCsvText(databaseDriverInterface.getString(r, index));
+			} else {
+				putValue(databaseDriverInterface, r, index, codecs[i]);
+			}
+		}
+		put((byte) '\r');
+		put((byte) '\n');
+	}
+
+	private void writeJsonRecord(DatabaseDriverInterface<R, C> databaseDriverInterface, R r, int firstColumnIndex) throws SQLException, IOException {
+		put((byte) '{');
+		for (int i = 0; i < codecs.length; i++) {
+			if (i > 0)
+				put((byte) ',');
+			put(getJsonName(i));
+			int index = firstColumnIndex + i;
+			if (databaseDriverInterface.isNull(r, index)) {
+				put(NULL);
+			} else if (codecs[i] == CODEC_TEXT || codecs[i] == CODEC_BLOB) {
+				put((byte) '"');
+				if (codecs[i] == CODEC_TEXT) {
+					putJsonText(databaseDriverInterface.getString(r, index));
+				} else {
+					putHex(databaseDriverInterface.getBlob(r, index));
+				}
+				put((byte) '"');
+			} else {
+				putValue(databaseDriverInterface, r, index, codecs[i]);
+			}
+		}
+		put((byte) '}');
+		put((byte) '\n');
+	}
+
+	private void putValue(DatabaseDriverInterface<R, C> databaseDriverInterface, R r, int index, byte codec) throws SQLException, IOException {
+		switch (codec) {
+		case CODEC_BOOLEAN:
+			put(databaseDriverInterface.getLong(r, index) != 0 ? TRUE : FALSE);
+			break;
+		case CODEC_INTEGER:
+			putLong(databaseDriverInterface.getLong(r, index));
+			break;
+		case CODEC_REAL:
+			double value = databaseDriverInterface.getDouble(r, index);
+			if (Double.isNaN(value) || Double.isInfinite(value)) {
+				if (format == Format.NDJSON)
+					put(NULL);
+			} else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+				putLong((long) value);
+			} else {
+				putAscii(Double.toString(value));
+			}
+			break;
+		case CODEC_BLOB:
+			putHex(databaseDriverInterface.getBlob(r, index));
+			break;
+		default:
+			putCsvText(databaseDriverInterface.getString(r, index));
+		}
+	}
+
+	private byte[] getJsonName(int column) throws IOException {
+		if (names[column] == null) {
+			StringBuilder builder = new StringBuilder("\"");
+			for (int i = 0; i < columnNames[column].length(); i++) {
+				char c = columnNames[column].charAt(i);
+				if (c == '"' || c == '\\')
+					builder.append('\\');
+				builder.append(c);
+			}
+			names[column] = builder.append("\":").toString().getBytes("UTF-8");
+		}
+		return names[column];
+	}
+
+	private void putCsvText(String value) throws IOException {
+		boolean quote = false;
+		for (int i = 0; i < value.length() && !quote; i++) {
+			char c = value.charAt(i);
+			quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+		}
+		if (!quote) {
+			putUtf8(value, false);
+			return;
+		}
+		put((byte) '"');
+		putUtf8(value, false);
+		put((byte) '"');
+	}
+
+	private void putJsonText(String value) throws IOException {
+		putUtf8(value, true);
+	}
+
+	/**
+	 * Encodes a String as UTF-8, escaping it for a JSON string or doubling
+	 * its quotes for a quoted CSV field
+	 */
+	private void putUtf8(String value, boolean json) throws IOException {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c < 0x80) {
+				if (json && (c == '"' || c == '\\')) {
+					put((byte) '\\');
+				} else if (json && c < 0x20) {
+					put((byte) '\\');
+					put((byte) 'u');
+					put((byte) '0');
+					put((byte) '0');
+					put(HEX[c >> 4]);
+					put(HEX[c & 0xF]);
+					continue;
+				} else if (!json && c == '"') {
+					put((byte) '"');
+				}
+				put((byte) c);
+			} else if (c < 0x800) {
+				put((byte) (0xC0 | (c >> 6)));
+				put((byte) (0x80 | (c & 0x3F)));
+			} else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, value.charAt(++i));
+				put((byte) (0xF0 | (codePoint >> 18)));
+				put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+				put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+				put((byte) (0x80 | (codePoint & 0x3F)));
+			} else if (Character.isSurrogate(c)) {
+				put((byte) '?');
+			} else {
+				put((byte) (0xE0 | (c >> 12)));
+				put((byte) (0x80 | ((c >> 6) & 0x3F)));
+				put((byte) (0x80 | (c & 0x3F)));
+			}
+		}
+	}
+
+	private void putHex(byte[] value) throws IOException {
+		for (byte b : value) {
+			put(HEX[(b >> 4) & 0xF]);
+			put(HEX[b & 0xF]);
+		}
+	}
+
+	private void putLong(long value) throws IOException {
+		if (value == Long.MIN_VALUE) {
+			putAscii(Long.toString(value));
+			return;
+		}
+		if (buffer.remaining() < 20)
+			flush();
+		if (value < 0) {
+			buffer.put((byte) '-');
+			value = -value;
+		}
+		int start = buffer.position();
+		do {
+			buffer.put((byte) ('0' + (value % 10)));
+			value /= 10;
+		} while (value != 0);
+
+		// Digits were written least significant first
+		byte[] array = buffer.array();
+		int offset = buffer.arrayOffset();
+		for (int i = offset + start, j = offset + buffer.position() - 1; i < j; i++, j--) {
+			byte b = array[i];
+			array[i] = array[j];
+			array[j] = b;
+		}
+	}
+
+	private void putAscii(String value) throws IOException {
+		for (int i = 0; i < value.length(); i++)
+			put((byte) value.charAt(i));
+	}
+
+	private void put(byte[] bytes) throws IOException {
+		if (buffer.remaining() < bytes.length)
+			flush();
+		buffer.put(bytes);
+	}
+
+	private void put(byte b) throws IOException {
+		if (!buffer.hasRemaining())
+			flush();
+		buffer.put(b);
+	}
+
+	private void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	static byte getCodec(Class<?> type) {
+		if (type == boolean.class || type == Boolean.class)
+			return CODEC_BOOLEAN;
+		if (type == byte.class || type == Byte.class || type == short.class || type == Short.class || type == int.class || type == Integer.class || type == long.class
+				|| type == Long.class || type == Date.class || type == Calendar.class)
+			return CODEC_INTEGER;
+		if (type == float.class || type == Float.class || type == double.class || type == Double.class)
+			return CODEC_REAL;
+		if (type == byte[].class)
+			return CODEC_BLOB;
+		return CODEC_TEXT;
+	}
+}
@@ -0,0 +1,834 @@
+/* Copyright 2014 Sheldon Neilson www.neilson.co.za
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package za.co.neilson.sqlite.orm;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import za.co.neilson.sqlite.orm.ObjectModel.QueryType;
+
+/**
+ * <p>
+ * Loads CSV or newline delimited JSON files into an ObjectModel's table,
+ * obtained from ObjectModel.importer().
+ * </p>
+ * <p>
+ * An import runs as a pipeline of three stages connected by bounded queues, so
+ * a slow stage holds back the stages before it instead of buffering the file
+ * in memory:
+ * </p>
+ * <ol>
+ * <li>A reader maps the file into memory a window at a time and cuts it into
+ * chunks that end on a record boundary.</li>
+ * <li>Parser threads split the chunks into records and convert each field to
+ * the type of its column.</li>
+ * <li>The calling thread writes the converted rows, in file order, through a
+ * single prepared INSERT with <b>batchSize</b> rows per transaction.</li>
+ * </ol>
+ * <p>
+ * CSV files must start with a header row naming the columns they contain. A
+ * NDJSON record holds one object per line whose members are matched to
+ * columns by name; members that do not match a column are ignored. Records
+ * that cannot be parsed or converted are counted and, if a reject file is
+ * set, copied to it unchanged so that they can be corrected and imported
+ * again.
+ * </p>
+ * <p>
+ * Rows are inserted without loading related objects, so relationships are
+ * not followed. Progress can be polled from another thread while an import
+ * runs.
+ * </p>
+ *
+ * @version 0.2
+ * @since 0.2
+ * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+ */
+public class Importer<R, C> {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+	private final ObjectModel<?, R, C> objectModel;
+	private final Exporter.Format format;
+	private int parserThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+	private int batchSize = 10000;
+	private int chunkSize = 1024 * 1024;
+	private int queueCapacity = 4;
+	private File rejectFile;
+
+	private final AtomicLong bytesRead = new AtomicLong();
+	private final AtomicLong rowsImported = new AtomicLong();
+	private final AtomicLong rowsRejected = new AtomicLong();
+	private volatile long fileSize;
+	private volatile String lastRejectReason;
+	private volatile long startTime;
+	private volatile long endTime;
+
+	/**
+	 * Importers should not be instantiated directly. Use
+	 * ObjectModel.importer() instead.
+	 *
+	 * @param objectModel
+	 *            the ObjectModel whose table is loaded
+	 * @param format
+	 *            the format of the files imported
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected Importer(ObjectModel<?, R, C> objectModel, Exporter.Format format) {
+		this.objectModel = objectModel;
+		this.format = format;
+	}
+
+	/**
+	 * @param parserThreads
+	 *            the number of threads parsing records. Defaults to one less
+	 *            than the number of processors
+	 * @return <b>Importer</b> this Importer
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public Importer<R, C> setParserThreads(int parserThreads) {
+		if (parserThreads < 1)
+			throw new IllegalArgumentException("parserThreads must be greater than 0");
+		this.parserThreads = parserThreads;
+		return this;
+	}
+
+	/**
+	 * @param batchSize
+	 *            the number of rows inserted per transaction. Defaults to 10000
+	 * @return <b>Importer</b> this Importer
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public Importer<R, C> setBatchSize(int batchSize) {
+		if (batchSize < 1)
+			throw new IllegalArgumentException("batchSize must be greater than 0");
+		this.batchSize = batchSize;
+		return this;
+	}
+
+	/**
+	 * @param chunkSize
+	 *            the approximate number of bytes handed to a parser at a time.
+	 *            Defaults to 1MB
+	 * @return <b>Importer</b> this Importer
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public Importer<R, C> setChunkSize(int chunkSize) {
+		if (chunkSize < 1)
+			throw new IllegalArgumentException("chunkSize must be greater than 0");
+		this.chunkSize = chunkSize;
+		return this;
+	}
+
+	/**
+	 * @param queueCapacity
+	 *            the number of chunks that may wait between two stages.
+	 *            Defaults to 4
+	 * @return <b>Importer</b> this Importer
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public Importer<R, C> setQueueCapacity(int queueCapacity) {
+		if (queueCapacity < 1)
+			throw new IllegalArgumentException("queueCapacity must be greater than 0");
+		this.queueCapacity = queueCapacity;
+		return this;
+	}
+
+	/**
+	 * @param rejectFile
+	 *            the file to which records that cannot be imported are
+	 *            copied, or null to discard them. The file is overwritten by
+	 *            each import.
+	 * @return <b>Importer</b> this Importer
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public Importer<R, C> setRejectFile(File rejectFile) {
+		this.rejectFile = rejectFile;
+		return this;
+	}
+
+	/**
+	 * @return <b>long</b> the number of bytes of the current or last file read
+	 *         so far
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public long getBytesRead() {
+		return bytesRead.get();
+	}
+
+	/**
+	 * @return <b>long</b> the size in bytes of the current or last file
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public long getFileSize() {
+		return fileSize;
+	}
+
+	/**
+	 * @return <b>long</b> the number of rows committed so far
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public long getRowsImported() {
+		return rowsImported.get();
+	}
+
+	/**
+	 * @return <b>long</b> the number of records rejected so far
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public long getRowsRejected() {
+		return rowsRejected.get();
+	}
+
+	/**
+	 * @return <b>String</b> the line number of the most recently rejected
+	 *         record and the reason it was rejected, or null if no record has
+	 *         been rejected
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public String getLastRejectReason() {
+		return lastRejectReason;
+	}
+
+	/**
+	 * @return <b>double</b> the number of rows committed per second since the
+	 *         current or last import started
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public double getRowsPerSecond() {
+		long start = startTime;
+		if (start == 0)
+			return 0;
+		long end = endTime != 0 ? endTime : System.nanoTime();
+		return end == start ? 0 : rowsImported.get() * 1e9 / (end - start);
+	}
+
+	/**
+	 * Imports a file
+	 *
+	 * @param file
+	 *            the file to import
+	 * @return <b>long</b> the number of rows imported
+	 * @throws IOException
+	 *             if the file cannot be read, the import is interrupted or the
+	 *             CSV header names a column that does not exist
+	 * @throws SQLException
+	 *             if a batch cannot be inserted. Batches committed before the
+	 *             failure remain in the table.
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public synchronized long importFile(File file) throws IOException, SQLException {
+		bytesRead.set(0);
+		rowsImported.set(0);
+		rowsRejected.set(0);
+		lastRejectReason = null;
+		endTime = 0;
+		startTime = System.nanoTime();
+
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		ExecutorService executorService = null;
+		OutputStream rejects = null;
+		try {
+			final FileChannel channel = randomAccessFile.getChannel();
+			fileSize = channel.size();
+
+			long dataStart = skipByteOrderMark(channel);
+			byte[] header = null;
+			String[] columnNames;
+			if (format == Exporter.Format.CSV) {
+				header = readHeader(channel, dataStart);
+				dataStart += header.length;
+				columnNames = getCsvColumnNames(header);
+			} else {
+				ObjectModelColumn[] objectModelColumns = objectModel.getObjectModelColumns();
+				columnNames = new String[objectModelColumns.length];
+				for (int i = 0; i < objectModelColumns.length; i++)
+					columnNames[i] = objectModelColumns[i].getName();
+			}
+			bytesRead.set(dataStart);
+
+			if (rejectFile != null) {
+				rejects = new BufferedOutputStream(new FileOutputStream(rejectFile));
+				if (header != null)
+					rejects.write(header);
+			}
+
+			final byte[] codecs = getCodecs(columnNames);
+			final BlockingQueue<Chunk> chunks = new ArrayBlockingQueue<Chunk>(queueCapacity);
+			final BlockingQueue<Chunk> parsedChunks = new ArrayBlockingQueue<Chunk>(queueCapacity);
+			final long start = dataStart;
+			final long firstLine = header == null ? 1 : 2;
+
+			executorService = Executors.newFixedThreadPool(parserThreads + 1);
+			executorService.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					try {
+						read(channel, start, firstLine, chunks);
+					} catch (Throwable e) {
+						parsedChunks.put(new Chunk(e));
+					} finally {
+						for (int i = 0; i < parserThreads; i++)
+							chunks.put(Chunk.END);
+					}
+					return null;
+				}
+			});
+			final HashMap<String, Integer> columnIndexes = new HashMap<String, Integer>();
+			for (int i = 0; i < columnNames.length; i++)
+				columnIndexes.put(columnNames[i].toLowerCase(Locale.ENGLISH), i);
+			for (int i = 0; i < parserThreads; i++) {
+				executorService.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						try {
+							parse(codecs, columnIndexes, chunks, parsedChunks);
+						} catch (Throwable e) {
+							parsedChunks.put(new Chunk(e));
+						}
+						return null;
+					}
+				});
+			}
+
+			write(columnNames, parsedChunks, rejects);
+			return rowsImported.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			InterruptedIOException interruptedIOException = new InterruptedIOException("Interrupted while importing " + file);
+			interruptedIOException.initCause(e);
+			throw interruptedIOException;
+		} finally {
+			endTime = System.nanoTime();
+			if (executorService != null)
+				executorService.shutdownNow();
+			if (rejects != null)
+				rejects.close();
+			randomAccessFile.close();
+			if (rowsImported.get() > 0)
+				objectModel.onTableChanged(QueryType.INSERT, null, null);
+		}
+	}
+
+	/**
+	 * Cuts the file into chunks that end on a record boundary, mapping it into
+	 * memory a window at a time
+	 */
+	private void read(FileChannel channel, long position, long line, BlockingQueue<Chunk> chunks) throws IOException, InterruptedException {
+		long size = channel.size();
+		long sequence = 0;
+		byte[] carry = new byte[0];
+		int[] lines = new int[1];
+		while (position < size) {
+			long windowSize = Math.min(WINDOW_SIZE, size - position);
+			MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+			while (window.hasRemaining()) {
+				int length = Math.min(chunkSize, window.remaining());
+				byte[] bytes = Arrays.copyOf(carry, carry.length + length);
+				window.get(bytes, carry.length, length);
+				bytesRead.addAndGet(length);
+
+				int end = findLastRecordEnd(bytes, lines);
+				if (end == 0) {
+					// A single record spans the whole chunk
+					carry = bytes;
+					continue;
+				}
+				chunks.put(new Chunk(sequence++, line, bytes, end));
+				line += lines[0];
+				carry = Arrays.copyOfRange(bytes, end, bytes.length);
+			}
+			position += windowSize;
+		}
+		if (carry.length > 0)
+			chunks.put(new Chunk(sequence++, line, carry, carry.length));
+	}
+
+	/**
+	 * @return the offset following the last line break that is not inside a
+	 *         quoted CSV field, or 0 if there is none. lines[0] is set to the
+	 *         number of line breaks before the offset.
+	 */
+	private int findLastRecordEnd(byte[] bytes, int[] lines) {
+		boolean quoted = false;
+		int end = 0;
+		int count = 0;
+		int lastCount = 0;
+		for (int i = 0; i < bytes.length; i++) {
+			byte b = bytes[i];
+			if (b == '"' && format == Exporter.Format.CSV) {
+				quoted = !quoted;
+			} else if (b == '\n') {
+				count++;
+				if (!quoted) {
+					end = i + 1;
+					lastCount = count;
+				}
+			}
+		}
+		lines[0] = lastCount;
+		return end;
+	}
+
+	private void parse(byte[] codecs, HashMap<String, Integer> columnIndexes, BlockingQueue<Chunk> chunks, BlockingQueue<Chunk> parsedChunks) throws InterruptedException {
+		while (true) {
+			Chunk chunk = chunks.take();
+			if (chunk == Chunk.END) {
+				parsedChunks.put(Chunk.END);
+				return;
+			}
+
+			chunk.rows = new ArrayList<Object[]>();
+			chunk.rejects = new ArrayList<byte[]>();
+			boolean quoted = false;
+			int start = 0;
+			long line = chunk.firstLine;
+			long recordLine = line;
+			for (int i = 0; i <= chunk.length; i++) {
+				byte b = i < chunk.length ? chunk.bytes[i] : (byte) '\n';
+				if (b == '"' && format == Exporter.Format.CSV) {
+					quoted = !quoted;
+					continue;
+				}
+				if (b != '\n')
+					continue;
+				line++;
+				if (quoted && i < chunk.length)
+					continue;
+
+				int end = i > start && chunk.bytes[i - 1] == '\r' ? i - 1 : i;
+				if (end > start) {
+					String record = new String(chunk.bytes, start, end - start, UTF8);
+					if (!record.trim().isEmpty()) {
+						try {
+							chunk.rows.add(format == Exporter.Format.CSV ? parseCsv(record, codecs) : parseJson(record, codecs, columnIndexes));
+						} catch (IllegalArgumentException e) {
+							chunk.rejects.add(Arrays.copyOfRange(chunk.bytes, start, Math.min(i + 1, chunk.length)));
+							chunk.rejectReason = "Line " + recordLine + ": " + e.getMessage();
+						}
+					}
+				}
+				start = i + 1;
+				quoted = false;
+				recordLine = line;
+			}
+			chunk.bytes = null;
+			parsedChunks.put(chunk);
+		}
+	}
+
+	/**
+	 * Writes the parsed chunks in file order, batchSize rows per transaction
+	 */
+	private void write(String[] columnNames, BlockingQueue<Chunk> parsedChunks, OutputStream rejects) throws InterruptedException, SQLException, IOException {
+		HashMap<Long, Chunk> pending = new HashMap<Long, Chunk>();
+		List<Object[]> batch = new ArrayList<Object[]>(Math.min(batchSize, 65536));
+		long nextSequence = 0;
+		int finishedParsers = 0;
+		while (finishedParsers < parserThreads) {
+			Chunk chunk = parsedChunks.take();
+			if (chunk.failure != null) {
+				if (chunk.failure instanceof IOException)
+					throw (IOException) chunk.failure;
+				throw new IOException("Unable to import into " + objectModel.getTableName(), chunk.failure);
+			}
+			if (chunk == Chunk.END) {
+				finishedParsers++;
+				continue;
+			}
+
+			pending.put(chunk.sequence, chunk);
+			while ((chunk = pending.remove(nextSequence)) != null) {
+				nextSequence++;
+				for (Object[] row : chunk.rows) {
+					batch.add(row);
+					if (batch.size() >= batchSize)
+						insert(columnNames, batch);
+				}
+				rowsRejected.addAndGet(chunk.rejects.size());
+				if (chunk.rejectReason != null)
+					lastRejectReason = chunk.rejectReason;
+				if (rejects != null) {
+					for (byte[] reject : chunk.rejects) {
+						rejects.write(reject);
+						if (reject.length == 0 || reject[reject.length - 1] != '\n')
+							rejects.write('\n');
+					}
+				}
+			}
+		}
+		insert(columnNames, batch);
+	}
+
+	private void insert(String[] columnNames, List<Object[]> batch) throws SQLException {
+		if (batch.isEmpty())
+			return;
+
+		DatabaseDriverInterface<R, C> databaseDriverInterface = objectModel.getDatabaseModel().getDatabaseDriverInterface();
+		// The transaction belongs to this thread, so writes made by other
+		// threads wait for it to end rather than being rolled back with it
+		databaseDriverInterface.beginTransaction();
+		try {
+			databaseDriverInterface.insertBatch(objectModel.getTableName(), columnNames, batch);
+			databaseDriverInterface.setTransactionSuccessful();
+		} finally {
+			databaseDriverInterface.endTransaction();
+		}
+		rowsImported.addAndGet(batch.size());
+		batch.clear();
+	}
+
+	private Object[] parseCsv(String record, byte[] codecs) {
+		List<String> fields = splitCsv(record);
+		if (fields.size() != codecs.length)
+			throw new IllegalArgumentException("Expected " + codecs.length + " fields but found " + fields.size());
+
+		Object[] row = new Object[codecs.length];
+		for (int i = 0; i < codecs.length; i++) {
+			String field = fields.get(i);
+			row[i] = field == null ? null : convert(field, codecs[i]);
+		}
+		return row;
+	}
+
+	/**
+	 * Splits a CSV record into its fields. Empty fields that are not quoted
+	 * are returned as null.
+	 */
+	private static List<String> splitCsv(String record) {
+		List<String> fields = new ArrayList<String>();
+		StringBuilder field = new StringBuilder();
+		int i = 0;
+		while (true) {
+			boolean quoted = i < record.length() && record.charAt(i) == '"';
+			field.setLength(0);
+			if (quoted) {
+				i++;
+				while (true) {
+					if (i >= record.length())
+						throw new IllegalArgumentException("Unterminated quoted field");
+					char c = record.charAt(i++);
+					if (c != '"') {
+						field.append(c);
+					} else if (i < record.length() && record.charAt(i) == '"') {
+						field.append('"');
+						i++;
+					} else {
+						break;
+					}
+				}
+				if (i < record.length() && record.charAt(i) != ',')
+					throw new IllegalArgumentException("Unexpected character after quoted field");
+			} else {
+				while (i < record.length() && record.charAt(i) != ',')
+					field.append(record.charAt(i++));
+			}
+			fields.add(!quoted && field.length() == 0 ? null : field.toString());
+
+			if (i >= record.length())
+				return fields;
+			i++;
+		}
+	}
+
+	/**
+	 * Parses a flat JSON object whose members are strings, numbers, booleans
+	 * or null
+	 */
+	private Object[] parseJson(String record, byte[] codecs, HashMap<String, Integer> columnIndexes) {
+		Object[] row = new Object[codecs.length];
+		int[] position = new int[] { skipWhitespace(record, 0) };
+		expect(record, position, '{');
+		if (peek(record, position) == '}') {
+			position[0]++;
+		} else {
+			while (true) {
+				String name = readJsonString(record, position);
+				expect(record, position, ':');
+				position[0] = skipWhitespace(record, position[0]);
+				Object value = readJsonValue(record, position);
+				Integer column = columnIndexes.get(name.toLowerCase(Locale.ENGLISH));
+				if (column != null)
+					row[column] = value == null ? null : convert(value.toString(), codecs[column]);
+
+				char c = peek(record, position);
+				position[0]++;
+				if (c == '}')
+					break;
+				if (c != ',')
+					throw new IllegalArgumentException("Expected ',' or '}' at offset " + (position[0] - 1));
+			}
+		}
+		if (skipWhitespace(record, position[0]) != record.length())
+			throw new IllegalArgumentException("Unexpected content after the object");
+		return row;
+	}
+
+	private static Object readJsonValue(String record, int[] position) {
+		char c = peek(record, position);
+		if (c == '"')
+			return readJsonString(record, position);
+		if (c == '{' || c == '[')
+			throw new IllegalArgumentException("Nested objects and arrays are not supported");
+
+		int start = position[0];
+		int end = start;
+		while (end < record.length() && ",}] \t\r\n".indexOf(record.charAt(end)) < 0)
+			end++;
+		if (end == start)
+			throw new IllegalArgumentException("Expected a value at offset " + start);
+		position[0] = end;
+		String literal = record.substring(start, end);
+		return literal.equals("null") ? null : literal;
+	}
+
+	private static String readJsonString(String record, int[] position) {
+		expect(record, position, '"');
+		StringBuilder builder = new StringBuilder();
+		int i = position[0];
+		while (true) {
+			if (i >= record.length())
+				throw new IllegalArgumentException("Unterminated string");
+			char c = record.charAt(i++);
+			if (c == '"')
+				break;
+			if (c != '\\') {
+				builder.append(c);
+				continue;
+			}
+			if (i >= record.length())
+				throw new IllegalArgumentException("Unterminated string");
+			char escaped = record.charAt(i++);
+			switch (escaped) {
+			case 'b':
+				builder.append('\b');
+				break;
+			case 'f':
+				builder.append('\f');
+				break;
+			case 'n':
+				builder.append('\n');
+				break;
+			case 'r':
+				builder.append('\r');
+				break;
+			case 't':
+				builder.append('\t');
+				break;
+			case 'u':
+				if (i + 4 > record.length())
+					throw new IllegalArgumentException("Invalid unicode escape");
+				builder.append((char) Integer.parseInt(record.substring(i, i + 4), 16));
+				i += 4;
+				break;
+			default:
+				builder.append(escaped);
+			}
+		}
+		position[0] = i;
+		return builder.toString();
+	}
+
+	private static void expect(String record, int[] position, char expected) {
+		if (peek(record, position) != expected)
+			throw new IllegalArgumentException("Expected '" + expected + "' at offset " + position[0]);
+		position[0]++;
+	}
+
+	private static char peek(String record, int[] position) {
+		position[0] = skipWhitespace(record, position[0]);
+		if (position[0] >= record.length())
+			throw new IllegalArgumentException("Unexpected end of record");
+		return record.charAt(position[0]);
+	}
+
+	private static int skipWhitespace(String record, int i) {
+		while (i < record.length() && Character.isWhitespace(record.charAt(i)))
+			i++;
+		return i;
+	}
+
+	/**
+	 * Converts a field to the value bound for its column
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the field is not valid for the column
+	 */
+	private static Object convert(String field, byte codec) {
+		switch (codec) {
+		case Exporter.CODEC_BOOLEAN:
+			if (field.equalsIgnoreCase("true") || field.equals("1"))
+				return 1L;
+			if (field.equalsIgnoreCase("false") || field.equals("0"))
+				return 0L;
+			throw new IllegalArgumentException("Invalid boolean: " + field);
+		case Exporter.CODEC_INTEGER:
+			try {
+				return Long.parseLong(field.trim());
+			} catch (NumberFormatException e) {
+				double value = Double.parseDouble(field.trim());
+				if (value != Math.rint(value))
+					throw new IllegalArgumentException("Invalid integer: " + field);
+				return (long) value;
+			}
+		case Exporter.CODEC_REAL:
+			return Double.parseDouble(field.trim());
+		case Exporter.CODEC_BLOB:
+			if (field.length() % 2 != 0)
+				throw new IllegalArgumentException("Invalid hexadecimal blob");
+			byte[] bytes = new byte[field.length() / 2];
+			for (int i = 0; i < bytes.length; i++) {
+				int high = Character.digit(field.charAt(i * 2), 16);
+				int low = Character.digit(field.charAt(i * 2 + 1), 16);
+				if (high < 0 || low < 0)
+					throw new IllegalArgumentException("Invalid hexadecimal blob");
+				bytes[i] = (byte) ((high << 4) | low);
+			}
+			return bytes;
+		default:
+			return field;
+		}
+	}
+
+	private byte[] getCodecs(String[] columnNames) throws IOException {
+		byte[] codecs = new byte[columnNames.length];
+		for (int i = 0; i < columnNames.length; i++) {
+			ObjectModelColumn objectModelColumn = null;
+			for (ObjectModelColumn candidate : objectModel.getObjectModelColumns()) {
+				if (candidate.getName().equalsIgnoreCase(columnNames[i]))
+					objectModelColumn = candidate;
+			}
+			if (objectModelColumn == null)
+				throw new IOException(objectModel.getTableName() + " has no column named " + columnNames[i]);
+			columnNames[i] = objectModelColumn.getName();
+			codecs[i] = Exporter.getCodec(objectModelColumn.getType());
+		}
+		return codecs;
+	}
+
+	private String[] getCsvColumnNames(byte[] header) throws IOException {
+		int length = header.length;
+		while (length > 0 && (header[length - 1] == '\n' || header[length - 1] == '\r'))
+			length--;
+		try {
+			List<String> fields = splitCsv(new String(header, 0, length, UTF8));
+			String[] columnNames = new String[fields.size()];
+			for (int i = 0; i < columnNames.length; i++) {
+				if (fields.get(i) == null)
+					throw new IOException("The header row has an empty column name");
+				columnNames[i] = fields.get(i).trim();
+			}
+			return columnNames;
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Invalid header row", e);
+		}
+	}
+
+	/**
+	 * @return the bytes of the header row, including its line break
+	 */
+	private byte[] readHeader(FileChannel channel, long position) throws IOException {
+		long length = Math.min(WINDOW_SIZE, channel.size() - position);
+		MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+		boolean quoted = false;
+		int end = (int) length;
+		for (int i = 0; i < length; i++) {
+			byte b = window.get(i);
+			if (b == '"') {
+				quoted = !quoted;
+			} else if (b == '\n' && !quoted) {
+				end = i + 1;
+				break;
+			}
+		}
+		if (end == 0)
+			throw new IOException("The file has no header row");
+		byte[] header = new byte[end];
+		window.get(header);
+		return header;
+	}
+
+	/**
+	 * @return the length of the UTF-8 byte order mark at the start of the
+	 *         file, if any
+	 */
+	private static long skipByteOrderMark(FileChannel channel) throws IOException {
+		if (channel.size() < 3)
+			return 0;
+		MappedByteBuffer start = channel.map(FileChannel.MapMode.READ_ONLY, 0, 3);
+		return start.get(0) == (byte) 0xEF && start.get(1) == (byte) 0xBB && start.get(2) == (byte) 0xBF ? 3 : 0;
+	}
+
+	/**
+	 * A piece of the file passed between the stages of the pipeline
+	 */
+	private static class Chunk {
+		static final Chunk END = new Chunk(-1, 0, null, 0);
+
+		final long sequence;
+		final long firstLine;
+		final int length;
+		final Throwable failure;
+		byte[] bytes;
+		List<Object[]> rows;
+		List<byte[]> rejects;
+		String rejectReason;
+
+		Chunk(long sequence, long firstLine, byte[] bytes, int length) {
+			this.sequence = sequence;
+			this.firstLine = firstLine;
+			this.bytes = bytes;
+			this.length = length;
+			this.failure = null;
+		}
+
+		Chunk(Throwable failure) {
+			this.sequence = -1;
+			this.firstLine = 0;
+			this.length = 0;
+			this.failure = failure;
+		}
+	}
+}
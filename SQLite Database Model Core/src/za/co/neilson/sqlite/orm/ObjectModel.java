@@ -12,17 +12,40 @@
 package za.co.neilson.sqlite.orm;
 
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import za.co.neilson.sqlite.orm.Relationship.Type;
+import za.co.neilson.sqlite.orm.annotations.Cacheable;
 import za.co.neilson.sqlite.orm.annotations.ForeignKey;
+import za.co.neilson.sqlite.orm.annotations.Index;
+import za.co.neilson.sqlite.orm.annotations.Indexes;
 import za.co.neilson.sqlite.orm.annotations.Nullable;
+import za.co.neilson.sqlite.orm.annotations.Preload;
 import za.co.neilson.sqlite.orm.annotations.PrimaryKey;
 import za.co.neilson.sqlite.orm.annotations.Transient;
 import za.co.neilson.sqlite.orm.annotations.Unique;
@@ -44,6 +67,44 @@ import za.co.neilson.sqlite.orm.annotations.Unique;
  */
 public abstract class ObjectModel<T, R, C> {
 
+	/**
+	 * Receives each object produced by forEachRow()
+	 * 
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public static abstract class RowVisitor<T> {
+		/**
+		 * @param t
+		 *            the object created from the current row. In reuse mode
+		 *            the same instance is refilled for every row and must not
+		 *            be retained
+		 * @return <b>boolean</b> true to continue to the next row, false to
+		 *         stop the scan
+		 */
+		public abstract boolean visit(T t);
+	}
+
+	/**
+	 * Receives the objects produced by parallelScan(). accept() is called
+	 * concurrently by every scanning thread and must be thread safe.
+	 * 
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public static abstract class ScanConsumer<T> {
+		public abstract void accept(T t);
+	}
+
+	private static final byte CODEC_OBJECT = 0;
+	private static final byte CODEC_BOOLEAN = 1;
+	private static final byte CODEC_BYTE = 2;
+	private static final byte CODEC_SHORT = 3;
+	private static final byte CODEC_INT = 4;
+	private static final byte CODEC_LONG = 5;
+	private static final byte CODEC_FLOAT = 6;
+	private static final byte CODEC_DOUBLE = 7;
+
 	/**
 	 * The type of query being performed for reference in concrete subclasses
 	 * when determining the columns and their values to be used in database
@@ -57,8 +118,48 @@ public abstract class ObjectModel<T, R, C> {
 		SELECT, INSERT, UPDATE, DELETE
 	}
 
+	/**
+	 * The aggregates which can be computed by ObjectModel.groupBy()
+	 * 
+	 * @since 0.2
+	 * @version 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public enum Aggregate {
+		COUNT, SUM, MIN, MAX, AVG
+	}
+
+	/**
+	 * Matches a single "column [ASC|DESC]" term of an ORDER BY clause
+	 */
+	static final Pattern ORDER_BY_TERM = Pattern.compile("\\s*(\\w+)(?:\\s+(ASC|DESC))?\\s*", Pattern.CASE_INSENSITIVE);
+	/**
+	 * Matches a single "column = ?" term of a primary key WHERE clause
+	 */
+	static final Pattern EQUALITY_TERM = Pattern.compile("\\s*\\(?\\s*(\\w+)\\s*=\\s*\\?\\s*\\)?\\s*");
+
 	protected DatabaseModel<R,C> databaseModel;
 	protected ObjectModelColumn[] objectModelColumns;
+	private ObjectModelColumn[] primaryKeyColumns;
+	private ObjectModelIndex[] objectModelIndexes;
+	private volatile EntityCache<T> entityCache;
+	private volatile QueryCache queryCache;
+	private volatile ObjectModel<?, ?, ?>[] referencedObjectModels;
+	private volatile ObjectModel<?, ?, ?>[] dependentObjectModels;
+	private final AtomicLong tableVersion = new AtomicLong();
+	private volatile WriteBehindBuffer<T> writeBehindBuffer;
+	private volatile boolean preloaded;
+	private volatile TableSnapshot<T> tableSnapshot;
+	private final AtomicLong snapshotChanges = new AtomicLong();
+	private volatile long snapshotLoadedAt;
+	private final Object snapshotLock = new Object();
+	private final ThreadLocal<Boolean> loadingSnapshot = new ThreadLocal<Boolean>();
+	private AsyncObjectModel<T, R, C> asyncObjectModel;
+	private volatile int fetchSize;
+	private final ConcurrentHashMap<String, String> criteriaTemplates = new ConcurrentHashMap<String, String>();
+	private volatile Field[] columnFields;
+	private volatile Field[] copiedFields;
+	private byte[] columnCodecs;
 
 	/**
 	 * <p>
@@ -83,6 +184,23 @@ public abstract class ObjectModel<T, R, C> {
 	public ObjectModel(DatabaseModel<R,C> databaseModel) throws ClassNotFoundException, NoSuchFieldException {
 		setDatabaseModel(databaseModel);
 		this.objectModelColumns = onInitializeObjectModelColumns();
+		this.objectModelIndexes = addForeignKeyIndexes(onInitializeObjectModelIndexes());
+		for (ObjectModelIndex objectModelIndex : objectModelIndexes) {
+			for (String columnName : objectModelIndex.getColumnNames())
+				getObjectModelColumn(columnName).addIndex(objectModelIndex);
+		}
+
+		// Enable the second-level cache if the object type requests it
+		Cacheable cacheable = getObjetType().getAnnotation(Cacheable.class);
+		if (cacheable != null) {
+			enableEntityCache(cacheable.maxEntries(), cacheable.maxBytes());
+			if (cacheable.maxQueries() > 0)
+				enableQueryCache(cacheable.maxQueries());
+		}
+
+		// Reference tables are held in memory once the DatabaseModel connects
+		if (getObjetType().isAnnotationPresent(Preload.class))
+			setPreloaded(true);
 	}
 
 	/**
@@ -326,6 +444,192 @@ public abstract class ObjectModel<T, R, C> {
 		return this.objectModelColumns;
 	}
 
+	/**
+	 * <p>
+	 * Creates the ObjectModelIndexes of the ObjectModel's table from the
+	 * &#64;Index annotations of the object type's fields and the &#64;Index
+	 * and &#64;Indexes annotations of the object type itself.
+	 * </p>
+	 * <p>
+	 * Override the ObjectModel.onInitializeObjectModelIndexes() method to
+	 * declare indexes without annotations.
+	 * </p>
+	 * <p>
+	 * An index is added afterwards for each foreign key column which does not
+	 * lead one of these indexes, the primary key or a unique constraint,
+	 * unless its &#64;ForeignKey sets index to false.
+	 * </p>
+	 * 
+	 * @return <b>ObjectModelIndex[]</b> the secondary indexes of the
+	 *         ObjectModel's table
+	 * @throws NoSuchFieldException
+	 *             if an index refers to a column that does not exist
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected ObjectModelIndex[] onInitializeObjectModelIndexes() throws NoSuchFieldException {
+		List<ObjectModelIndex> indexes = new ArrayList<ObjectModelIndex>();
+		Class<?> type = getObjetType();
+
+		for (Field field : type.getDeclaredFields()) {
+			Index index = field.getAnnotation(Index.class);
+			if (index == null)
+				continue;
+			ObjectModelColumn objectModelColumn = getObjectModelColumn(field.getName());
+			if (objectModelColumn == null)
+				throw new NoSuchFieldException("The field " + field.getName() + " is indexed but is not a column of " + getTableName());
+			indexes.add(createObjectModelIndex(index, objectModelColumn.getName() + (index.descending() ? " DESC" : "")));
+		}
+
+		Index index = type.getAnnotation(Index.class);
+		if (index != null)
+			indexes.add(createObjectModelIndex(index, null));
+		Indexes typeIndexes = type.getAnnotation(Indexes.class);
+		if (typeIndexes != null) {
+			for (Index typeIndex : typeIndexes.value())
+				indexes.add(createObjectModelIndex(typeIndex, null));
+		}
+
+		return indexes.toArray(new ObjectModelIndex[indexes.size()]);
+	}
+
+	/**
+	 * Adds an index on each foreign key column which does not already lead
+	 * the primary key, a unique constraint or a full index, unless its
+	 * &#64;ForeignKey opts out. Foreign key indexes are named fk_ rather than
+	 * idx_ so that they never share a name with a declared index on the same
+	 * column, such as a partial one
+	 */
+	private ObjectModelIndex[] addForeignKeyIndexes(ObjectModelIndex[] objectModelIndexes) {
+		List<ObjectModelIndex> indexes = new ArrayList<ObjectModelIndex>(Arrays.asList(objectModelIndexes));
+		ObjectModelColumn[] primaryKeyColumns = getPrimaryKeyColumns();
+		for (ObjectModelColumn objectModelColumn : getObjectModelColumns()) {
+			if (objectModelColumn.getForeignKeyParentTable() == null || objectModelColumn.isUnique())
+				continue;
+			if (primaryKeyColumns.length > 0 && primaryKeyColumns[0] == objectModelColumn)
+				continue;
+
+			try {
+				ForeignKey foreignKey = getObjetType().getDeclaredField(objectModelColumn.getName()).getAnnotation(ForeignKey.class);
+				if (foreignKey != null && !foreignKey.index())
+					continue;
+			} catch (NoSuchFieldException e) {
+				// Columns declared without a field are indexed by default
+			}
+
+			String name = "fk_" + getTableName() + "_" + objectModelColumn.getName();
+			boolean indexed = false;
+			for (ObjectModelIndex objectModelIndex : indexes) {
+				if ((objectModelIndex.leadsWith(objectModelColumn.getName()) && !objectModelIndex.isPartial()) || objectModelIndex.getName().equalsIgnoreCase(name)) {
+					indexed = true;
+					break;
+				}
+			}
+			if (!indexed)
+				indexes.add(new ObjectModelIndex(name, getTableName(), new String[] { objectModelColumn.getName() }, null, false, null));
+		}
+		return indexes.toArray(new ObjectModelIndex[indexes.size()]);
+	}
+
+	private ObjectModelIndex createObjectModelIndex(Index index, String leadingColumn) throws NoSuchFieldException {
+		List<String> columns = new ArrayList<String>();
+		if (leadingColumn != null)
+			columns.add(leadingColumn);
+		columns.addAll(Arrays.asList(index.columns()));
+		if (columns.isEmpty())
+			throw new NoSuchFieldException("An index of " + getTableName() + " has no columns");
+
+		String[] columnNames = new String[columns.size()];
+		boolean[] descending = new boolean[columns.size()];
+		StringBuilder name = new StringBuilder("idx_").append(getTableName());
+		for (int i = 0; i < columnNames.length; i++) {
+			Matcher matcher = ORDER_BY_TERM.matcher(columns.get(i));
+			ObjectModelColumn objectModelColumn = matcher.matches() ? getObjectModelColumn(matcher.group(1)) : null;
+			if (objectModelColumn == null)
+				throw new NoSuchFieldException("The indexed column " + columns.get(i) + " is not a column of " + getTableName());
+			columnNames[i] = objectModelColumn.getName();
+			descending[i] = "DESC".equalsIgnoreCase(matcher.group(2));
+			name.append('_').append(columnNames[i]);
+		}
+		return new ObjectModelIndex(index.name().isEmpty() ? name.toString() : index.name(), getTableName(), columnNames, descending, index.unique(), index.where());
+	}
+
+	/**
+	 * @return <b>ObjectModelIndex[]</b> the secondary indexes of the
+	 *         ObjectModel's table
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public final ObjectModelIndex[] getObjectModelIndexes() {
+		return objectModelIndexes.clone();
+	}
+
+	/**
+	 * Creates the ObjectModel's secondary indexes if they do not exist. Called
+	 * by onCreateTable() once the table has been created.
+	 * 
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected void onCreateIndexes() throws SQLException {
+		for (ObjectModelIndex objectModelIndex : objectModelIndexes)
+			getDatabaseModel().getDatabaseDriverInterface().execute(objectModelIndex.toSql(true));
+	}
+
+	/**
+	 * <p>
+	 * Brings the indexes of an existing table in line with the ObjectModel's
+	 * ObjectModelIndexes. Called by the DatabaseModel after onUpgrade().
+	 * </p>
+	 * <p>
+	 * Declared indexes which are missing are created, and those whose
+	 * definition has changed are dropped and created again. Indexes which are
+	 * no longer declared are dropped if their names follow the idx_ or fk_
+	 * naming of generated indexes; other indexes are left alone.
+	 * </p>
+	 * 
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected void reconcileIndexes() throws SQLException {
+		DatabaseDriverInterface<R, C> databaseDriverInterface = getDatabaseModel().getDatabaseDriverInterface();
+		int firstColumnIndex = databaseDriverInterface.getFirstColumnIndex();
+		Map<String, String> existing = new LinkedHashMap<String, String>();
+		R r = databaseDriverInterface.rawQuery("SELECT name, sql FROM sqlite_master WHERE type = 'index' AND tbl_name = ? COLLATE NOCASE AND sql IS NOT NULL",
+				new Object[] { getTableName() });
+		try {
+			while (databaseDriverInterface.next(r))
+				existing.put(databaseDriverInterface.getString(r, firstColumnIndex).toLowerCase(Locale.ENGLISH), databaseDriverInterface.getString(r, firstColumnIndex + 1));
+		} finally {
+			databaseDriverInterface.close(r);
+		}
+
+		String generatedPrefix = ("idx_" + getTableName() + "_").toLowerCase(Locale.ENGLISH);
+		String foreignKeyPrefix = ("fk_" + getTableName() + "_").toLowerCase(Locale.ENGLISH);
+		Set<String> declared = new HashSet<String>();
+		for (ObjectModelIndex objectModelIndex : objectModelIndexes) {
+			String name = objectModelIndex.getName().toLowerCase(Locale.ENGLISH);
+			declared.add(name);
+			String sql = existing.get(name);
+			if (sql != null && normalizeSql(sql).equalsIgnoreCase(normalizeSql(objectModelIndex.toSql())))
+				continue;
+			if (sql != null)
+				databaseDriverInterface.execute("DROP INDEX IF EXISTS " + objectModelIndex.getName());
+			databaseDriverInterface.execute(objectModelIndex.toSql(true));
+		}
+
+		for (String name : existing.keySet()) {
+			if (!declared.contains(name) && (name.startsWith(generatedPrefix) || name.startsWith(foreignKeyPrefix)))
+				databaseDriverInterface.execute("DROP INDEX IF EXISTS " + name);
+		}
+	}
+
+	private static String normalizeSql(String sql) {
+		return sql.trim().replaceAll("\\s+", " ").replaceAll("\\s*([(),])\\s*", "$1");
+	}
+
 	/**
 	 * @return <b>ObjectModelColumn[]</b> the ObjectModel's database table
 	 *         columns
@@ -353,442 +657,2399 @@ public abstract class ObjectModel<T, R, C> {
 	}
 
 	/**
-	 * Used internally by other query methods to obtain a <b>ResultSet</b> of a
-	 * query's results
-	 * 
-	 * @param whereClause
-	 *            The optional WHERE clause to apply when deleting. Passing null
-	 *            will delete all rows
-	 * @param whereArgs
-	 *            Question marks in the whereClause String will be replaced with
-	 *            these whereArgs in order. (where id = ?)
-	 * @param groupBy
-	 *            The optional group by clause to be appended to the sql
-	 *            statement
-	 * @param having
-	 *            The optional having clause to be appended to the sql statement
-	 * @param orderBy
-	 *            The optional order by clause to be appended to the sql
-	 *            statement
-	 * @param limit
-	 *            The optional limit on the number of results returned
-	 * @return <b>ResultSet</b> the results returned by the query
-	 * @since 0.1
+	 * @return <b>ObjectModelColumn[]</b> the columns that make up the
+	 *         ObjectModel table's primary key, in column order. The array is
+	 *         empty if the table does not have a primary key
+	 * @since 0.2
 	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
-	 * @throws SQLException
-	 */	
-	protected final R getResultSet(String whereClause, Object[] whereArgs, String groupBy, String having, String orderBy, Integer limit) throws SQLException {
-		try {
-			return (R) getDatabaseModel().getDatabaseDriverInterface().query(getTableName(), getColumnNames(), whereClause, whereArgs, groupBy, having, orderBy, limit);
-		} catch (SQLException e) {
-			throw e;
+	 */
+	public final ObjectModelColumn[] getPrimaryKeyColumns() {
+		if (primaryKeyColumns == null) {
+			List<ObjectModelColumn> columns = new ArrayList<ObjectModelColumn>();
+			for (ObjectModelColumn objectModelColumn : getObjectModelColumns()) {
+				if (objectModelColumn.isPrimaryKey())
+					columns.add(objectModelColumn);
+			}
+			primaryKeyColumns = columns.toArray(new ObjectModelColumn[columns.size()]);
 		}
+		return primaryKeyColumns;
 	}
 
 	/**
-	 * <p>
-	 * Binds the state of the object's properties to the columns in which they
-	 * will be persisted.
-	 * </p>
-	 * <p>
-	 * If the ObjectModel's ObjectModelColumns were automatically generated,
-	 * i.e. onInitializeObjectModelColumns() was not overridden, the database
-	 * table's column names will exactly match. the names of the object's
-	 * properties.
-	 * </p>
-	 * <p>
-	 * Reflection is used to get the value of the property with the same name as
-	 * the database table column, and insert it into the Map with the column
-	 * name as the Map key for use in database operations.
-	 * </p>
-	 * <p>
-	 * Override the ObjectModel.getColumnValues() method for finer control over
-	 * the way that an object's properties are persisted in the database table.
-	 * </p>
-	 * 
-	 * @param t
-	 *            the Object whose properties must be transformed into the
-	 *            HashMap&ltcolumnName, columnValue&gt form by this method
-	 * @param queryType
-	 *            the type of database query that is going to be performed using
-	 *            these columns and values
-	 * @return <b>HashMap&ltString, Object&gt</b>
-	 * @since 0.1
-	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
-	 */
-	protected abstract C setColumnValues(Object t, QueryType queryType);
-	
-	/**
-	 * <p>
-	 * Gets the value of the field belonging to Object <b>t</b> that should be
-	 * stored in the database column corresponding to the ObjectModelColumn
-	 * supplied.
-	 * </p>
-	 * <p>
-	 * If the ObjectModel's ObjectModelColumns were automatically generated,
-	 * i.e. onInitializeObjectModelColumns() was not overridden, the database
-	 * table's column names will exactly match. the names of the object's
-	 * properties.
-	 * </p>
-	 * <p>
-	 * Reflection is used to get the value of the field with the same name as
-	 * the database table column, and assign it to the ObjectModelColumn's value
-	 * for use in database operations.
-	 * </p>
-	 * <p>
-	 * Override the ObjectModel.setColumnValue() method for finer control over
-	 * the way that an object's properties are persisted in the database table.
-	 * </p>
-	 * 
-	 * @param t
-	 *            the Object with which to set the column value
-	 * @param objectModelColumn
-	 *            the database column to set to the corresponding object field
-	 *            value
-	 * @return <b>Object</b> the appropriate table column value for the
-	 *         ObjectModelColumn supplied
-	 * @throws NoSuchFieldException
-	 * @throws SecurityException
-	 * @throws IllegalArgumentException
-	 * @throws IllegalAccessException
-	 * @since 0.1
+	 * Returns the primary key of the supplied object in the form used to
+	 * identify it in caches and identity maps. Each element is the String
+	 * representation of the value persisted in the corresponding primary key
+	 * column.
+	 *
+	 * @param object
+	 *            an instance of the Object managed by this ObjectModel
+	 * @return <b>List&ltString&gt</b> the object's primary key or null if the
+	 *         ObjectModel does not have a primary key
+	 * @since 0.2
 	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
 	 */
-	protected Object setColumnValue(Object t, ObjectModelColumn objectModelColumn) throws NoSuchFieldException, SecurityException, IllegalArgumentException, IllegalAccessException {
+	protected final List<String> getPrimaryKey(Object object) {
+		ObjectModelColumn[] primaryKeyColumns = getPrimaryKeyColumns();
+		if (object == null || primaryKeyColumns.length == 0)
+			return null;
 
-		Object value = null;
-		Class<?> c = getObjetType();
-		Field field = c.getDeclaredField(objectModelColumn.getName());
-		field.setAccessible(true);
-		if (objectModelColumn.getType() == boolean.class) {
-			value = (Boolean) field.get(t) ? 1 : 0;
-		} else if (objectModelColumn.getType() == Date.class) {
-			value = field.get(t) == null ? null : ((Date) field.get(t)).getTime();
-		} else if (objectModelColumn.getType() == Calendar.class) {
-			value = field.get(t) == null ? null : ((Calendar) field.get(t)).getTimeInMillis();
-		} else {
-			value = field.get(t);
+		Object[] primaryKey = new Object[primaryKeyColumns.length];
+		for (int i = 0; i < primaryKeyColumns.length; i++) {
+			try {
+				primaryKey[i] = setColumnValue(object, primaryKeyColumns[i]);
+			} catch (NoSuchFieldException | SecurityException | IllegalArgumentException | IllegalAccessException e) {
+				e.printStackTrace();
+				return null;
+			}
 		}
+		return toPrimaryKey(primaryKey);
+	}
 
+	/**
+	 * Converts a value bound to a query to the form in which the ObjectModel
+	 * stores it, so that Criteria and Assignments compare and write values
+	 * the same way
+	 */
+	static Object toArgument(Object value) {
+		if (value instanceof Boolean)
+			return ((Boolean) value) ? 1 : 0;
+		if (value instanceof Date)
+			return ((Date) value).getTime();
+		if (value instanceof Calendar)
+			return ((Calendar) value).getTimeInMillis();
+		if (value instanceof Enum)
+			return ((Enum<?>) value).name();
 		return value;
 	}
 
 	/**
-	 * <p>
-	 * Gets the value of the field represented by the ObjectModelColumn supplied
-	 * from the ResultSet returned by a database query. The value is applied to
-	 * the corresponding field of an instance of the object managed by this
-	 * object model.
-	 * </p>
-	 * <p>
-	 * Reflection is used to set the value of the managed Object's field
-	 * with the value of the ResultSet field with the same.
-	 * name.
-	 * </p>
-	 * <p>
-	 * Override the ObjectModel.setColumnValue() method for finer control over
-	 * the way that a managed object's fields are filled from the result of a
-	 * database query.
-	 * </p>
-	 * 
-	 * @param r
-	 *            The ResultSet returned as the result of a database query and
-	 *            from which an instance of the object type that this
-	 *            ObjectModel represents must be instantiated
-	 * @param objectModelColumn
-	 *            The ObjectModelColumn for which the corresponding Object Field
-	 *            value must be extracted from the ResultSet
-	 * @param resultSetObjectModelColumnIndex
-	 *            The index of this ObjectModelColumn's value in the ResultSet
-	 * @return <b>Object</b> the value to set on the Object's corresponding
-	 *         Field from the database query ResultSet for the ObjectModelColumn
-	 *         parameter provided.
-	 * @throws NoSuchFieldException
-	 * @throws SecurityException
-	 * @throws SQLException
-	 * @since 0.1
+	 * Converts primary key values supplied as query arguments to the form
+	 * returned by getPrimaryKey(Object) so that the two can be compared.
+	 *
+	 * @param primaryKeyValues
+	 *            the primary key column values in primary key column order
+	 * @return <b>List&ltString&gt</b> the primary key or null if any of the
+	 *         values are null
+	 * @since 0.2
 	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
 	 */
-	protected abstract Object getColumnValue(R r, ObjectModelColumn objectModelColumn, int resultSetObjectModelColumnIndex) throws NoSuchFieldException, SecurityException, SQLException;
+	protected static List<String> toPrimaryKey(Object... primaryKeyValues) {
+		String[] primaryKey = new String[primaryKeyValues.length];
+		for (int i = 0; i < primaryKeyValues.length; i++) {
+			Object value = primaryKeyValues[i];
+			if (value == null) {
+				return null;
+			} else if (value instanceof Boolean) {
+				value = (Boolean) value ? 1 : 0;
+			} else if (value instanceof Date) {
+				value = ((Date) value).getTime();
+			} else if (value instanceof Calendar) {
+				value = ((Calendar) value).getTimeInMillis();
+			}
+			primaryKey[i] = String.valueOf(value);
+		}
+		return Arrays.asList(primaryKey);
+	}
 
 	/**
-	 * Create an instance of the Object represented by this model using the
-	 * ResultSet returned by a database query
-	 * 
-	 * @param r
-	 * @return the ResultSet containing the properties of the Object to
-	 *         instantiate
-	 * 
-	 * @since 0.1
+	 * @return <b>String</b> a WHERE clause that selects a single record by its
+	 *         primary key, e.g. "id = ?"
+	 * @throws IllegalArgumentException
+	 *             if the ObjectModel does not have a primary key
+	 * @since 0.2
 	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
 	 */
-	protected T getInstance(R r) {
-		try {
-			Class<?> c = getObjetType();
+	protected final String getPrimaryKeyWhereClause() {
+		ObjectModelColumn[] primaryKeyColumns = getPrimaryKeyColumns();
+		if (primaryKeyColumns.length == 0)
+			throw new IllegalArgumentException("The ObjectModel for " + getTableName() + " does not have a primary key");
+
+		StringBuilder whereClauseBuilder = new StringBuilder();
+		for (int i = 0; i < primaryKeyColumns.length; i++) {
+			if (i > 0)
+				whereClauseBuilder.append(" AND ");
+			whereClauseBuilder.append(primaryKeyColumns[i].getName());
+			whereClauseBuilder.append(" = ?");
+		}
+		return whereClauseBuilder.toString();
+	}
+
+	/**
+	 * Determines whether a query selects a single record by its primary key,
+	 * i.e. the whereClause consists only of "column = ?" terms joined by AND,
+	 * one for each primary key column.
+	 *
+	 * @param whereClause
+	 *            the WHERE clause of the query
+	 * @param whereArgs
+	 *            the arguments of the query
+	 * @return <b>Object[]</b> the query arguments reordered to primary key
+	 *         column order, or null if the query is not a primary key lookup
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected final Object[] getPrimaryKeyArgs(String whereClause, Object[] whereArgs) {
+		ObjectModelColumn[] primaryKeyColumns = getPrimaryKeyColumns();
+		if (whereClause == null || whereArgs == null || primaryKeyColumns.length == 0 || whereArgs.length != primaryKeyColumns.length)
+			return null;
+
+		String[] terms = whereClause.trim().split("(?i)\\s+AND\\s+");
+		if (terms.length != primaryKeyColumns.length)
+			return null;
+
+		Object[] primaryKeyArgs = new Object[primaryKeyColumns.length];
+		for (int i = 0; i < terms.length; i++) {
+			Matcher matcher = EQUALITY_TERM.matcher(terms[i]);
+			if (!matcher.matches() || whereArgs[i] == null)
+				return null;
+
+			int primaryKeyIndex = -1;
+			for (int j = 0; j < primaryKeyColumns.length; j++) {
+				if (primaryKeyColumns[j].getName().equalsIgnoreCase(matcher.group(1))) {
+					primaryKeyIndex = j;
+					break;
+				}
+			}
+			if (primaryKeyIndex < 0 || primaryKeyArgs[primaryKeyIndex] != null)
+				return null;
+			primaryKeyArgs[primaryKeyIndex] = whereArgs[i];
+		}
+		return primaryKeyArgs;
+	}
+
+	/**
+	 * @param primaryKey
+	 *            the values of the primary key columns of the record to
+	 *            retrieve, in column order
+	 * @return <b>T</b> the object with the given primary key or null if no
+	 *         such record exists
+	 * @throws SQLException
+	 * @throws IllegalArgumentException
+	 *             if the ObjectModel does not have a primary key or the
+	 *             number of values does not match the number of primary key
+	 *             columns
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public T getByPrimaryKey(Object... primaryKey) throws SQLException {
+		if (primaryKey == null || primaryKey.length != getPrimaryKeyColumns().length)
+			throw new IllegalArgumentException("Expected " + getPrimaryKeyColumns().length + " primary key value(s) for " + getTableName());
+		return getFirst(getPrimaryKeyWhereClause(), primaryKey);
+	}
+
+	/**
+	 * @return <b>int</b> the number of rows read from the database at a time
+	 *         by this ObjectModel's queries, or 0 if the driver's default is
+	 *         used
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public int getFetchSize() {
+		return fetchSize;
+	}
+
+	/**
+	 * Sets the number of rows read from the database at a time by this
+	 * ObjectModel's queries. JDBC passes the value to Statement.setFetchSize();
+	 * Android reads queries that are neither grouped nor ordered through a
+	 * WindowedCursor which holds at most one window of fetchSize rows in
+	 * memory.
+	 * 
+	 * @param fetchSize
+	 *            the number of rows to read at a time or 0 to use the driver's
+	 *            default
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public void setFetchSize(int fetchSize) {
+		if (fetchSize < 0)
+			throw new IllegalArgumentException("fetchSize must not be negative");
+		this.fetchSize = fetchSize;
+	}
+
+	/**
+	 * @return <b>EntityCache&ltT&gt</b> the second-level cache used by this
+	 *         ObjectModel or null if caching is disabled
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public EntityCache<T> getEntityCache() {
+		return entityCache;
+	}
+
+	/**
+	 * Replaces the second-level cache used to serve primary key lookups.
+	 * Passing null disables caching.
+	 * 
+	 * @param entityCache
+	 *            the cache to use
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public void setEntityCache(EntityCache<T> entityCache) {
+		this.entityCache = entityCache;
+	}
+
+	/**
+	 * Enables a second-level cache bounded by entry count and, optionally, by
+	 * the size of the cached objects as estimated by estimateSize(). This is
+	 * equivalent to annotating the object type with &#64;Cacheable.
+	 * 
+	 * @param maxEntries
+	 *            the maximum number of objects held by the cache
+	 * @param maxBytes
+	 *            the maximum estimated size of the objects held by the cache.
+	 *            0 disables the size bound
+	 * @return <b>EntityCache&ltT&gt</b> the new cache
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public EntityCache<T> enableEntityCache(long maxEntries, long maxBytes) {
+		EntityCache.Weigher<T> weigher = null;
+		if (maxBytes > 0) {
+			weigher = new EntityCache.Weigher<T>() {
+				@Override
+				public long weigh(T t) {
+					return estimateSize(t);
+				}
+			};
+		}
+		setEntityCache(new EntityCache<T>(maxEntries, maxBytes, weigher));
+		return entityCache;
+	}
+
+	/**
+	 * Estimates the memory used by an instance of the managed object from the
+	 * values of its ObjectModelColumns. Related objects are not included.
+	 * Override this method if the estimate is not representative.
+	 * 
+	 * @param t
+	 *            the Object to measure
+	 * @return <b>long</b> the estimated size of the object in bytes
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected long estimateSize(Object t) {
+		long size = 16;
+		for (ObjectModelColumn objectModelColumn : getObjectModelColumns()) {
+			try {
+				Object value = setColumnValue(t, objectModelColumn);
+				if (value == null) {
+					size += 8;
+				} else if (value instanceof String) {
+					size += 40 + 2 * ((String) value).length();
+				} else if (value instanceof byte[]) {
+					size += 16 + ((byte[]) value).length;
+				} else {
+					size += 16;
+				}
+			} catch (NoSuchFieldException | SecurityException | IllegalArgumentException | IllegalAccessException e) {
+				size += 16;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Used by concrete subclasses before querying the database for a single
+	 * record.
+	 * 
+	 * @param whereClause
+	 *            the WHERE clause of the query
+	 * @param whereArgs
+	 *            the arguments of the query
+	 * @return <b>T</b> a copy of the cached object if the query selects a
+	 *         record by its primary key and the record is held in the
+	 *         second-level cache, otherwise null
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected final T getCachedInstance(String whereClause, Object[] whereArgs) {
+		EntityCache<T> entityCache = this.entityCache;
+		if (entityCache == null)
+			return null;
+
+		Object[] primaryKeyArgs = getPrimaryKeyArgs(whereClause, whereArgs);
+		T t = primaryKeyArgs == null ? null : entityCache.get(toPrimaryKey(primaryKeyArgs));
+		// Callers may modify what they are given, so they never share the
+		// cached instance
+		return t == null ? null : copyOf(t);
+	}
+
+	/**
+	 * @return <b>long</b> the stamp to pass to cacheInstance(), taken before
+	 *         querying the database
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected final long getCacheStamp() {
+		EntityCache<T> entityCache = this.entityCache;
+		return entityCache == null ? 0 : entityCache.getStamp();
+	}
+
+	/**
+	 * Used by concrete subclasses to add an object loaded from the database by
+	 * a primary key lookup to the second-level cache.
+	 * 
+	 * @param whereClause
+	 *            the WHERE clause of the query that loaded the object
+	 * @param whereArgs
+	 *            the arguments of the query that loaded the object
+	 * @param t
+	 *            the loaded object
+	 * @param stamp
+	 *            the value returned by getCacheStamp() before the query
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected final void cacheInstance(String whereClause, Object[] whereArgs, T t, long stamp) {
+		EntityCache<T> entityCache = this.entityCache;
+		if (entityCache == null || t == null)
+			return;
+
+		Object[] primaryKeyArgs = getPrimaryKeyArgs(whereClause, whereArgs);
+		T copy = primaryKeyArgs == null ? null : copyOf(t);
+		if (copy != null)
+			entityCache.put(toPrimaryKey(primaryKeyArgs), copy, stamp);
+	}
+
+	/**
+	 * @return <b>long</b> the version of the ObjectModel's table, which is
+	 *         incremented every time records are written through the
+	 *         ObjectModel
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public final long getTableVersion() {
+		return tableVersion.get();
+	}
+
+	/**
+	 * @return <b>QueryCache</b> the cache of getAll() results used by this
+	 *         ObjectModel or null if query caching is disabled
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public QueryCache getQueryCache() {
+		return queryCache;
+	}
+
+	/**
+	 * Replaces the cache used to serve repeated getAll() queries. Passing null
+	 * disables query caching.
+	 * 
+	 * @param queryCache
+	 *            the cache to use
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public void setQueryCache(QueryCache queryCache) {
+		this.queryCache = queryCache;
+	}
+
+	/**
+	 * Enables caching of getAll() results. If the ObjectModel also has an
+	 * entity cache, only the primary keys of the results are held by the query
+	 * cache and the objects are held by the entity cache. Either way the caches
+	 * hold copies of the objects and each hit returns new copies, which callers
+	 * may modify.
+	 * 
+	 * @param maxEntries
+	 *            the maximum number of query results held by the cache
+	 * @return <b>QueryCache</b> the new cache
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public QueryCache enableQueryCache(int maxEntries) {
+		setQueryCache(new QueryCache(maxEntries));
+		return queryCache;
+	}
+
+	/**
+	 * @return <b>long</b> the combined version of the ObjectModel's table and
+	 *         the tables of every ObjectModel it references. Used by concrete
+	 *         subclasses before querying the database, to be passed to
+	 *         cacheResults()
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected final long getQueryVersion() {
+		if (queryCache == null)
+			return 0;
+
+		ObjectModel<?, ?, ?>[] referencedObjectModels = this.referencedObjectModels;
+		if (referencedObjectModels == null) {
+			referencedObjectModels = getReferencedObjectModels().toArray(new ObjectModel<?, ?, ?>[0]);
+			this.referencedObjectModels = referencedObjectModels;
+		}
+
+		// Table versions only increase so the sum changes whenever any of them do
+		long version = tableVersion.get();
+		for (ObjectModel<?, ?, ?> objectModel : referencedObjectModels)
+			version += objectModel.tableVersion.get();
+		return version;
+	}
+
+	/**
+	 * Used by concrete subclasses before querying the database for a list of
+	 * records.
+	 * 
+	 * @param whereClause
+	 *            the WHERE clause of the query
+	 * @param whereArgs
+	 *            the arguments of the query
+	 * @param orderBy
+	 *            the ORDER BY clause of the query
+	 * @param limit
+	 *            the limit of the query
+	 * @return <b>List&ltT&gt</b> a new List of the cached results if the same
+	 *         query has been made since the tables it depends on were last
+	 *         written to, otherwise null. The objects are new copies
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected final List<T> getCachedResults(String whereClause, Object[] whereArgs, String orderBy, Integer limit) {
+		QueryCache queryCache = this.queryCache;
+		if (queryCache == null)
+			return null;
+
+		QueryCache.Key key = QueryCache.key(getTableName(), whereClause, whereArgs, orderBy, limit);
+		List<?> rows = queryCache.get(key, getQueryVersion());
+		if (rows == null)
+			return null;
+
+		List<T> list = new ArrayList<T>(rows.size());
+		EntityCache<T> entityCache = this.entityCache;
+		for (Object row : rows) {
+			if (row instanceof CachedPrimaryKey) {
+				T t = entityCache == null ? null : entityCache.get(((CachedPrimaryKey) row).primaryKey);
+				if (t != null)
+					t = copyOf(t);
+				if (t == null) {
+					// The object has been evicted, so the query must be repeated
+					queryCache.reject(key);
+					return null;
+				}
+				list.add(t);
+			} else {
+				T t = copyOf(getObjetType().cast(row));
+				if (t == null) {
+					queryCache.reject(key);
+					return null;
+				}
+				list.add(t);
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * Used by concrete subclasses to add the results of a query to the query
+	 * cache.
+	 * 
+	 * @param whereClause
+	 *            the WHERE clause of the query
+	 * @param whereArgs
+	 *            the arguments of the query
+	 * @param orderBy
+	 *            the ORDER BY clause of the query
+	 * @param limit
+	 *            the limit of the query
+	 * @param list
+	 *            the results of the query
+	 * @param version
+	 *            the value returned by getQueryVersion() before the query
+	 * @param stamp
+	 *            the value returned by getCacheStamp() before the query
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected final void cacheResults(String whereClause, Object[] whereArgs, String orderBy, Integer limit, List<T> list, long version, long stamp) {
+		QueryCache queryCache = this.queryCache;
+		if (queryCache == null || version != getQueryVersion())
+			return;
+
+		EntityCache<T> entityCache = this.entityCache;
+		List<Object> rows = new ArrayList<Object>(list.size());
+		for (T t : list) {
+			// Hold a copy so that callers modifying their results cannot
+			// change the cached result
+			T copy = copyOf(t);
+			if (copy == null)
+				return;
+			List<String> primaryKey = entityCache == null ? null : getPrimaryKey(t);
+			if (primaryKey != null) {
+				entityCache.put(primaryKey, copy, stamp);
+				rows.add(new CachedPrimaryKey(primaryKey));
+			} else {
+				rows.add(copy);
+			}
+		}
+		queryCache.put(QueryCache.key(getTableName(), whereClause, whereArgs, orderBy, limit), rows, version);
+	}
+
+	/**
+	 * @return <b>boolean</b> true if the ObjectModel's table is held in memory
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public boolean isPreloaded() {
+		return preloaded;
+	}
+
+	/**
+	 * Specifies whether the ObjectModel's table should be held in memory. This
+	 * is equivalent to annotating the object type with &#64;Preload. Preloaded
+	 * tables are loaded by the DatabaseModel when it connects, or otherwise
+	 * when they are first queried.
+	 * 
+	 * @param preloaded
+	 *            true to hold the table in memory
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public void setPreloaded(boolean preloaded) {
+		this.preloaded = preloaded;
+		if (!preloaded)
+			tableSnapshot = null;
+	}
+
+	/**
+	 * @return <b>TableSnapshot&ltT&gt</b> the in-memory copy of the
+	 *         ObjectModel's table or null if it has not been loaded
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public TableSnapshot<T> getTableSnapshot() {
+		return tableSnapshot;
+	}
+
+	/**
+	 * Loads every record in the ObjectModel's table into a new TableSnapshot,
+	 * replacing the current snapshot once it has been built. The current
+	 * snapshot is kept if the table cannot be read.
+	 * 
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public void preload() throws SQLException {
+		loadingSnapshot.set(Boolean.TRUE);
+		try {
+			long changes = snapshotChanges.get();
+			TableSnapshot<T> tableSnapshot = new TableSnapshot<T>(this, getAll(null, null, null, null));
+			if (preloaded) {
+				this.tableSnapshot = tableSnapshot;
+				snapshotLoadedAt = changes;
+			}
+		} finally {
+			loadingSnapshot.remove();
+		}
+	}
+
+	/**
+	 * Used by concrete subclasses before querying the database.
+	 * 
+	 * @param whereClause
+	 *            the WHERE clause of the query
+	 * @param whereArgs
+	 *            the arguments of the query
+	 * @param orderBy
+	 *            the ORDER BY clause of the query
+	 * @param limit
+	 *            the limit of the query
+	 * @return <b>List&ltT&gt</b> the results of the query if the ObjectModel
+	 *         is preloaded and the query can be answered from memory,
+	 *         otherwise null
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected final List<T> getPreloadedResults(String whereClause, Object[] whereArgs, String orderBy, Integer limit) {
+		try {
+			flushPendingWrites();
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+		if (!preloaded || orderBy != null || loadingSnapshot.get() != null)
+			return null;
+
+		TableSnapshot<T> tableSnapshot = this.tableSnapshot;
+		if (tableSnapshot == null || snapshotLoadedAt != snapshotChanges.get()) {
+			// Rebuilt by the first query after the writes have been committed,
+			// so that a rolled back write is never held in memory
+			if (getDatabaseModel().getDatabaseDriverInterface().inTransaction())
+				return null;
+			synchronized (snapshotLock) {
+				if (this.tableSnapshot == null || snapshotLoadedAt != snapshotChanges.get()) {
+					try {
+						preload();
+					} catch (SQLException e) {
+						e.printStackTrace();
+					}
+				}
+			}
+			tableSnapshot = this.tableSnapshot;
+			if (tableSnapshot == null || snapshotLoadedAt != snapshotChanges.get())
+				return null;
+		}
+
+		List<T> list = tableSnapshot.find(whereClause, whereArgs);
+		if (list != null && limit != null && list.size() > limit)
+			list = new ArrayList<T>(list.subList(0, limit));
+		return list;
+	}
+
+	/**
+	 * Marks the TableSnapshot as out of date after a write. Queries fall back
+	 * to the database until it has been rebuilt.
+	 */
+	private void invalidateSnapshot() {
+		snapshotChanges.incrementAndGet();
+	}
+
+	/**
+	 * <p>
+	 * Enables write-behind mode. Calls to insert() and insertOrUpdate() are
+	 * queued in a WriteBehindBuffer and return 0 immediately; a background
+	 * thread writes them in a single transaction once <b>batchSize</b> writes
+	 * are pending or every <b>flushMillis</b> milliseconds. Pending writes to
+	 * the same record are coalesced.
+	 * </p>
+	 * <p>
+	 * Use the Futures returned by the buffer's own insert() and
+	 * insertOrUpdate() methods to find out when a write has been committed.
+	 * Any previously enabled buffer is flushed and closed.
+	 * </p>
+	 * 
+	 * @param batchSize
+	 *            the number of pending writes that triggers a flush
+	 * @param flushMillis
+	 *            the maximum time in milliseconds between flushes
+	 * @param capacity
+	 *            the maximum number of pending writes. Writers block while the
+	 *            buffer is full
+	 * @return <b>WriteBehindBuffer&ltT&gt</b> the new buffer
+	 * @throws SQLException
+	 *             if the previous buffer could not be flushed
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public WriteBehindBuffer<T> enableWriteBehind(int batchSize, long flushMillis, int capacity) throws SQLException {
+		disableWriteBehind();
+		writeBehindBuffer = new WriteBehindBuffer<T>(this, batchSize, flushMillis, capacity);
+		return writeBehindBuffer;
+	}
+
+	/**
+	 * Flushes and closes the WriteBehindBuffer, if any. Subsequent writes are
+	 * written directly.
+	 * 
+	 * @throws SQLException
+	 *             if the buffer could not be flushed
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public void disableWriteBehind() throws SQLException {
+		WriteBehindBuffer<T> writeBehindBuffer = this.writeBehindBuffer;
+		if (writeBehindBuffer != null) {
+			this.writeBehindBuffer = null;
+			writeBehindBuffer.close();
+		}
+	}
+
+	/**
+	 * @return <b>WriteBehindBuffer&ltT&gt</b> the buffer used in write-behind
+	 *         mode or null if write-behind mode is disabled
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public WriteBehindBuffer<T> getWriteBehindBuffer() {
+		return writeBehindBuffer;
+	}
+
+	/**
+	 * Writes any pending writes held by the WriteBehindBuffer to the database
+	 * 
+	 * @throws SQLException
+	 *             if the writes could not be committed
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public void flushWriteBehind() throws SQLException {
+		WriteBehindBuffer<T> writeBehindBuffer = this.writeBehindBuffer;
+		if (writeBehindBuffer != null)
+			writeBehindBuffer.flush();
+	}
+
+	/**
+	 * Used by concrete subclasses before reading from or writing to the
+	 * ObjectModel's table, so that reads see the caller's own queued writes
+	 * and updates and deletes are not overtaken by them. Does nothing on the
+	 * thread writing the buffer's pending writes.
+	 * 
+	 * @throws SQLException
+	 *             if the pending writes could not be committed
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected final void flushPendingWrites() throws SQLException {
+		WriteBehindBuffer<T> writeBehindBuffer = this.writeBehindBuffer;
+		if (writeBehindBuffer != null && !writeBehindBuffer.isFlushingThread())
+			writeBehindBuffer.flush();
+	}
+
+	/**
+	 * Used by concrete subclasses to queue a write in write-behind mode. Writes
+	 * made by a thread inside a transaction are not queued, so that they
+	 * belong to that transaction; any pending writes are flushed first.
+	 * 
+	 * @param t
+	 *            the Object to write
+	 * @param queryType
+	 *            INSERT to insert the object, UPDATE to insert or update it
+	 * @return <b>boolean</b> true if the write has been queued and must not be
+	 *         written directly
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected final boolean enqueueWrite(T t, QueryType queryType) {
+		WriteBehindBuffer<T> writeBehindBuffer = this.writeBehindBuffer;
+		if (writeBehindBuffer == null || writeBehindBuffer.isClosed() || writeBehindBuffer.isFlushingThread())
+			return false;
+		if (getDatabaseModel().getDatabaseDriverInterface().inTransaction()) {
+			try {
+				writeBehindBuffer.flush();
+			} catch (SQLException e) {
+				// Reported to the writers of the pending writes
+				e.printStackTrace();
+			}
+			return false;
+		}
+
+		if (queryType == QueryType.INSERT) {
+			writeBehindBuffer.insert(t);
+		} else {
+			writeBehindBuffer.insertOrUpdate(t);
+		}
+		return true;
+	}
+
+	/**
+	 * <p>
+	 * Called by concrete subclasses after records have been written to the
+	 * ObjectModel's table.
+	 * </p>
+	 * <p>
+	 * The table version is incremented, which invalidates every cached query
+	 * result that depends on the table. Updated and deleted records are
+	 * removed from the second-level cache; if the records were not selected by
+	 * primary key the whole cache is invalidated. Preloaded tables are
+	 * reloaded. The caches and snapshots of ObjectModels whose objects hold
+	 * references to objects of this type are invalidated as well.
+	 * </p>
+	 * 
+	 * @param queryType
+	 *            the type of write performed
+	 * @param whereClause
+	 *            the WHERE clause that selected the records written
+	 * @param whereArgs
+	 *            the arguments of the WHERE clause
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected void onTableChanged(QueryType queryType, String whereClause, Object[] whereArgs) {
+		tableVersion.incrementAndGet();
+
+		EntityCache<T> entityCache = this.entityCache;
+		if (entityCache != null && queryType != QueryType.INSERT) {
+			Object[] primaryKeyArgs = getPrimaryKeyArgs(whereClause, whereArgs);
+			if (primaryKeyArgs != null) {
+				entityCache.invalidate(toPrimaryKey(primaryKeyArgs));
+			} else {
+				entityCache.invalidateAll();
+			}
+		}
+
+		invalidateSnapshot();
+
+		ObjectModel<?, ?, ?>[] dependentObjectModels = this.dependentObjectModels;
+		if (dependentObjectModels == null) {
+			dependentObjectModels = getDependentObjectModels().toArray(new ObjectModel<?, ?, ?>[0]);
+			this.dependentObjectModels = dependentObjectModels;
+		}
+		for (ObjectModel<?, ?, ?> objectModel : dependentObjectModels) {
+			if (objectModel.entityCache != null)
+				objectModel.entityCache.invalidateAll();
+			objectModel.invalidateSnapshot();
+		}
+	}
+
+	/**
+	 * @return <b>Set&ltObjectModel&gt</b> the other ObjectModels whose objects
+	 *         hold references, directly or through other objects, to objects
+	 *         managed by this ObjectModel
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected final Set<ObjectModel<?, ?, ?>> getDependentObjectModels() {
+		Set<Class<?>> types = new HashSet<Class<?>>();
+		types.add(getObjetType());
+		Set<ObjectModel<?, ?, ?>> dependents = new HashSet<ObjectModel<?, ?, ?>>();
+
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (ObjectModel<?, ?, ?> objectModel : getDatabaseModel().getObjectModels().values()) {
+				if (objectModel != this && !dependents.contains(objectModel) && objectModel.referencesAny(types)) {
+					dependents.add(objectModel);
+					types.add(objectModel.getObjetType());
+					changed = true;
+				}
+			}
+		}
+		return dependents;
+	}
+
+	/**
+	 * @return <b>Set&ltObjectModel&gt</b> the other ObjectModels whose objects
+	 *         are referenced, directly or through other objects, by objects
+	 *         managed by this ObjectModel
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected final Set<ObjectModel<?, ?, ?>> getReferencedObjectModels() {
+		Set<ObjectModel<?, ?, ?>> referenced = new HashSet<ObjectModel<?, ?, ?>>();
+		List<ObjectModel<?, ?, ?>> pending = new ArrayList<ObjectModel<?, ?, ?>>();
+		pending.add(this);
+
+		while (!pending.isEmpty()) {
+			ObjectModel<?, ?, ?> referencing = pending.remove(pending.size() - 1);
+			for (ObjectModel<?, ?, ?> objectModel : getDatabaseModel().getObjectModels().values()) {
+				if (objectModel != this && !referenced.contains(objectModel)
+						&& referencing.referencesAny(Collections.<Class<?>> singleton(objectModel.getObjetType()))) {
+					referenced.add(objectModel);
+					pending.add(objectModel);
+				}
+			}
+		}
+		return referenced;
+	}
+
+	/**
+	 * @return true if objects managed by this ObjectModel hold references to
+	 *         objects of any of the given types
+	 */
+	private boolean referencesAny(Set<Class<?>> types) {
+		for (ObjectModelColumn objectModelColumn : getObjectModelColumns()) {
+			for (Relationship relationship : objectModelColumn.getRelationships()) {
+				if (getObjetType().equals(relationship.parentType) && relationship.parentReferenceField != null && types.contains(relationship.childType))
+					return true;
+				if (getObjetType().equals(relationship.childType) && relationship.childReferenceField != null && types.contains(relationship.parentType))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Used internally by other query methods to obtain a <b>ResultSet</b> of a
+	 * query's results
+	 * 
+	 * @param whereClause
+	 *            The optional WHERE clause to apply when deleting. Passing null
+	 *            will delete all rows
+	 * @param whereArgs
+	 *            Question marks in the whereClause String will be replaced with
+	 *            these whereArgs in order. (where id = ?)
+	 * @param groupBy
+	 *            The optional group by clause to be appended to the sql
+	 *            statement
+	 * @param having
+	 *            The optional having clause to be appended to the sql statement
+	 * @param orderBy
+	 *            The optional order by clause to be appended to the sql
+	 *            statement
+	 * @param limit
+	 *            The optional limit on the number of results returned
+	 * @return <b>ResultSet</b> the results returned by the query
+	 * @since 0.1
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 * @throws SQLException
+	 */	
+	protected final R getResultSet(String whereClause, Object[] whereArgs, String groupBy, String having, String orderBy, Integer limit) throws SQLException {
+		return getResultSet(whereClause, whereArgs, groupBy, having, orderBy, limit, getFetchSize());
+	}
+
+	/**
+	 * Queries the ObjectModel's table with a fetch size hint
+	 * 
+	 * @param fetchSize
+	 *            the number of rows to read from the database at a time or 0
+	 *            to use the driver's default
+	 * @return <b>R</b> the results returned by the query
+	 * @throws SQLException
+	 * @see #getResultSet(String, Object[], String, String, String, Integer)
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected final R getResultSet(String whereClause, Object[] whereArgs, String groupBy, String having, String orderBy, Integer limit, int fetchSize) throws SQLException {
+		return query(getColumnNames(), whereClause, whereArgs, groupBy, having, orderBy, limit, fetchSize);
+	}
+
+	/**
+	 * Queries the given columns of the ObjectModel's table. Every query made
+	 * by the ObjectModel goes through this method, so that pending
+	 * write-behind writes are flushed first and the QueryPlanAdvisor, if any,
+	 * sees the query.
+	 * 
+	 * @param columnNames
+	 *            the columns or expressions to select
+	 * @param fetchSize
+	 *            the number of rows to read from the database at a time or 0
+	 *            to use the driver's default
+	 * @return <b>R</b> the results returned by the query
+	 * @throws SQLException
+	 * @see #getResultSet(String, Object[], String, String, String, Integer)
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected final R query(String[] columnNames, String whereClause, Object[] whereArgs, String groupBy, String having, String orderBy, Integer limit, int fetchSize) throws SQLException {
+		flushPendingWrites();
+		QueryPlanAdvisor queryPlanAdvisor = getDatabaseModel().getQueryPlanAdvisor();
+		if (queryPlanAdvisor != null)
+			queryPlanAdvisor.observe(this, whereClause, whereArgs, groupBy, having, orderBy);
+		return getDatabaseModel().getDatabaseDriverInterface().query(getTableName(), columnNames, whereClause, whereArgs, groupBy, having, orderBy, limit, fetchSize);
+	}
+
+	/**
+	 * <p>
+	 * Binds the state of the object's properties to the columns in which they
+	 * will be persisted.
+	 * </p>
+	 * <p>
+	 * If the ObjectModel's ObjectModelColumns were automatically generated,
+	 * i.e. onInitializeObjectModelColumns() was not overridden, the database
+	 * table's column names will exactly match. the names of the object's
+	 * properties.
+	 * </p>
+	 * <p>
+	 * Reflection is used to get the value of the property with the same name as
+	 * the database table column, and insert it into the Map with the column
+	 * name as the Map key for use in database operations.
+	 * </p>
+	 * <p>
+	 * Override the ObjectModel.getColumnValues() method for finer control over
+	 * the way that an object's properties are persisted in the database table.
+	 * </p>
+	 * 
+	 * @param t
+	 *            the Object whose properties must be transformed into the
+	 *            HashMap&ltcolumnName, columnValue&gt form by this method
+	 * @param queryType
+	 *            the type of database query that is going to be performed using
+	 *            these columns and values
+	 * @return <b>HashMap&ltString, Object&gt</b>
+	 * @since 0.1
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected abstract C setColumnValues(Object t, QueryType queryType);
+	
+	/**
+	 * <p>
+	 * Gets the value of the field belonging to Object <b>t</b> that should be
+	 * stored in the database column corresponding to the ObjectModelColumn
+	 * supplied.
+	 * </p>
+	 * <p>
+	 * If the ObjectModel's ObjectModelColumns were automatically generated,
+	 * i.e. onInitializeObjectModelColumns() was not overridden, the database
+	 * table's column names will exactly match. the names of the object's
+	 * properties.
+	 * </p>
+	 * <p>
+	 * Reflection is used to get the value of the field with the same name as
+	 * the database table column, and assign it to the ObjectModelColumn's value
+	 * for use in database operations.
+	 * </p>
+	 * <p>
+	 * Override the ObjectModel.setColumnValue() method for finer control over
+	 * the way that an object's properties are persisted in the database table.
+	 * </p>
+	 * 
+	 * @param t
+	 *            the Object with which to set the column value
+	 * @param objectModelColumn
+	 *            the database column to set to the corresponding object field
+	 *            value
+	 * @return <b>Object</b> the appropriate table column value for the
+	 *         ObjectModelColumn supplied
+	 * @throws NoSuchFieldException
+	 * @throws SecurityException
+	 * @throws IllegalArgumentException
+	 * @throws IllegalAccessException
+	 * @since 0.1
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected Object setColumnValue(Object t, ObjectModelColumn objectModelColumn) throws NoSuchFieldException, SecurityException, IllegalArgumentException, IllegalAccessException {
+
+		Object value = null;
+		Class<?> c = getObjetType();
+		Field field = c.getDeclaredField(objectModelColumn.getName());
+		field.setAccessible(true);
+		if (objectModelColumn.getType() == boolean.class) {
+			value = (Boolean) field.get(t) ? 1 : 0;
+		} else if (objectModelColumn.getType() == Date.class) {
+			value = field.get(t) == null ? null : ((Date) field.get(t)).getTime();
+		} else if (objectModelColumn.getType() == Calendar.class) {
+			value = field.get(t) == null ? null : ((Calendar) field.get(t)).getTimeInMillis();
+		} else {
+			value = field.get(t);
+		}
+
+		return value;
+	}
+
+	/**
+	 * <p>
+	 * Gets the value of the field represented by the ObjectModelColumn supplied
+	 * from the ResultSet returned by a database query. The value is applied to
+	 * the corresponding field of an instance of the object managed by this
+	 * object model.
+	 * </p>
+	 * <p>
+	 * Reflection is used to set the value of the managed Object's field
+	 * with the value of the ResultSet field with the same.
+	 * name.
+	 * </p>
+	 * <p>
+	 * Override the ObjectModel.setColumnValue() method for finer control over
+	 * the way that a managed object's fields are filled from the result of a
+	 * database query.
+	 * </p>
+	 * 
+	 * @param r
+	 *            The ResultSet returned as the result of a database query and
+	 *            from which an instance of the object type that this
+	 *            ObjectModel represents must be instantiated
+	 * @param objectModelColumn
+	 *            The ObjectModelColumn for which the corresponding Object Field
+	 *            value must be extracted from the ResultSet
+	 * @param resultSetObjectModelColumnIndex
+	 *            The index of this ObjectModelColumn's value in the ResultSet
+	 * @return <b>Object</b> the value to set on the Object's corresponding
+	 *         Field from the database query ResultSet for the ObjectModelColumn
+	 *         parameter provided.
+	 * @throws NoSuchFieldException
+	 * @throws SecurityException
+	 * @throws SQLException
+	 * @since 0.1
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected abstract Object getColumnValue(R r, ObjectModelColumn objectModelColumn, int resultSetObjectModelColumnIndex) throws NoSuchFieldException, SecurityException, SQLException;
+
+	/**
+	 * Create an instance of the Object represented by this model using the
+	 * ResultSet returned by a database query
+	 * 
+	 * @param r
+	 * @return the ResultSet containing the properties of the Object to
+	 *         instantiate
+	 * 
+	 * @since 0.1
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected T getInstance(R r) {
+		try {
+			Class<?> c = getObjetType();
 
 			@SuppressWarnings("unchecked")
 			T t = (T) c.newInstance();
 
-			int objectModelColumnIndex = getDatabaseModel().getDatabaseDriverInterface().getFirstColumnIndex();
-			for (ObjectModelColumn objectModelColumn : getObjectModelColumns()) {
+			int objectModelColumnIndex = getDatabaseModel().getDatabaseDriverInterface().getFirstColumnIndex();
+			for (ObjectModelColumn objectModelColumn : getObjectModelColumns()) {
+
+				Field field = c.getDeclaredField(objectModelColumn.getName());
+				field.setAccessible(true);
+
+				field.set(t, getColumnValue(r, objectModelColumn, objectModelColumnIndex));
+
+				for (Relationship relationship : objectModelColumn.getRelationships()) {
+
+					if (relationship.parentKeyField.equals(field)) {
+
+						relationship.parent = t;
+
+						/*
+						 * I am the relationship parent, fill my reference to
+						 * the child object
+						 */
+
+						ObjectModel<?,?,?> childObjectModel = getDatabaseModel().getObjectModel(relationship.childType);
+
+						String whereClause = relationship.childKeyField.getName() + " = ? ";
+						Object[] whereArgs = new String[] { field.get(t).toString() };
+
+						switch (relationship.type) {
+						case MANY_TO_MANY:
+						case ONE_TO_MANY:
+							Collection<?> collection = childObjectModel.getAll(whereClause, (Object[])whereArgs);
+							relationship.child = collection;
+							break;
+						case ONE_TO_ONE:
+							relationship.child = childObjectModel.getFirst(whereClause, whereArgs);
+							break;
+						}
+						if (relationship.parentReferenceField != null) {
+							boolean accessible = relationship.parentReferenceField.isAccessible();
+							relationship.parentReferenceField.setAccessible(true);
+							relationship.parentReferenceField.set(t, relationship.child);
+							relationship.parentReferenceField.setAccessible(accessible);
+						}
+					} else if (relationship.childKeyField.equals(field)) {
+
+						/*
+						 * I am the relationship child, fill my reference to the
+						 * parent object
+						 */
+						if (relationship.parent == null) {
+
+							ObjectModel<?,?,?> parentObjectModel = getDatabaseModel().getObjectModel(relationship.parentType);
+
+							String whereClause = relationship.parentKeyField.getName() + " = ? ";
+							Object[] whereArgs = new String[] { field.get(t).toString() };
+
+							switch (relationship.type) {
+							case MANY_TO_MANY:
+								break;
+							case ONE_TO_MANY:
+							case ONE_TO_ONE:
+								relationship.parent = parentObjectModel.getFirst(whereClause, whereArgs);
+								break;
+							}
+
+						}
+						if (relationship.childReferenceField != null) {
+							boolean accessible = relationship.childReferenceField.isAccessible();
+							relationship.childReferenceField.setAccessible(true);
+							relationship.childReferenceField.set(t, relationship.parent);
+							relationship.childReferenceField.setAccessible(accessible);
+						}
+					}
+
+				}
+
+				objectModelColumnIndex++;
+
+			}
+			return t;
+		} catch (NoSuchFieldException | SecurityException | SQLException | IllegalArgumentException | IllegalAccessException | InstantiationException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Creates the table for this object in the SQLite database according to the
+	 * ObjectModelColumns declared in the concrete subclass constructor.
+	 * 
+	 * @throws SQLException
+	 * @since 0.1
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected void onCreateTable() throws SQLException {
+		StringBuilder sql = new StringBuilder("CREATE TABLE IF NOT EXISTS " + getTableName());
+		sql.append(" ( ");
+
+		boolean hasPrimaryKey = false;
+		int primaryKeys = 0;
+		for (ObjectModelColumn objectModelColumn : this.getObjectModelColumns()) {
+			if (objectModelColumn.isPrimaryKey()) {
+				if (!hasPrimaryKey) {
+					hasPrimaryKey = true;
+				}
+				primaryKeys++;
+			}
+		}
+
+		int columnIndex = 0;
+		for (ObjectModelColumn objectModelColumn : this.getObjectModelColumns()) {
+			sql.append(objectModelColumn.getName());
+
+			if (objectModelColumn.primaryKey && objectModelColumn.autoIncrement) {
+				sql.append(" INTEGER");
+			} else if (objectModelColumn.getType() == char.class) {
+				sql.append(" TEXT");
+			} else if (objectModelColumn.getType() == char[].class) {
+				sql.append(" TEXT");
+			} else if (objectModelColumn.getType() == String.class) {
+				sql.append(" TEXT");
+			} else if (objectModelColumn.getType() == boolean.class || objectModelColumn.getType() == Boolean.class) {
+				sql.append(" TINYINT");
+			} else if (objectModelColumn.getType() == byte.class || objectModelColumn.getType() == Byte.class) {
+				sql.append(" TINYINT");
+			} else if (objectModelColumn.getType() == short.class || objectModelColumn.getType() == Short.class) {
+				sql.append("SMALLINT");
+			} else if (objectModelColumn.getType() == int.class || objectModelColumn.getType() == Integer.class) {
+				sql.append(" INT");
+			} else if (objectModelColumn.getType() == long.class || objectModelColumn.getType() == Long.class) {
+				sql.append(" BIGINT");
+			} else if (objectModelColumn.getType() == float.class || objectModelColumn.getType() == Float.class) {
+				sql.append(" FLOAT");
+			} else if (objectModelColumn.getType() == double.class || objectModelColumn.getType() == Double.class) {
+				sql.append(" DOUBLE");
+			} else if (objectModelColumn.getType() == Date.class) {
+				sql.append(" DATETIME");
+			} else if (objectModelColumn.getType() == Calendar.class) {
+				sql.append(" DATETIME");
+			} else if (objectModelColumn.getType() == byte[].class) {
+				sql.append(" BLOB");
+			} else {
+				sql.append(" BLOB");
+			}
+
+			if (objectModelColumn.isPrimaryKey() && primaryKeys == 1) {
+				sql.append(" PRIMARY KEY");
+				if (objectModelColumn.isAutoIncrement())
+					sql.append(" AUTOINCREMENT");
+			}
+
+			if (objectModelColumn.isUnique() && !objectModelColumn.isPrimaryKey()) {
+				sql.append(" UNIQUE");
+			}
+
+			if (!objectModelColumn.isNullable())
+				sql.append(" NOT NULL");
+			if (columnIndex++ < objectModelColumns.length - 1)
+				sql.append(", ");
+		}
+
+		if (primaryKeys > 1) {
+			int primaryKeyIndex = 0;
+			sql.append(", ");
+			sql.append(" PRIMARY KEY(");
+
+			for (ObjectModelColumn databaseEntityColumn : this.getObjectModelColumns()) {
+				if (databaseEntityColumn.isPrimaryKey()) {
+					if (primaryKeyIndex++ != 0)
+						sql.append(", ");
+					sql.append(databaseEntityColumn.getName());
+				}
+			}
+			sql.append(")");
+		}
+
+		columnIndex = 0;
+		for (ObjectModelColumn databaseEntityColumn : this.getObjectModelColumns()) {
+			if (databaseEntityColumn.getForeignKeyParentTable() != null && databaseEntityColumn.getForeignKeyParentColumn() != null) {
+				sql.append(", ");
+				sql.append(" FOREIGN KEY(");
+				sql.append(databaseEntityColumn.getName());
+				sql.append(")");
+				sql.append(" REFERENCES ");
+				sql.append(databaseEntityColumn.getForeignKeyParentTable());
+				sql.append("(");
+				sql.append(databaseEntityColumn.getForeignKeyParentColumn());
+				sql.append(")");
+			}
+			columnIndex++;
+		}
+		sql.append(")");
+
+		getDatabaseModel().getDatabaseDriverInterface().execute(sql.toString());
+
+		onCreateIndexes();
+	}
+
+	/**
+	 * @param whereClause
+	 *            The optional WHERE clause to apply to the query. Passing null
+	 *            will select all rows
+	 * @return <b>T</b> The first instance returned by the query
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 * @throws SQLException 
+	 * @since 0.1
+	 */
+	public T getFirst(String whereClause) throws SQLException {
+		return getFirst(whereClause, (Object[])null);
+	}
+
+	/**
+	 * @param whereClause
+	 *            The optional WHERE clause to apply to the query. Passing null
+	 *            will select all rows
+	 * @param whereArgs
+	 *            Question marks in the whereClause String will be replaced with
+	 *            these whereArgs in order. (where id = ?)
+	 * @return <b>T</b> The first instance returned by the query
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 * @throws SQLException 
+	 * @since 0.1
+	 */
+	public  T getFirst(String whereClause, Object... whereArgs) throws SQLException{
+		return getFirst(whereClause, whereArgs, null);
+	}
+
+	/**
+	 * @param whereClause
+	 *            The optional WHERE clause to apply to the query. Passing null
+	 *            will select all rows
+	 * @param whereArgs
+	 *            Question marks in the whereClause String will be replaced with
+	 *            these whereArgs in order. (where id = ?)
+	 * @param orderBy
+	 *            a comma delimited list of the column names to order the
+	 *            returned results by
+	 * @return <b>T</b> The first instance returned by the query
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 * @throws SQLException 
+	 * @since 0.1
+	 */
+	public abstract T getFirst(String whereClause, Object[] whereArgs, String orderBy) throws SQLException;
+	
+	/**
+	 * @return <b>List&ltT&gt</b> a List of the objects returned by the query
+	 * @throws SQLException
+	 * @since 0.1
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public List<T> getAll() throws SQLException {
+		return getAll(null);
+	}
+
+	/**
+	 * @param whereClause
+	 *            The optional WHERE clause to apply to the query. Passing null
+	 *            will select all rows
+	 * @return <b>List&ltT&gt</b> a List of the objects returned by the query
+	 * @throws SQLException
+	 * @since 0.1
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public List<T> getAll(String whereClause) throws SQLException {
+		return getAll(whereClause, (Object[])null);
+	}
+
+	/**
+	 * @param whereClause
+	 *            The optional WHERE clause to apply to the query. Passing null
+	 *            will select all rows
+	 * @param whereArgs
+	 *            Question marks in the whereClause String will be replaced with
+	 *            these whereArgs in order. (where id = ?)
+	 * @return <b>List&ltT&gt</b> a List of the objects returned by the query
+	 * @throws SQLException
+	 * @since 0.1
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public List<T> getAll(String whereClause, Object... whereArgs) throws SQLException {
+		return getAll(whereClause, whereArgs, null);
+	}
+
+	/**
+	 * @param whereClause
+	 *            The optional WHERE clause to apply to the query. Passing null
+	 *            will select all rows
+	 * @param whereArgs
+	 *            Question marks in the whereClause String will be replaced with
+	 *            these whereArgs in order. (where id = ?)
+	 * @param orderBy
+	 *            a comma delimited list of the column names to order the
+	 *            returned results by
+	 * @return <b>List&ltT&gt</b> a List of the objects returned by the query
+	 * @throws SQLException
+	 * @since 0.1
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public List<T> getAll(String whereClause, Object[] whereArgs, String orderBy) throws SQLException {
+		return getAll(whereClause, whereArgs, orderBy, null);
+	}
+
+	/**
+	 * @param whereClause
+	 *            The optional WHERE clause to apply when deleting. Passing null
+	 *            will delete all rows
+	 * @param whereArgs
+	 *            Question marks in the whereClause String will be replaced with
+	 *            these whereArgs in order. (where id = ?)
+	 * @param orderBy
+	 *            a comma delimited list of the column names to order the
+	 *            returned results by
+	 * @param limit
+	 *            an optional numeric limit on the number of results returned
+	 * @return <b>List&ltT&gt</b> a List of the objects returned by the query
+	 * @throws SQLException
+	 * @since 0.1
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public abstract List<T> getAll(String whereClause, Object[] whereArgs, String orderBy, Integer limit) throws SQLException;
+
+	/**
+	 * <p>
+	 * Returns a page of the results of a query using keyset (seek)
+	 * pagination. Rather than skipping the records of previous pages with an
+	 * OFFSET, the query continues from the ORDER BY and primary key values of
+	 * the last record of the previous page, so every page costs the same
+	 * however deep into the results it is (given an index on the sort
+	 * columns).
+	 * </p>
+	 * <p>
+	 * The ORDER BY clause may only contain column names, each optionally
+	 * followed by ASC or DESC. Any primary key columns it does not contain are
+	 * appended to it so that the order is total.
+	 * </p>
+	 * 
+	 * @param whereClause
+	 *            The optional WHERE clause to apply to the query. Passing null
+	 *            will select all rows
+	 * @param whereArgs
+	 *            Question marks in the whereClause String will be replaced with
+	 *            these whereArgs in order. (where id = ?)
+	 * @param orderBy
+	 *            a comma delimited list of the column names to order the
+	 *            returned results by. Passing null orders by primary key
+	 * @param pageSize
+	 *            the maximum number of objects on the page
+	 * @param pageToken
+	 *            the token of the page to fetch, returned by the previous
+	 *            page, or null to fetch the first page
+	 * @return <b>Page&ltT&gt</b> the requested page
+	 * @throws SQLException
+	 * @throws IllegalArgumentException
+	 *             if the ObjectModel does not have a primary key, the ORDER BY
+	 *             clause is not supported or the token was not issued for this
+	 *             query
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public final Page<T> page(String whereClause, Object[] whereArgs, String orderBy, int pageSize, PageToken pageToken) throws SQLException {
+		if (pageSize < 1)
+			throw new IllegalArgumentException("pageSize must be greater than 0");
+		if (getPrimaryKeyColumns().length == 0)
+			throw new IllegalArgumentException("Keyset pagination cannot be used on an ObjectModel that does not have a primary key");
+
+		// Resolve the sort columns, adding the primary key as a tie breaker
+		List<ObjectModelColumn> sortColumns = new ArrayList<ObjectModelColumn>();
+		List<Boolean> descending = new ArrayList<Boolean>();
+		if (orderBy != null && !orderBy.trim().isEmpty()) {
+			for (String term : orderBy.split(",")) {
+				Matcher matcher = ORDER_BY_TERM.matcher(term);
+				ObjectModelColumn objectModelColumn = matcher.matches() ? getObjectModelColumn(matcher.group(1)) : null;
+				if (objectModelColumn == null)
+					throw new IllegalArgumentException("Unsupported ORDER BY term for keyset pagination: " + term.trim());
+				sortColumns.add(objectModelColumn);
+				descending.add("DESC".equalsIgnoreCase(matcher.group(2)));
+			}
+		}
+		for (ObjectModelColumn objectModelColumn : getPrimaryKeyColumns()) {
+			if (!sortColumns.contains(objectModelColumn)) {
+				sortColumns.add(objectModelColumn);
+				descending.add(false);
+			}
+		}
+
+		StringBuilder orderByBuilder = new StringBuilder();
+		for (int i = 0; i < sortColumns.size(); i++) {
+			if (i > 0)
+				orderByBuilder.append(", ");
+			orderByBuilder.append(sortColumns.get(i).getName()).append(descending.get(i) ? " DESC" : " ASC");
+		}
+		// The token is only valid for the query that issued it
+		String normalizedWhereClause = whereClause == null ? "" : whereClause.trim().replaceAll("\\s+", " ");
+		int fingerprint = (getTableName() + ":" + normalizedWhereClause + ":" + orderByBuilder).hashCode();
+
+		List<Object> args = new ArrayList<Object>();
+		if (whereArgs != null)
+			args.addAll(Arrays.asList(whereArgs));
+
+		if (pageToken != null) {
+			List<String> values = pageToken.getValues();
+			if (pageToken.getFingerprint() != fingerprint || values.size() != sortColumns.size())
+				throw new IllegalArgumentException("The PageToken was not issued for this query");
+
+			/*
+			 * Expand (c1, c2, ...) > (v1, v2, ...) into an OR chain, as row
+			 * values are not supported by older versions of SQLite. NULLs sort
+			 * first in ascending order and last in descending order.
+			 */
+			StringBuilder seekBuilder = new StringBuilder();
+			for (int i = 0; i < sortColumns.size(); i++) {
+				String name = sortColumns.get(i).getName();
+				String value = values.get(i);
+				String after;
+				if (descending.get(i)) {
+					after = value == null ? null : "(" + name + " < ? OR " + name + " IS NULL)";
+				} else {
+					after = value == null ? name + " IS NOT NULL" : name + " > ?";
+				}
+				if (after == null)
+					continue;
+
+				if (seekBuilder.length() > 0)
+					seekBuilder.append(" OR ");
+				seekBuilder.append("(");
+				for (int j = 0; j < i; j++) {
+					String previousValue = values.get(j);
+					seekBuilder.append(sortColumns.get(j).getName()).append(previousValue == null ? " IS NULL" : " = ?").append(" AND ");
+					if (previousValue != null)
+						args.add(previousValue);
+				}
+				seekBuilder.append(after).append(")");
+				if (value != null)
+					args.add(value);
+			}
+			String seek = seekBuilder.length() == 0 ? "0" : seekBuilder.toString();
+			whereClause = whereClause == null || whereClause.trim().isEmpty() ? seek : "(" + whereClause + ") AND (" + seek + ")";
+		}
 
-				Field field = c.getDeclaredField(objectModelColumn.getName());
-				field.setAccessible(true);
+		List<T> items = getAll(whereClause, args.toArray(), orderByBuilder.toString(), pageSize + 1);
+		PageToken nextPageToken = null;
+		if (items.size() > pageSize) {
+			items = new ArrayList<T>(items.subList(0, pageSize));
+			T last = items.get(pageSize - 1);
+			List<String> values = new ArrayList<String>(sortColumns.size());
+			for (ObjectModelColumn objectModelColumn : sortColumns) {
+				try {
+					List<String> value = toPrimaryKey(setColumnValue(last, objectModelColumn));
+					values.add(value == null ? null : value.get(0));
+				} catch (NoSuchFieldException | SecurityException | IllegalArgumentException | IllegalAccessException e) {
+					throw new SQLException("Unable to read the sort column " + objectModelColumn.getName(), e);
+				}
+			}
+			nextPageToken = new PageToken(fingerprint, values);
+		}
+		return new Page<T>(items, nextPageToken);
+	}
 
-				field.set(t, getColumnValue(r, objectModelColumn, objectModelColumnIndex));
+	/**
+	 * @return the ObjectModelColumn with the given name, ignoring case, or
+	 *         null if there is no such column
+	 */
+	ObjectModelColumn getObjectModelColumn(String name) {
+		for (ObjectModelColumn objectModelColumn : getObjectModelColumns()) {
+			if (objectModelColumn.getName().equalsIgnoreCase(name))
+				return objectModelColumn;
+		}
+		return null;
+	}
 
-				for (Relationship relationship : objectModelColumn.getRelationships()) {
+	/**
+	 * Scans the results of a query in reuse mode
+	 * 
+	 * @param whereClause
+	 *            The optional WHERE clause to apply to the query. Passing null
+	 *            will select all rows
+	 * @param whereArgs
+	 *            Question marks in the whereClause String will be replaced with
+	 *            these whereArgs in order. (where id = ?)
+	 * @param rowVisitor
+	 *            receives a single instance, refilled for each row
+	 * @return <b>int</b> the number of rows visited
+	 * @throws SQLException
+	 * @see #forEachRow(String, Object[], boolean, RowVisitor)
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public final int forEachRow(String whereClause, Object[] whereArgs, RowVisitor<T> rowVisitor) throws SQLException {
+		return forEachRow(whereClause, whereArgs, true, rowVisitor);
+	}
 
-					if (relationship.parentKeyField.equals(field)) {
+	/**
+	 * <p>
+	 * Passes each row returned by a query to the RowVisitor without building a
+	 * List of the results.
+	 * </p>
+	 * <p>
+	 * In reuse mode a single instance of the managed object is refilled from
+	 * every row. Columns whose field has the same primitive type as the column
+	 * are read through the driver without boxing; other columns are read with
+	 * getColumnValue(). Related objects are not loaded. The visitor must not
+	 * retain the instance beyond the call to visit(). Otherwise each row is
+	 * fully instantiated, as by getAll().
+	 * </p>
+	 * 
+	 * @param whereClause
+	 *            The optional WHERE clause to apply to the query. Passing null
+	 *            will select all rows
+	 * @param whereArgs
+	 *            Question marks in the whereClause String will be replaced with
+	 *            these whereArgs in order. (where id = ?)
+	 * @param reuse
+	 *            true to refill a single instance for every row
+	 * @param rowVisitor
+	 *            receives the object created from each row
+	 * @return <b>int</b> the number of rows visited
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public final int forEachRow(String whereClause, Object[] whereArgs, boolean reuse, RowVisitor<T> rowVisitor) throws SQLException {
+		DatabaseDriverInterface<R, C> databaseDriverInterface = getDatabaseModel().getDatabaseDriverInterface();
+		R r = getResultSet(whereClause, whereArgs, null, null, null, null);
+		int count = 0;
+		try {
+			T t = null;
+			if (reuse) {
+				try {
+					t = getObjetType().newInstance();
+				} catch (InstantiationException | IllegalAccessException e) {
+					throw new SQLException("Unable to instantiate " + getObjetType().getName(), e);
+				}
+			}
 
-						relationship.parent = t;
+			while (databaseDriverInterface.next(r)) {
+				count++;
+				if (!rowVisitor.visit(reuse ? fillInstance(t, r, databaseDriverInterface) : getInstance(r)))
+					break;
+			}
+		} finally {
+			databaseDriverInterface.close(r);
+		}
+		return count;
+	}
 
-						/*
-						 * I am the relationship parent, fill my reference to
-						 * the child object
-						 */
+	/**
+	 * Refills an existing instance of the managed object from the current row
+	 * of a query result, reading primitive columns without boxing
+	 */
+	private T fillInstance(T t, R r, DatabaseDriverInterface<R, C> databaseDriverInterface) throws SQLException {
+		ObjectModelColumn[] objectModelColumns = getObjectModelColumns();
+		Field[] fields = getColumnFields();
+		byte[] codecs = columnCodecs;
 
-						ObjectModel<?,?,?> childObjectModel = getDatabaseModel().getObjectModel(relationship.childType);
+		int index = databaseDriverInterface.getFirstColumnIndex();
+		try {
+			for (int i = 0; i < fields.length; i++, index++) {
+				Field field = fields[i];
+				switch (codecs[i]) {
+				case CODEC_BOOLEAN:
+					field.setBoolean(t, databaseDriverInterface.getLong(r, index) != 0);
+					break;
+				case CODEC_BYTE:
+					field.setByte(t, (byte) databaseDriverInterface.getLong(r, index));
+					break;
+				case CODEC_SHORT:
+					field.setShort(t, (short) databaseDriverInterface.getLong(r, index));
+					break;
+				case CODEC_INT:
+					field.setInt(t, (int) databaseDriverInterface.getLong(r, index));
+					break;
+				case CODEC_LONG:
+					field.setLong(t, databaseDriverInterface.getLong(r, index));
+					break;
+				case CODEC_FLOAT:
+					field.setFloat(t, (float) databaseDriverInterface.getDouble(r, index));
+					break;
+				case CODEC_DOUBLE:
+					field.setDouble(t, databaseDriverInterface.getDouble(r, index));
+					break;
+				default:
+					field.set(t, getColumnValue(r, objectModelColumns[i], index));
+				}
+			}
+		} catch (NoSuchFieldException | IllegalAccessException e) {
+			throw new SQLException("Unable to read a row of " + getTableName(), e);
+		}
+		return t;
+	}
 
-						String whereClause = relationship.childKeyField.getName() + " = ? ";
-						Object[] whereArgs = new String[] { field.get(t).toString() };
+	/**
+	 * <p>
+	 * Scans the results of a query on several threads at once. The span between
+	 * the lowest and highest ROWID is split into up to <b>parallelism</b> ranges
+	 * of equal width and each range is scanned on its own read-only
+	 * connection. SQLite allows any number of concurrent readers, and in WAL
+	 * mode readers are not blocked by a writer either. No more ranges are used
+	 * than there are processors available.
+	 * </p>
+	 * <p>
+	 * Ranges of equal width only hold similar numbers of records when ROWIDs
+	 * are evenly spread. Where they are not, for example after large deletes
+	 * or when an INTEGER PRIMARY KEY is assigned values with gaps, some ranges
+	 * hold far more records than others and the scan takes as long as the
+	 * largest of them. Counting the records needed to balance the ranges would
+	 * cost a full scan of the table, so it is not attempted.
+	 * </p>
+	 * <p>
+	 * Objects are created from their columns only; related objects are not
+	 * loaded. Objects are passed to the ScanConsumer in no particular order.
+	 * </p>
+	 * 
+	 * @param whereClause
+	 *            The optional WHERE clause to apply to the query. Passing null
+	 *            will select all rows
+	 * @param whereArgs
+	 *            Question marks in the whereClause String will be replaced with
+	 *            these whereArgs in order. (where id = ?)
+	 * @param parallelism
+	 *            the maximum number of threads and connections to use, which is
+	 *            limited to the number of available processors
+	 * @param scanConsumer
+	 *            receives every object returned by the query
+	 * @return <b>long</b> the number of objects scanned
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public final long parallelScan(String whereClause, Object[] whereArgs, int parallelism, ScanConsumer<T> scanConsumer) throws SQLException {
+		long[] boundaries = getRowIdBoundaries(parallelism);
+		List<ScanConsumer<T>> scanConsumers = new ArrayList<ScanConsumer<T>>(boundaries.length);
+		for (int i = 0; i < boundaries.length - 1; i++)
+			scanConsumers.add(scanConsumer);
+		return scanRanges(whereClause, whereArgs, boundaries, scanConsumers);
+	}
 
-						switch (relationship.type) {
-						case MANY_TO_MANY:
-						case ONE_TO_MANY:
-							Collection<?> collection = childObjectModel.getAll(whereClause, (Object[])whereArgs);
-							relationship.child = collection;
-							break;
-						case ONE_TO_ONE:
-							relationship.child = childObjectModel.getFirst(whereClause, whereArgs);
-							break;
-						}
-						if (relationship.parentReferenceField != null) {
-							boolean accessible = relationship.parentReferenceField.isAccessible();
-							relationship.parentReferenceField.setAccessible(true);
-							relationship.parentReferenceField.set(t, relationship.child);
-							relationship.parentReferenceField.setAccessible(accessible);
-						}
-					} else if (relationship.childKeyField.equals(field)) {
+	/**
+	 * Returns the results of a query, scanned as by parallelScan() and merged
+	 * in ROWID order
+	 * 
+	 * @param whereClause
+	 *            The optional WHERE clause to apply to the query. Passing null
+	 *            will select all rows
+	 * @param whereArgs
+	 *            Question marks in the whereClause String will be replaced with
+	 *            these whereArgs in order. (where id = ?)
+	 * @param parallelism
+	 *            the maximum number of threads and connections to use
+	 * @return <b>List&ltT&gt</b> a List of the objects returned by the query
+	 * @throws SQLException
+	 * @see #parallelScan(String, Object[], int, ScanConsumer)
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public final List<T> parallelGetAll(String whereClause, Object[] whereArgs, int parallelism) throws SQLException {
+		long[] boundaries = getRowIdBoundaries(parallelism);
+		final List<List<T>> partitions = new ArrayList<List<T>>();
+		List<ScanConsumer<T>> scanConsumers = new ArrayList<ScanConsumer<T>>(boundaries.length);
+		for (int i = 0; i < boundaries.length - 1; i++) {
+			final List<T> partition = new ArrayList<T>();
+			partitions.add(partition);
+			scanConsumers.add(new ScanConsumer<T>() {
+				@Override
+				public void accept(T t) {
+					partition.add(t);
+				}
+			});
+		}
 
-						/*
-						 * I am the relationship child, fill my reference to the
-						 * parent object
-						 */
-						if (relationship.parent == null) {
+		long count = scanRanges(whereClause, whereArgs, boundaries, scanConsumers);
+		List<T> list = new ArrayList<T>((int) count);
+		for (List<T> partition : partitions)
+			list.addAll(partition);
+		return list;
+	}
 
-							ObjectModel<?,?,?> parentObjectModel = getDatabaseModel().getObjectModel(relationship.parentType);
+	/**
+	 * Splits the span between the table's lowest and highest ROWID into ranges
+	 * of equal width. Only MIN(ROWID) and MAX(ROWID) are queried, which SQLite
+	 * answers from the ends of the table's b-tree without scanning it
+	 * 
+	 * @return the boundaries of the ranges. Range i runs from boundaries[i]
+	 *         inclusive to boundaries[i + 1] exclusive
+	 */
+	private long[] getRowIdBoundaries(int parallelism) throws SQLException {
+		if (parallelism < 1)
+			throw new IllegalArgumentException("parallelism must be greater than 0");
+
+		flushPendingWrites();
+		DatabaseDriverInterface<R, C> databaseDriverInterface = getDatabaseModel().getDatabaseDriverInterface();
+		int firstColumnIndex = databaseDriverInterface.getFirstColumnIndex();
+		long min;
+		long max;
+		R r = databaseDriverInterface.query(getTableName(), new String[] { "MIN(ROWID)", "MAX(ROWID)" }, null, null, null, null, null, null);
+		try {
+			if (!databaseDriverInterface.next(r) || databaseDriverInterface.isNull(r, firstColumnIndex))
+				return new long[0];
+			min = databaseDriverInterface.getLong(r, firstColumnIndex);
+			max = databaseDriverInterface.getLong(r, firstColumnIndex + 1);
+		} finally {
+			databaseDriverInterface.close(r);
+		}
 
-							String whereClause = relationship.parentKeyField.getName() + " = ? ";
-							Object[] whereArgs = new String[] { field.get(t).toString() };
+		// The number of ROWIDs in the span, which only overflows if they cover
+		// most of the range of a long
+		long width = max - min + 1;
+		parallelism = Math.min(parallelism, Runtime.getRuntime().availableProcessors());
+		int partitions = width <= 0 ? 1 : (int) Math.min(parallelism, width);
+		long[] boundaries = new long[partitions + 1];
+		boundaries[0] = min;
+		boundaries[partitions] = max + 1;
+		for (int i = 1; i < partitions; i++)
+			boundaries[i] = min + width / partitions * i + width % partitions * i / partitions;
+		return boundaries;
+	}
 
-							switch (relationship.type) {
-							case MANY_TO_MANY:
-								break;
-							case ONE_TO_MANY:
-							case ONE_TO_ONE:
-								relationship.parent = parentObjectModel.getFirst(whereClause, whereArgs);
-								break;
-							}
+	private long scanRanges(final String whereClause, final Object[] whereArgs, long[] boundaries, List<ScanConsumer<T>> scanConsumers) throws SQLException {
+		if (boundaries.length < 2)
+			return 0;
 
-						}
-						if (relationship.childReferenceField != null) {
-							boolean accessible = relationship.childReferenceField.isAccessible();
-							relationship.childReferenceField.setAccessible(true);
-							relationship.childReferenceField.set(t, relationship.parent);
-							relationship.childReferenceField.setAccessible(accessible);
-						}
+		ExecutorService executorService = Executors.newFixedThreadPool(boundaries.length - 1);
+		try {
+			List<Future<Long>> futures = new ArrayList<Future<Long>>(boundaries.length - 1);
+			for (int i = 0; i < boundaries.length - 1; i++) {
+				final long from = boundaries[i];
+				final long to = boundaries[i + 1];
+				final ScanConsumer<T> scanConsumer = scanConsumers.get(i);
+				futures.add(executorService.submit(new Callable<Long>() {
+					@Override
+					public Long call() throws SQLException {
+						return scanRange(whereClause, whereArgs, from, to, scanConsumer);
 					}
+				}));
+			}
 
+			long count = 0;
+			for (Future<Long> future : futures) {
+				try {
+					count += future.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new SQLException("Interrupted while scanning " + getTableName(), e);
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof SQLException)
+						throw (SQLException) e.getCause();
+					throw new SQLException("Unable to scan " + getTableName(), e.getCause());
 				}
+			}
+			return count;
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
 
-				objectModelColumnIndex++;
-
+	/**
+	 * Scans a single ROWID range on its own read-only connection
+	 */
+	private long scanRange(String whereClause, Object[] whereArgs, long from, long to, ScanConsumer<T> scanConsumer) throws SQLException {
+		List<Object> args = new ArrayList<Object>();
+		if (whereArgs != null)
+			args.addAll(Arrays.asList(whereArgs));
+		args.add(from);
+		args.add(to);
+		String rangeWhereClause = "ROWID >= ? AND ROWID < ?";
+		if (whereClause != null && !whereClause.trim().isEmpty())
+			rangeWhereClause = "(" + whereClause + ") AND " + rangeWhereClause;
+
+		getColumnFields();
+		DatabaseDriverInterface<R, C> connection = getDatabaseModel().getDatabaseDriverInterface().openReadOnlyConnection();
+		try {
+			R r = connection.query(getTableName(), getColumnNames(), rangeWhereClause, args.toArray(), null, null, "ROWID", null, getFetchSize());
+			long count = 0;
+			try {
+				while (connection.next(r)) {
+					T t;
+					try {
+						t = getObjetType().newInstance();
+					} catch (InstantiationException | IllegalAccessException e) {
+						throw new SQLException("Unable to instantiate " + getObjetType().getName(), e);
+					}
+					scanConsumer.accept(fillInstance(t, r, connection));
+					count++;
+				}
+			} finally {
+				connection.close(r);
 			}
-			return t;
-		} catch (NoSuchFieldException | SecurityException | SQLException | IllegalArgumentException | IllegalAccessException | InstantiationException e) {
-			e.printStackTrace();
-			return null;
+			return count;
+		} finally {
+			connection.disconnect();
 		}
 	}
 
 	/**
-	 * Creates the table for this object in the SQLite database according to the
-	 * ObjectModelColumns declared in the concrete subclass constructor.
+	 * Reads the given columns of a query's results straight into the
+	 * primitive arrays of a ColumnBatch without creating any objects. Integer,
+	 * boolean, Date and Calendar columns are read as int or long, floating
+	 * point columns as double, and text, char and enum columns are dictionary
+	 * encoded.
 	 * 
+	 * @param whereClause
+	 *            The optional WHERE clause to apply to the query. Passing null
+	 *            will select all rows
+	 * @param whereArgs
+	 *            Question marks in the whereClause String will be replaced with
+	 *            these whereArgs in order. (where id = ?)
+	 * @param columnNames
+	 *            the names of the columns to read
+	 * @return <b>ColumnBatch</b> the values of the columns
 	 * @throws SQLException
-	 * @since 0.1
+	 * @throws IllegalArgumentException
+	 *             if a column does not exist or has a type that cannot be held
+	 *             in a ColumnBatch
+	 * @since 0.2
 	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
 	 */
-	protected void onCreateTable() throws SQLException {
-		StringBuilder sql = new StringBuilder("CREATE TABLE IF NOT EXISTS " + getTableName());
-		sql.append(" ( ");
+	public ColumnBatch columns(String whereClause, Object[] whereArgs, String... columnNames) throws SQLException {
+		if (columnNames.length == 0)
+			throw new IllegalArgumentException("At least one column is required");
+
+		ColumnBatch.ColumnType[] types = new ColumnBatch.ColumnType[columnNames.length];
+		for (int i = 0; i < columnNames.length; i++) {
+			ObjectModelColumn objectModelColumn = getObjectModelColumn(columnNames[i]);
+			if (objectModelColumn == null)
+				throw new IllegalArgumentException(getTableName() + " has no column named " + columnNames[i]);
+			types[i] = getColumnType(objectModelColumn.getType());
+			if (types[i] == null)
+				throw new IllegalArgumentException("The column " + columnNames[i] + " of type " + objectModelColumn.getType().getName() + " cannot be read into a ColumnBatch");
+		}
 
-		boolean hasPrimaryKey = false;
-		int primaryKeys = 0;
-		for (ObjectModelColumn objectModelColumn : this.getObjectModelColumns()) {
-			if (objectModelColumn.isPrimaryKey()) {
-				if (!hasPrimaryKey) {
-					hasPrimaryKey = true;
+		ColumnBatch columnBatch = new ColumnBatch(columnNames.clone(), types);
+		DatabaseDriverInterface<R, C> databaseDriverInterface = getDatabaseModel().getDatabaseDriverInterface();
+		int firstColumnIndex = databaseDriverInterface.getFirstColumnIndex();
+		R r = query(columnNames, whereClause, whereArgs, null, null, null, null, getFetchSize());
+		try {
+			while (databaseDriverInterface.next(r)) {
+				columnBatch.ensureCapacity();
+				for (int i = 0; i < types.length; i++) {
+					int index = firstColumnIndex + i;
+					if (databaseDriverInterface.isNull(r, index)) {
+						columnBatch.setNull(i);
+						continue;
+					}
+					switch (types[i]) {
+					case INT:
+						columnBatch.setInt(i, (int) databaseDriverInterface.getLong(r, index));
+						break;
+					case LONG:
+						columnBatch.setLong(i, databaseDriverInterface.getLong(r, index));
+						break;
+					case DOUBLE:
+						columnBatch.setDouble(i, databaseDriverInterface.getDouble(r, index));
+						break;
+					case STRING:
+						columnBatch.setString(i, databaseDriverInterface.getString(r, index));
+						break;
+					}
 				}
-				primaryKeys++;
+				columnBatch.nextRow();
 			}
+		} finally {
+			databaseDriverInterface.close(r);
 		}
+		columnBatch.trim();
+		return columnBatch;
+	}
 
-		int columnIndex = 0;
-		for (ObjectModelColumn objectModelColumn : this.getObjectModelColumns()) {
-			sql.append(objectModelColumn.getName());
+	private static ColumnBatch.ColumnType getColumnType(Class<?> type) {
+		if (type == boolean.class || type == Boolean.class || type == byte.class || type == Byte.class || type == short.class || type == Short.class || type == int.class
+				|| type == Integer.class)
+			return ColumnBatch.ColumnType.INT;
+		if (type == long.class || type == Long.class || type == Date.class || type == Calendar.class)
+			return ColumnBatch.ColumnType.LONG;
+		if (type == float.class || type == Float.class || type == double.class || type == Double.class)
+			return ColumnBatch.ColumnType.DOUBLE;
+		if (type == String.class || type == char.class || type == Character.class || type.isEnum())
+			return ColumnBatch.ColumnType.STRING;
+		return null;
+	}
 
-			if (objectModelColumn.primaryKey && objectModelColumn.autoIncrement) {
-				sql.append(" INTEGER");
-			} else if (objectModelColumn.getType() == char.class) {
-				sql.append(" TEXT");
-			} else if (objectModelColumn.getType() == char[].class) {
-				sql.append(" TEXT");
-			} else if (objectModelColumn.getType() == String.class) {
-				sql.append(" TEXT");
-			} else if (objectModelColumn.getType() == boolean.class || objectModelColumn.getType() == Boolean.class) {
-				sql.append(" TINYINT");
-			} else if (objectModelColumn.getType() == byte.class || objectModelColumn.getType() == Byte.class) {
-				sql.append(" TINYINT");
-			} else if (objectModelColumn.getType() == short.class || objectModelColumn.getType() == Short.class) {
-				sql.append("SMALLINT");
-			} else if (objectModelColumn.getType() == int.class || objectModelColumn.getType() == Integer.class) {
-				sql.append(" INT");
-			} else if (objectModelColumn.getType() == long.class || objectModelColumn.getType() == Long.class) {
-				sql.append(" BIGINT");
-			} else if (objectModelColumn.getType() == float.class || objectModelColumn.getType() == Float.class) {
-				sql.append(" FLOAT");
-			} else if (objectModelColumn.getType() == double.class || objectModelColumn.getType() == Double.class) {
-				sql.append(" DOUBLE");
-			} else if (objectModelColumn.getType() == Date.class) {
-				sql.append(" DATETIME");
-			} else if (objectModelColumn.getType() == Calendar.class) {
-				sql.append(" DATETIME");
-			} else if (objectModelColumn.getType() == byte[].class) {
-				sql.append(" BLOB");
-			} else {
-				sql.append(" BLOB");
-			}
+	/**
+	 * @param format
+	 *            the output format
+	 * @return <b>Exporter</b> a new Exporter which streams this ObjectModel's
+	 *         table to an OutputStream in the given format
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public Exporter<R, C> exporter(Exporter.Format format) {
+		return new Exporter<R, C>(this, format);
+	}
 
-			if (objectModelColumn.isPrimaryKey() && primaryKeys == 1) {
-				sql.append(" PRIMARY KEY");
-				if (objectModelColumn.isAutoIncrement())
-					sql.append(" AUTOINCREMENT");
-			}
+	/**
+	 * @param format
+	 *            the format of the files to import
+	 * @return <b>Importer</b> a new Importer which loads files in the given
+	 *         format into this ObjectModel's table
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public Importer<R, C> importer(Exporter.Format format) {
+		return new Importer<R, C>(this, format);
+	}
+
+	/**
+	 * Publishes the results of a query with backpressure. Rows are read and
+	 * hydrated only as Subscribers request them, on the thread calling
+	 * Subscription.request().
+	 * 
+	 * @param whereClause
+	 *            The optional WHERE clause to apply to the query. Passing null
+	 *            will select all rows
+	 * @param whereArgs
+	 *            Question marks in the whereClause String will be replaced with
+	 *            these whereArgs in order. (where id = ?)
+	 * @param orderBy
+	 *            The optional ORDER BY clause to apply to the query
+	 * @return <b>ResultPublisher&ltT&gt</b> a publisher of the query's results
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public ResultPublisher<T> publish(String whereClause, Object[] whereArgs, String orderBy) {
+		return publish(whereClause, whereArgs, orderBy, null);
+	}
 
-			if (objectModelColumn.isUnique() && !objectModelColumn.isPrimaryKey()) {
-				sql.append(" UNIQUE");
-			}
+	/**
+	 * Publishes the results of a query with backpressure, delivering rows on
+	 * the given Executor
+	 * 
+	 * @param whereClause
+	 *            The optional WHERE clause to apply to the query. Passing null
+	 *            will select all rows
+	 * @param whereArgs
+	 *            Question marks in the whereClause String will be replaced with
+	 *            these whereArgs in order. (where id = ?)
+	 * @param orderBy
+	 *            The optional ORDER BY clause to apply to the query
+	 * @param executor
+	 *            the Executor on which rows are read and delivered
+	 * @return <b>ResultPublisher&ltT&gt</b> a publisher of the query's results
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public ResultPublisher<T> publish(String whereClause, Object[] whereArgs, String orderBy, Executor executor) {
+		return new ResultPublisher<T>(this, whereClause, whereArgs, orderBy, executor);
+	}
 
-			if (!objectModelColumn.isNullable())
-				sql.append(" NOT NULL");
-			if (columnIndex++ < objectModelColumns.length - 1)
-				sql.append(", ");
-		}
+	/**
+	 * @return <b>long</b> the number of rows in the ObjectModel's table
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public long count() throws SQLException {
+		return count(null, new Object[0]);
+	}
 
-		if (primaryKeys > 1) {
-			int primaryKeyIndex = 0;
-			sql.append(", ");
-			sql.append(" PRIMARY KEY(");
+	/**
+	 * Counts the rows matching a query without reading them
+	 * 
+	 * @param whereClause
+	 *            The optional WHERE clause to apply to the query. Passing null
+	 *            will count all rows
+	 * @param whereArgs
+	 *            Question marks in the whereClause String will be replaced with
+	 *            these whereArgs in order. (where id = ?)
+	 * @return <b>long</b> the number of matching rows
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public long count(String whereClause, Object... whereArgs) throws SQLException {
+		List<T> list = getPreloadedResults(whereClause, whereArgs, null, null);
+		if (list != null)
+			return list.size();
+		return (Long) aggregate(Aggregate.COUNT, null, whereClause, whereArgs);
+	}
 
-			for (ObjectModelColumn databaseEntityColumn : this.getObjectModelColumns()) {
-				if (databaseEntityColumn.isPrimaryKey()) {
-					if (primaryKeyIndex++ != 0)
-						sql.append(", ");
-					sql.append(databaseEntityColumn.getName());
-				}
-			}
-			sql.append(")");
-		}
+	/**
+	 * Checks whether any row matches a query, reading at most one row
+	 * 
+	 * @param whereClause
+	 *            The optional WHERE clause to apply to the query. Passing null
+	 *            will check for any row
+	 * @param whereArgs
+	 *            Question marks in the whereClause String will be replaced with
+	 *            these whereArgs in order. (where id = ?)
+	 * @return <b>boolean</b> true if at least one row matches
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public boolean exists(String whereClause, Object... whereArgs) throws SQLException {
+		List<T> list = getPreloadedResults(whereClause, whereArgs, null, 1);
+		if (list != null)
+			return !list.isEmpty();
 
-		columnIndex = 0;
-		for (ObjectModelColumn databaseEntityColumn : this.getObjectModelColumns()) {
-			if (databaseEntityColumn.getForeignKeyParentTable() != null && databaseEntityColumn.getForeignKeyParentColumn() != null) {
-				sql.append(", ");
-				sql.append(" FOREIGN KEY(");
-				sql.append(databaseEntityColumn.getName());
-				sql.append(")");
-				sql.append(" REFERENCES ");
-				sql.append(databaseEntityColumn.getForeignKeyParentTable());
-				sql.append("(");
-				sql.append(databaseEntityColumn.getForeignKeyParentColumn());
-				sql.append(")");
-			}
-			columnIndex++;
+		DatabaseDriverInterface<R, C> databaseDriverInterface = getDatabaseModel().getDatabaseDriverInterface();
+		R r = query(new String[] { "1" }, whereClause, whereArgs, null, null, null, 1, 0);
+		try {
+			return databaseDriverInterface.next(r);
+		} finally {
+			databaseDriverInterface.close(r);
 		}
-		sql.append(")");
-
-		getDatabaseModel().getDatabaseDriverInterface().execute(sql.toString());
 	}
 
 	/**
+	 * @param columnName
+	 *            the numeric column to sum
 	 * @param whereClause
 	 *            The optional WHERE clause to apply to the query. Passing null
 	 *            will select all rows
-	 * @return <b>T</b> The first instance returned by the query
+	 * @param whereArgs
+	 *            Question marks in the whereClause String will be replaced with
+	 *            these whereArgs in order. (where id = ?)
+	 * @return <b>Number</b> the sum of the column's values, a Long for integer
+	 *         columns and a Double for floating point columns, or null if no
+	 *         row has a value
+	 * @throws SQLException
+	 * @since 0.2
 	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
-	 * @throws SQLException 
-	 * @since 0.1
 	 */
-	public T getFirst(String whereClause) throws SQLException {
-		return getFirst(whereClause, (Object[])null);
+	public Number sum(String columnName, String whereClause, Object... whereArgs) throws SQLException {
+		return (Number) aggregate(Aggregate.SUM, columnName, whereClause, whereArgs);
 	}
 
 	/**
+	 * @param columnName
+	 *            the column whose smallest value is returned
 	 * @param whereClause
 	 *            The optional WHERE clause to apply to the query. Passing null
 	 *            will select all rows
 	 * @param whereArgs
 	 *            Question marks in the whereClause String will be replaced with
 	 *            these whereArgs in order. (where id = ?)
-	 * @return <b>T</b> The first instance returned by the query
+	 * @return <b>Object</b> the smallest value of the column, converted to the
+	 *         column's type, or null if no row has a value
+	 * @throws SQLException
+	 * @since 0.2
 	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
-	 * @throws SQLException 
-	 * @since 0.1
 	 */
-	public  T getFirst(String whereClause, Object... whereArgs) throws SQLException{
-		return getFirst(whereClause, whereArgs, null);
+	public Object min(String columnName, String whereClause, Object... whereArgs) throws SQLException {
+		return aggregate(Aggregate.MIN, columnName, whereClause, whereArgs);
 	}
 
 	/**
+	 * @param columnName
+	 *            the column whose largest value is returned
 	 * @param whereClause
 	 *            The optional WHERE clause to apply to the query. Passing null
 	 *            will select all rows
 	 * @param whereArgs
 	 *            Question marks in the whereClause String will be replaced with
 	 *            these whereArgs in order. (where id = ?)
-	 * @param orderBy
-	 *            a comma delimited list of the column names to order the
-	 *            returned results by
-	 * @return <b>T</b> The first instance returned by the query
+	 * @return <b>Object</b> the largest value of the column, converted to the
+	 *         column's type, or null if no row has a value
+	 * @throws SQLException
+	 * @since 0.2
 	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
-	 * @throws SQLException 
-	 * @since 0.1
 	 */
-	public abstract T getFirst(String whereClause, Object[] whereArgs, String orderBy) throws SQLException;
-	
+	public Object max(String columnName, String whereClause, Object... whereArgs) throws SQLException {
+		return aggregate(Aggregate.MAX, columnName, whereClause, whereArgs);
+	}
+
 	/**
-	 * @return <b>List&ltT&gt</b> a List of the objects returned by the query
+	 * @param columnName
+	 *            the numeric column to average
+	 * @param whereClause
+	 *            The optional WHERE clause to apply to the query. Passing null
+	 *            will select all rows
+	 * @param whereArgs
+	 *            Question marks in the whereClause String will be replaced with
+	 *            these whereArgs in order. (where id = ?)
+	 * @return <b>Double</b> the average of the column's values or null if no
+	 *         row has a value
 	 * @throws SQLException
-	 * @since 0.1
+	 * @since 0.2
 	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
 	 */
-	public List<T> getAll() throws SQLException {
-		return getAll(null);
+	public Double avg(String columnName, String whereClause, Object... whereArgs) throws SQLException {
+		return (Double) aggregate(Aggregate.AVG, columnName, whereClause, whereArgs);
 	}
 
 	/**
+	 * Computes an aggregate for each distinct value of a column in a single
+	 * GROUP BY query
+	 * 
+	 * @param groupByColumnName
+	 *            the column whose distinct values are the keys of the Map
+	 * @param aggregate
+	 *            the aggregate to compute for each group
+	 * @param columnName
+	 *            the column to aggregate, which may be null for COUNT to count
+	 *            the rows of each group
 	 * @param whereClause
 	 *            The optional WHERE clause to apply to the query. Passing null
 	 *            will select all rows
-	 * @return <b>List&ltT&gt</b> a List of the objects returned by the query
+	 * @param whereArgs
+	 *            Question marks in the whereClause String will be replaced with
+	 *            these whereArgs in order. (where id = ?)
+	 * @return <b>Map&ltObject,Object&gt</b> the aggregate of each group, keyed
+	 *         by the group's value converted to the column's type and ordered
+	 *         by that value
 	 * @throws SQLException
-	 * @since 0.1
+	 * @since 0.2
 	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
 	 */
-	public List<T> getAll(String whereClause) throws SQLException {
-		return getAll(whereClause, (Object[])null);
+	public Map<Object, Object> groupBy(String groupByColumnName, Aggregate aggregate, String columnName, String whereClause, Object... whereArgs) throws SQLException {
+		ObjectModelColumn groupByColumn = getObjectModelColumn(groupByColumnName);
+		if (groupByColumn == null || getColumnType(groupByColumn.getType()) == null)
+			throw new IllegalArgumentException(getTableName() + " has no column named " + groupByColumnName + " which can be grouped by");
+		ObjectModelColumn objectModelColumn = getAggregateColumn(aggregate, columnName);
+
+		Map<Object, Object> groups = new LinkedHashMap<Object, Object>();
+		DatabaseDriverInterface<R, C> databaseDriverInterface = getDatabaseModel().getDatabaseDriverInterface();
+		int firstColumnIndex = databaseDriverInterface.getFirstColumnIndex();
+		R r = query(new String[] { groupByColumn.getName(), getAggregateExpression(aggregate, objectModelColumn) }, whereClause, whereArgs, groupByColumn.getName(), null,
+				groupByColumn.getName(), null, 0);
+		try {
+			while (databaseDriverInterface.next(r)) {
+				// Group keys are converted to the column's type in the same way as a MIN or MAX
+				groups.put(getAggregateValue(databaseDriverInterface, r, firstColumnIndex, Aggregate.MIN, groupByColumn),
+						getAggregateValue(databaseDriverInterface, r, firstColumnIndex + 1, aggregate, objectModelColumn));
+			}
+		} finally {
+			databaseDriverInterface.close(r);
+		}
+		return groups;
+	}
+
+	private Object aggregate(Aggregate aggregate, String columnName, String whereClause, Object[] whereArgs) throws SQLException {
+		ObjectModelColumn objectModelColumn = getAggregateColumn(aggregate, columnName);
+		DatabaseDriverInterface<R, C> databaseDriverInterface = getDatabaseModel().getDatabaseDriverInterface();
+		R r = query(new String[] { getAggregateExpression(aggregate, objectModelColumn) }, whereClause, whereArgs, null, null, null, null, 0);
+		try {
+			if (!databaseDriverInterface.next(r))
+				return null;
+			return getAggregateValue(databaseDriverInterface, r, databaseDriverInterface.getFirstColumnIndex(), aggregate, objectModelColumn);
+		} finally {
+			databaseDriverInterface.close(r);
+		}
+	}
+
+	/**
+	 * @return the ObjectModelColumn to aggregate, or null for COUNT(*)
+	 */
+	private ObjectModelColumn getAggregateColumn(Aggregate aggregate, String columnName) {
+		if (columnName == null) {
+			if (aggregate == Aggregate.COUNT)
+				return null;
+			throw new IllegalArgumentException("A column is required to compute the " + aggregate + " of");
+		}
+		ObjectModelColumn objectModelColumn = getObjectModelColumn(columnName);
+		if (objectModelColumn == null)
+			throw new IllegalArgumentException(getTableName() + " has no column named " + columnName);
+		ColumnBatch.ColumnType columnType = getColumnType(objectModelColumn.getType());
+		if (columnType == null || ((aggregate == Aggregate.SUM || aggregate == Aggregate.AVG) && columnType == ColumnBatch.ColumnType.STRING))
+			throw new IllegalArgumentException("The " + aggregate + " of the column " + columnName + " of type " + objectModelColumn.getType().getName() + " cannot be computed");
+		return objectModelColumn;
+	}
+
+	private static String getAggregateExpression(Aggregate aggregate, ObjectModelColumn objectModelColumn) {
+		return aggregate.name() + "(" + (objectModelColumn == null ? "*" : objectModelColumn.getName()) + ")";
+	}
+
+	/**
+	 * Reads an aggregate from a query's results. COUNT is read as a Long and
+	 * AVG as a Double. SUM is read as a Long or a Double depending on the
+	 * column. MIN and MAX are converted to the column's type, with Calendars
+	 * read as their time in milliseconds.
+	 */
+	private Object getAggregateValue(DatabaseDriverInterface<R, C> databaseDriverInterface, R r, int index, Aggregate aggregate, ObjectModelColumn objectModelColumn)
+			throws SQLException {
+		if (databaseDriverInterface.isNull(r, index))
+			return null;
+		if (aggregate == Aggregate.COUNT)
+			return databaseDriverInterface.getLong(r, index);
+		if (aggregate == Aggregate.AVG)
+			return databaseDriverInterface.getDouble(r, index);
+
+		Class<?> type = objectModelColumn.getType();
+		switch (getColumnType(type)) {
+		case INT:
+		case LONG:
+			long value = databaseDriverInterface.getLong(r, index);
+			if (aggregate == Aggregate.SUM)
+				return value;
+			if (type == boolean.class || type == Boolean.class)
+				return value != 0;
+			if (type == byte.class || type == Byte.class)
+				return (byte) value;
+			if (type == short.class || type == Short.class)
+				return (short) value;
+			if (type == int.class || type == Integer.class)
+				return (int) value;
+			if (type == Date.class)
+				return new Date(value);
+			return value;
+		case DOUBLE:
+			double real = databaseDriverInterface.getDouble(r, index);
+			if (aggregate != Aggregate.SUM && (type == float.class || type == Float.class))
+				return (float) real;
+			return real;
+		default:
+			String text = databaseDriverInterface.getString(r, index);
+			if (type.isEnum())
+				return toEnum(type, text);
+			if ((type == char.class || type == Character.class) && !text.isEmpty())
+				return text.charAt(0);
+			return text;
+		}
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Object toEnum(Class<?> type, String name) {
+		return Enum.valueOf((Class<? extends Enum>) type, name);
+	}
+
+	/**
+	 * @return <b>Criteria&ltT&gt</b> a new, empty Criteria query on this
+	 *         ObjectModel's table
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public Criteria<T> criteria() {
+		return new Criteria<T>(this);
+	}
+
+	/**
+	 * @return <b>Map&ltString,String&gt</b> the WHERE clause of each Criteria
+	 *         shape compiled against this ObjectModel
+	 */
+	Map<String, String> getCriteriaTemplates() {
+		return criteriaTemplates;
+	}
+
+	/**
+	 * @return <b>AsyncObjectModel&ltT,R,C&gt</b> a view of this ObjectModel
+	 *         whose operations run on the DatabaseModel's AsyncExecutor
+	 *         instead of blocking the calling thread
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public synchronized AsyncObjectModel<T, R, C> async() {
+		if (asyncObjectModel == null)
+			asyncObjectModel = new AsyncObjectModel<T, R, C>(this);
+		return asyncObjectModel;
+	}
+
+	/**
+	 * @return <b>Field[]</b> the accessible field of each ObjectModelColumn,
+	 *         in column order
+	 */
+	private Field[] getColumnFields() throws SQLException {
+		if (columnFields == null) {
+			ObjectModelColumn[] objectModelColumns = getObjectModelColumns();
+			Field[] fields = new Field[objectModelColumns.length];
+			byte[] codecs = new byte[objectModelColumns.length];
+			for (int i = 0; i < objectModelColumns.length; i++) {
+				try {
+					fields[i] = getObjetType().getDeclaredField(objectModelColumns[i].getName());
+				} catch (NoSuchFieldException e) {
+					throw new SQLException("No field matches the column " + objectModelColumns[i].getName(), e);
+				}
+				fields[i].setAccessible(true);
+				codecs[i] = fields[i].getType() == objectModelColumns[i].getType() ? getCodec(fields[i].getType()) : CODEC_OBJECT;
+			}
+			columnCodecs = codecs;
+			columnFields = fields;
+		}
+		return columnFields;
+	}
+
+	private static byte getCodec(Class<?> type) {
+		if (type == boolean.class)
+			return CODEC_BOOLEAN;
+		if (type == byte.class)
+			return CODEC_BYTE;
+		if (type == short.class)
+			return CODEC_SHORT;
+		if (type == int.class)
+			return CODEC_INT;
+		if (type == long.class)
+			return CODEC_LONG;
+		if (type == float.class)
+			return CODEC_FLOAT;
+		if (type == double.class)
+			return CODEC_DOUBLE;
+		return CODEC_OBJECT;
 	}
 
 	/**
@@ -798,16 +3059,29 @@ public abstract class ObjectModel<T, R, C> {
 	 * @param whereArgs
 	 *            Question marks in the whereClause String will be replaced with
 	 *            these whereArgs in order. (where id = ?)
-	 * @return <b>List&ltT&gt</b> a List of the objects returned by the query
+	 * @return <b>CloseableIterator&ltT&gt</b> an Iterator over the objects
+	 *         returned by the query
 	 * @throws SQLException
-	 * @since 0.1
+	 * @see #iterate(String, Object[], String)
+	 * @since 0.2
 	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
 	 */
-	public List<T> getAll(String whereClause, Object... whereArgs) throws SQLException {
-		return getAll(whereClause, whereArgs, null);
+	public CloseableIterator<T> iterate(String whereClause, Object... whereArgs) throws SQLException {
+		return iterate(whereClause, whereArgs, null);
 	}
 
 	/**
+	 * <p>
+	 * Queries the database and returns an Iterator which creates each object
+	 * from the open ResultSet or Cursor only when it is requested, so that
+	 * large tables can be scanned without holding every record in memory.
+	 * </p>
+	 * <p>
+	 * The underlying result is closed when the Iterator is exhausted or
+	 * closed. Errors reading the result are thrown as IllegalStateExceptions.
+	 * Preloaded tables and cached results are not used.
+	 * </p>
+	 * 
 	 * @param whereClause
 	 *            The optional WHERE clause to apply to the query. Passing null
 	 *            will select all rows
@@ -817,33 +3091,46 @@ public abstract class ObjectModel<T, R, C> {
 	 * @param orderBy
 	 *            a comma delimited list of the column names to order the
 	 *            returned results by
-	 * @return <b>List&ltT&gt</b> a List of the objects returned by the query
+	 * @return <b>CloseableIterator&ltT&gt</b> an Iterator over the objects
+	 *         returned by the query
 	 * @throws SQLException
-	 * @since 0.1
+	 * @since 0.2
 	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
 	 */
-	public List<T> getAll(String whereClause, Object[] whereArgs, String orderBy) throws SQLException {
-		return getAll(whereClause, whereArgs, orderBy, null);
+	public CloseableIterator<T> iterate(String whereClause, Object[] whereArgs, String orderBy) throws SQLException {
+		return iterate(whereClause, whereArgs, orderBy, getFetchSize());
 	}
 
 	/**
+	 * Returns an Iterator over the results of a query which reads the results
+	 * from the database <b>fetchSize</b> rows at a time
+	 * 
 	 * @param whereClause
-	 *            The optional WHERE clause to apply when deleting. Passing null
-	 *            will delete all rows
+	 *            The optional WHERE clause to apply to the query. Passing null
+	 *            will select all rows
 	 * @param whereArgs
 	 *            Question marks in the whereClause String will be replaced with
 	 *            these whereArgs in order. (where id = ?)
 	 * @param orderBy
 	 *            a comma delimited list of the column names to order the
 	 *            returned results by
-	 * @param limit
-	 *            an optional numeric limit on the number of results returned
-	 * @return <b>List&ltT&gt</b> a List of the objects returned by the query
+	 * @param fetchSize
+	 *            the number of rows to read at a time, overriding the
+	 *            ObjectModel's fetch size, or 0 to use the driver's default
+	 * @return <b>CloseableIterator&ltT&gt</b> an Iterator over the objects
+	 *         returned by the query
 	 * @throws SQLException
-	 * @since 0.1
+	 * @see #iterate(String, Object[], String)
+	 * @since 0.2
 	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
 	 */
-	public abstract List<T> getAll(String whereClause, Object[] whereArgs, String orderBy, Integer limit) throws SQLException;
+	public CloseableIterator<T> iterate(String whereClause, Object[] whereArgs, String orderBy, int fetchSize) throws SQLException {
+		return iterate(whereClause, whereArgs, orderBy, null, fetchSize);
+	}
+
+	CloseableIterator<T> iterate(String whereClause, Object[] whereArgs, String orderBy, Integer limit, int fetchSize) throws SQLException {
+		return new ResultIterator(getResultSet(whereClause, whereArgs, null, null, orderBy, limit, fetchSize));
+	}
 
 	/**
 	 * @param t
@@ -900,6 +3187,7 @@ public abstract class ObjectModel<T, R, C> {
 	/**
 	 * If an Object matching this objects primary key exists it is updated. If a
 	 * matching record does not exist, the Object is inserted into the database.
+	 * In write-behind mode the write is queued and 0 is returned.
 	 * 
 	 * @param t
 	 *            the Object to insert or update
@@ -912,6 +3200,9 @@ public abstract class ObjectModel<T, R, C> {
 	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
 	 */
 	public final int insertOrUpdate(T t) throws SQLException {
+		if (enqueueWrite(t, QueryType.UPDATE))
+			return 0;
+
 		StringBuilder whereClauseBuilder = new StringBuilder();
 		int primaryKeyCount = 0;
 		for (ObjectModelColumn objectModelColumn : getObjectModelColumns()) {
@@ -1119,6 +3410,62 @@ public abstract class ObjectModel<T, R, C> {
 	 */
 	public abstract int update(T t, String whereClause, Object... whereArgs) throws SQLException;
 
+	/**
+	 * <p>
+	 * Updates every record matching the <b>whereClause</b> with a single
+	 * UPDATE statement, without reading the records or overwriting the
+	 * columns that are not assigned. Increments and expressions are evaluated
+	 * by the database against each row's current values, so concurrent
+	 * increments are never lost.
+	 * </p>
+	 * <p>
+	 * Pending write-behind writes are flushed first. The ObjectModel's caches
+	 * and snapshot, and those of the ObjectModels that reference it, are
+	 * invalidated as for any other update.
+	 * </p>
+	 * 
+	 * @param whereClause
+	 *            The optional WHERE clause to apply when updating. Passing
+	 *            null will update all rows
+	 * @param whereArgs
+	 *            Question marks in the whereClause String will be replaced with
+	 *            these whereArgs in order. (where id = ?)
+	 * @param assignments
+	 *            the columns to assign and their values
+	 * @return <b>int</b> the number of rows affected.
+	 * @throws SQLException
+	 * @throws IllegalArgumentException
+	 *             if there are no assignments or an assigned column does not
+	 *             exist
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public final int updateWhere(String whereClause, Object[] whereArgs, Assignments assignments) throws SQLException {
+		if (assignments == null || assignments.isEmpty())
+			throw new IllegalArgumentException("At least one column must be assigned");
+		for (String columnName : assignments.getColumnNames()) {
+			if (getObjectModelColumn(columnName) == null)
+				throw new IllegalArgumentException(getTableName() + " has no column named " + columnName);
+		}
+
+		flushPendingWrites();
+
+		StringBuilder sqlBuilder = new StringBuilder("UPDATE ").append(getTableName()).append(" SET ").append(assignments.toSql());
+		if (whereClause != null)
+			sqlBuilder.append(" WHERE ").append(whereClause);
+
+		Object[] setArgs = assignments.getArgs();
+		Object[] bindArgs = setArgs;
+		if (whereClause != null && whereArgs != null && whereArgs.length > 0) {
+			bindArgs = Arrays.copyOf(setArgs, setArgs.length + whereArgs.length);
+			System.arraycopy(whereArgs, 0, bindArgs, setArgs.length, whereArgs.length);
+		}
+
+		int result = getDatabaseModel().getDatabaseDriverInterface().executeUpdate(sqlBuilder.toString(), bindArgs);
+		onTableChanged(QueryType.UPDATE, whereClause, whereArgs);
+		return result;
+	}
+
 	protected int insertOrUpdateRelatedChildObjects(T t) throws SQLException {
 		int result = 0;
 
@@ -1299,4 +3646,107 @@ public abstract class ObjectModel<T, R, C> {
 		return equal;
 	}
 
+	/**
+	 * @return a shallow copy of every instance field of the object, with
+	 *         Dates, Calendars and byte arrays copied as well, or null if the
+	 *         object cannot be copied
+	 */
+	T copyOf(T t) {
+		Field[] fields = copiedFields;
+		if (fields == null) {
+			List<Field> list = new ArrayList<Field>();
+			for (Class<?> c = getObjetType(); c != null && c != Object.class; c = c.getSuperclass()) {
+				for (Field field : c.getDeclaredFields()) {
+					if (!Modifier.isStatic(field.getModifiers())) {
+						field.setAccessible(true);
+						list.add(field);
+					}
+				}
+			}
+			fields = list.toArray(new Field[list.size()]);
+			copiedFields = fields;
+		}
+		try {
+			T copy = getObjetType().newInstance();
+			for (Field field : fields) {
+				Object value = field.get(t);
+				if (value instanceof Date)
+					value = ((Date) value).clone();
+				else if (value instanceof Calendar)
+					value = ((Calendar) value).clone();
+				else if (value instanceof byte[])
+					value = ((byte[]) value).clone();
+				field.set(copy, value);
+			}
+			return copy;
+		} catch (InstantiationException | IllegalAccessException | SecurityException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Stands in for an object held by the entity cache in a cached query
+	 * result
+	 */
+	private static final class CachedPrimaryKey {
+		final List<String> primaryKey;
+
+		CachedPrimaryKey(List<String> primaryKey) {
+			this.primaryKey = primaryKey;
+		}
+	}
+
+	/**
+	 * Creates the objects returned by iterate() one row at a time
+	 */
+	private class ResultIterator implements CloseableIterator<T> {
+		private final DatabaseDriverInterface<R, C> databaseDriverInterface;
+		private R r;
+		private boolean advanced;
+		private boolean hasNext;
+
+		ResultIterator(R r) {
+			this.databaseDriverInterface = getDatabaseModel().getDatabaseDriverInterface();
+			this.r = r;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (r == null)
+				return false;
+			if (!advanced) {
+				try {
+					hasNext = databaseDriverInterface.next(r);
+				} catch (SQLException e) {
+					close();
+					throw new IllegalStateException("Unable to read the next row of " + getTableName(), e);
+				}
+				advanced = true;
+				if (!hasNext)
+					close();
+			}
+			return hasNext;
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			advanced = false;
+			return getInstance(r);
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void close() {
+			if (r != null) {
+				databaseDriverInterface.close(r);
+				r = null;
+			}
+		}
+	}
 }
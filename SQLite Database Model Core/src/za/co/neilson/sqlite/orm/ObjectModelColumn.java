@@ -11,9 +11,12 @@
  */
 package za.co.neilson.sqlite.orm;
 
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 
@@ -35,6 +38,7 @@ public class ObjectModelColumn{
 	protected boolean unique = false;
 	
 	protected Set<Relationship> relationships;
+	protected List<ObjectModelIndex> indexes = new ArrayList<ObjectModelIndex>();
 	
 	public Set<Relationship> getRelationships() {
 		return relationships;
@@ -267,6 +271,45 @@ public class ObjectModelColumn{
 		this.unique = unique;
 	}
 
+	/**
+	 * @return <b>List&ltObjectModelIndex&gt</b> the secondary indexes which
+	 *         include this column
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public List<ObjectModelIndex> getIndexes() {
+		return Collections.unmodifiableList(indexes);
+	}
+
+	/**
+	 * @param index
+	 *            a secondary index which includes this column
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected void addIndex(ObjectModelIndex index) {
+		if (!indexes.contains(index))
+			indexes.add(index);
+	}
+
+	/**
+	 * @return <b>boolean</b> true if the column is unique or is the first
+	 *         column of a secondary index that holds every row, so that it
+	 *         can be searched without a table scan. Primary key columns are
+	 *         indexed by the table itself and are not considered
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public boolean isIndexed() {
+		if (unique)
+			return true;
+		for (ObjectModelIndex index : indexes) {
+			if (index.leadsWith(name) && !index.isPartial())
+				return true;
+		}
+		return false;
+	}
+
 	/**
 	 * @param type the Object type to check
 	 * @return <b>boolean</b> whether or not the specified Type is supported for ORM
@@ -0,0 +1,194 @@
+/* Copyright 2014 Sheldon Neilson www.neilson.co.za
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package za.co.neilson.sqlite.orm;
+
+import java.util.Locale;
+
+/**
+ * ObjectModelIndex represents a secondary index on the table of an
+ * ObjectModel, declared with the &#64;Index annotation or returned by
+ * ObjectModel.onInitializeObjectModelIndexes()
+ *
+ * @version 0.2
+ * @since 0.2
+ * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+ */
+public class ObjectModelIndex {
+
+	private final String name;
+	private final String tableName;
+	private final String[] columnNames;
+	private final boolean[] descending;
+	private final boolean unique;
+	private final String where;
+
+	/**
+	 * @param name
+	 *            the name of the index
+	 * @param tableName
+	 *            the table on which the index is created
+	 * @param columnNames
+	 *            the columns of the index, in order
+	 * @param descending
+	 *            whether each column is held in descending order
+	 * @param unique
+	 *            true if the indexed values must be unique
+	 * @param where
+	 *            the WHERE clause of a partial index or null
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public ObjectModelIndex(String name, String tableName, String[] columnNames, boolean[] descending, boolean unique, String where) {
+		if (columnNames == null || columnNames.length == 0)
+			throw new IllegalArgumentException("An index requires at least one column");
+		if (descending != null && descending.length != columnNames.length)
+			throw new IllegalArgumentException("An order is required for each column of the index");
+		this.name = name;
+		this.tableName = tableName;
+		this.columnNames = columnNames.clone();
+		this.descending = descending == null ? new boolean[columnNames.length] : descending.clone();
+		this.unique = unique;
+		this.where = where == null || where.trim().isEmpty() ? null : where.trim();
+	}
+
+	/**
+	 * @return <b>String</b> the name of the index
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return <b>String</b> the table on which the index is created
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public String getTableName() {
+		return tableName;
+	}
+
+	/**
+	 * @return <b>String[]</b> the columns of the index, in order
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public String[] getColumnNames() {
+		return columnNames.clone();
+	}
+
+	/**
+	 * @param columnIndex
+	 *            the position of a column in the index
+	 * @return <b>boolean</b> true if the column is held in descending order
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public boolean isDescending(int columnIndex) {
+		return descending[columnIndex];
+	}
+
+	/**
+	 * @return <b>boolean</b> true if the indexed values must be unique
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public boolean isUnique() {
+		return unique;
+	}
+
+	/**
+	 * @return <b>String</b> the WHERE clause of a partial index or null if
+	 *         the index holds every row
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public String getWhere() {
+		return where;
+	}
+
+	/**
+	 * @return <b>boolean</b> true if the index only holds the rows matching
+	 *         its WHERE clause
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public boolean isPartial() {
+		return where != null;
+	}
+
+	/**
+	 * @param columnName
+	 *            the name of a column
+	 * @return <b>boolean</b> true if the column is the first column of the
+	 *         index, so that the index can be searched by that column alone
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public boolean leadsWith(String columnName) {
+		return columnNames[0].equalsIgnoreCase(columnName);
+	}
+
+	/**
+	 * @return <b>String</b> the CREATE INDEX statement of the index, in the
+	 *         form in which SQLite records it in sqlite_master
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public String toSql() {
+		return toSql(false);
+	}
+
+	/**
+	 * @param ifNotExists
+	 *            true to include an IF NOT EXISTS clause
+	 * @return <b>String</b> the CREATE INDEX statement of the index
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public String toSql(boolean ifNotExists) {
+		StringBuilder sql = new StringBuilder(unique ? "CREATE UNIQUE INDEX " : "CREATE INDEX ");
+		if (ifNotExists)
+			sql.append("IF NOT EXISTS ");
+		sql.append(name).append(" ON ").append(tableName).append(" (");
+		for (int i = 0; i < columnNames.length; i++) {
+			if (i > 0)
+				sql.append(", ");
+			sql.append(columnNames[i]);
+			if (descending[i])
+				sql.append(" DESC");
+		}
+		sql.append(")");
+		if (where != null)
+			sql.append(" WHERE ").append(where);
+		return sql.toString();
+	}
+
+	@Override
+	public String toString() {
+		return toSql();
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof ObjectModelIndex))
+			return false;
+		ObjectModelIndex other = (ObjectModelIndex) o;
+		return toSql().equalsIgnoreCase(other.toSql());
+	}
+
+	@Override
+	public int hashCode() {
+		return toSql().toLowerCase(Locale.ENGLISH).hashCode();
+	}
+}
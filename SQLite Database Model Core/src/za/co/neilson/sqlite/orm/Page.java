@@ -0,0 +1,83 @@
+/* Copyright 2014 Sheldon Neilson www.neilson.co.za
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package za.co.neilson.sqlite.orm;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A page of the results of a query returned by ObjectModel.page()
+ *
+ * @param <T>
+ *            The object type held by the page
+ * @version 0.2
+ * @since 0.2
+ * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+ */
+public class Page<T> {
+
+	private final List<T> items;
+	private final PageToken nextPageToken;
+
+	/**
+	 * @param items
+	 *            the objects on the page
+	 * @param nextPageToken
+	 *            the token of the following page or null if this is the last
+	 *            page
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public Page(List<T> items, PageToken nextPageToken) {
+		this.items = Collections.unmodifiableList(items);
+		this.nextPageToken = nextPageToken;
+	}
+
+	/**
+	 * @return <b>List&ltT&gt</b> an unmodifiable List of the objects on the
+	 *         page
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public List<T> getItems() {
+		return items;
+	}
+
+	/**
+	 * @return <b>PageToken</b> the token to pass to ObjectModel.page() to
+	 *         fetch the following page, or null if this is the last page
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public PageToken getNextPageToken() {
+		return nextPageToken;
+	}
+
+	/**
+	 * @return <b>boolean</b> true if there is a following page
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public boolean hasNextPage() {
+		return nextPageToken != null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "Page [items=" + items.size() + ", hasNextPage=" + hasNextPage() + "]";
+	}
+}
@@ -0,0 +1,144 @@
+/* Copyright 2014 Sheldon Neilson www.neilson.co.za
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package za.co.neilson.sqlite.orm;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>
+ * An opaque continuation token identifying the position after the last
+ * record of a Page. It holds the values of the last record's ORDER BY and
+ * primary key columns, so fetching the following page costs the same however
+ * deep into the results it is.
+ * </p>
+ * <p>
+ * Tokens can be passed to clients as Strings with encode() and restored with
+ * decode(). A token may only be used with the query that produced it.
+ * </p>
+ *
+ * @version 0.2
+ * @since 0.2
+ * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+ */
+public final class PageToken {
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final int fingerprint;
+	private final List<String> values;
+
+	PageToken(int fingerprint, List<String> values) {
+		this.fingerprint = fingerprint;
+		this.values = Collections.unmodifiableList(new ArrayList<String>(values));
+	}
+
+	/**
+	 * @return <b>int</b> identifies the table and sort order the token was
+	 *         issued for
+	 */
+	int getFingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 * @return <b>List&ltString&gt</b> the values of the last record's sort
+	 *         columns, in sort order. A value may be null
+	 */
+	List<String> getValues() {
+		return values;
+	}
+
+	/**
+	 * @return <b>String</b> a URL safe String representation of the token
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public String encode() {
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		try {
+			DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream);
+			dataOutputStream.writeInt(fingerprint);
+			dataOutputStream.writeShort(values.size());
+			for (String value : values) {
+				dataOutputStream.writeBoolean(value != null);
+				if (value != null)
+					dataOutputStream.writeUTF(value);
+			}
+			dataOutputStream.flush();
+		} catch (IOException e) {
+			// Not thrown by a ByteArrayOutputStream
+			throw new IllegalStateException(e);
+		}
+
+		byte[] bytes = byteArrayOutputStream.toByteArray();
+		char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+			chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * @param token
+	 *            a String returned by encode()
+	 * @return <b>PageToken</b> the decoded token
+	 * @throws IllegalArgumentException
+	 *             if the String is not a valid token
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public static PageToken decode(String token) {
+		if (token == null || token.length() % 2 != 0)
+			throw new IllegalArgumentException("Invalid page token");
+
+		byte[] bytes = new byte[token.length() / 2];
+		for (int i = 0; i < bytes.length; i++) {
+			int high = Character.digit(token.charAt(i * 2), 16);
+			int low = Character.digit(token.charAt(i * 2 + 1), 16);
+			if (high < 0 || low < 0)
+				throw new IllegalArgumentException("Invalid page token");
+			bytes[i] = (byte) ((high << 4) | low);
+		}
+
+		try {
+			DataInputStream dataInputStream = new DataInputStream(new ByteArrayInputStream(bytes));
+			int fingerprint = dataInputStream.readInt();
+			int count = dataInputStream.readUnsignedShort();
+			List<String> values = new ArrayList<String>(count);
+			for (int i = 0; i < count; i++)
+				values.add(dataInputStream.readBoolean() ? dataInputStream.readUTF() : null);
+			if (dataInputStream.available() > 0)
+				throw new IllegalArgumentException("Invalid page token");
+			return new PageToken(fingerprint, values);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Invalid page token", e);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return encode();
+	}
+}
@@ -71,4 +71,21 @@ public class Query {
 				|| type.equals(Integer.class) || type.equals(Short.class);
 	}
 
+	/**
+	 * @param tableName
+	 *            the table to insert into
+	 * @param columnNames
+	 *            the columns to bind
+	 * @return <b>String</b> an INSERT statement with a ? placeholder for each
+	 *         column
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public static String insertStatement(String tableName, String... columnNames) {
+		StringBuilder sqlBuilder = new StringBuilder("INSERT INTO ").append(tableName).append(" (").append(join(columnNames)).append(") VALUES (");
+		for (int i = 0; i < columnNames.length; i++)
+			sqlBuilder.append(i == 0 ? "?" : ", ?");
+		return sqlBuilder.append(")").toString();
+	}
+
 }
@@ -0,0 +1,317 @@
+/* Copyright 2014 Sheldon Neilson www.neilson.co.za
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package za.co.neilson.sqlite.orm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * A size bounded cache of the results of an ObjectModel's getAll() queries,
+ * keyed by the table, normalized WHERE clause, arguments, ORDER BY clause and
+ * limit of each query.
+ * </p>
+ * <p>
+ * Each result is stored with the table version it was computed against (see
+ * ObjectModel.getTableVersion()). A result is only returned while that
+ * version is current, so a write through any ObjectModel the query depends on
+ * invalidates it without the cache having to be searched. Results that are no
+ * longer valid are discarded when they are next looked up or when they are
+ * evicted as the least recently used.
+ * </p>
+ *
+ * @version 0.2
+ * @since 0.2
+ * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+ */
+public class QueryCache {
+
+	private final int maxEntries;
+	private final LinkedHashMap<Key, CachedResult> entries;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * @param maxEntries
+	 *            the maximum number of query results held by the cache
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public QueryCache(final int maxEntries) {
+		if (maxEntries < 1)
+			throw new IllegalArgumentException("maxEntries must be greater than 0");
+
+		this.maxEntries = maxEntries;
+		this.entries = new LinkedHashMap<Key, CachedResult>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, CachedResult> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * @param key
+	 *            the key of the query
+	 * @param version
+	 *            the current version of the tables the query depends on
+	 * @return <b>List&lt?&gt</b> the cached result, which must not be modified,
+	 *         or null if no result computed against the given version is held
+	 *         by the cache
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public List<?> get(Key key, long version) {
+		CachedResult entry;
+		synchronized (entries) {
+			entry = entries.get(key);
+			if (entry != null && entry.version != version) {
+				entries.remove(key);
+				entry = null;
+			}
+		}
+		if (entry == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return entry.rows;
+	}
+
+	/**
+	 * Records a miss for a result that was found but could not be used
+	 *
+	 * @param key
+	 *            the key of the query
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public void reject(Key key) {
+		synchronized (entries) {
+			entries.remove(key);
+		}
+		hits.decrementAndGet();
+		misses.incrementAndGet();
+	}
+
+	/**
+	 * @param key
+	 *            the key of the query
+	 * @param rows
+	 *            the result of the query
+	 * @param version
+	 *            the version of the tables the query depends on, taken before
+	 *            the query was made
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public void put(Key key, List<?> rows, long version) {
+		CachedResult entry = new CachedResult(new ArrayList<Object>(rows), version);
+		synchronized (entries) {
+			entries.put(key, entry);
+		}
+	}
+
+	/**
+	 * Removes every result from the cache
+	 *
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public void invalidateAll() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	/**
+	 * @return <b>int</b> the number of results held by the cache, including
+	 *         results that are no longer valid but have not been discarded
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * @return <b>int</b> the maximum number of results held by the cache
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	/**
+	 * @return <b>long</b> the number of lookups that found a valid result
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * @return <b>long</b> the number of lookups that did not find a valid
+	 *         result
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "QueryCache [size=" + size() + ", maxEntries=" + maxEntries + ", hits=" + hits + ", misses=" + misses + "]";
+	}
+
+	/**
+	 * Builds the key of a query. WHERE and ORDER BY clauses that differ only
+	 * in whitespace outside of quoted literals produce the same key.
+	 *
+	 * @param tableName
+	 *            the table queried
+	 * @param whereClause
+	 *            the WHERE clause of the query
+	 * @param whereArgs
+	 *            the arguments of the query
+	 * @param orderBy
+	 *            the ORDER BY clause of the query
+	 * @param limit
+	 *            the limit of the query
+	 * @return <b>Key</b> the key of the query
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public static Key key(String tableName, String whereClause, Object[] whereArgs, String orderBy, Integer limit) {
+		String[] args = new String[whereArgs == null ? 0 : whereArgs.length];
+		for (int i = 0; i < args.length; i++) {
+			Object value = whereArgs[i];
+			if (value instanceof Boolean) {
+				value = ((Boolean) value) ? 1 : 0;
+			} else if (value instanceof Date) {
+				value = ((Date) value).getTime();
+			} else if (value instanceof Calendar) {
+				value = ((Calendar) value).getTimeInMillis();
+			}
+			args[i] = value == null ? null : value.getClass().getSimpleName() + ":" + value;
+		}
+		return new Key(tableName, normalize(whereClause), args, normalize(orderBy), limit);
+	}
+
+	/**
+	 * Collapses runs of whitespace outside of quoted literals and trims the
+	 * clause
+	 */
+	private static String normalize(String clause) {
+		if (clause == null)
+			return null;
+
+		StringBuilder builder = new StringBuilder(clause.length());
+		char quote = 0;
+		boolean whitespace = false;
+		for (int i = 0; i < clause.length(); i++) {
+			char c = clause.charAt(i);
+			if (quote == 0 && Character.isWhitespace(c)) {
+				whitespace = true;
+				continue;
+			}
+			if (whitespace && builder.length() > 0)
+				builder.append(' ');
+			whitespace = false;
+			if (quote == 0 && (c == '\'' || c == '"')) {
+				quote = c;
+			} else if (c == quote) {
+				quote = 0;
+			}
+			builder.append(c);
+		}
+		return builder.length() == 0 ? null : builder.toString();
+	}
+
+	/**
+	 * Identifies a query held by a QueryCache
+	 *
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public static final class Key {
+		private final String tableName;
+		private final String whereClause;
+		private final String[] whereArgs;
+		private final String orderBy;
+		private final Integer limit;
+		private final int hashCode;
+
+		private Key(String tableName, String whereClause, String[] whereArgs, String orderBy, Integer limit) {
+			this.tableName = tableName;
+			this.whereClause = whereClause;
+			this.whereArgs = whereArgs;
+			this.orderBy = orderBy;
+			this.limit = limit;
+			this.hashCode = Arrays.hashCode(new Object[] { tableName, whereClause, Arrays.hashCode(whereArgs), orderBy, limit });
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return hashCode == other.hashCode && equal(tableName, other.tableName) && equal(whereClause, other.whereClause) && Arrays.equals(whereArgs, other.whereArgs)
+					&& equal(orderBy, other.orderBy) && equal(limit, other.limit);
+		}
+
+		@Override
+		public String toString() {
+			return "Key [tableName=" + tableName + ", whereClause=" + whereClause + ", whereArgs=" + Arrays.toString(whereArgs) + ", orderBy=" + orderBy + ", limit=" + limit + "]";
+		}
+
+		private static boolean equal(Object a, Object b) {
+			return a == null ? b == null : a.equals(b);
+		}
+	}
+
+	private static class CachedResult {
+		final List<Object> rows;
+		final long version;
+
+		CachedResult(List<Object> rows, long version) {
+			this.rows = rows;
+			this.version = version;
+		}
+	}
+}
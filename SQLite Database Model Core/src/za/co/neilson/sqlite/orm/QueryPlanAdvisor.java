@@ -0,0 +1,422 @@
+/* Copyright 2014 Sheldon Neilson www.neilson.co.za
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package za.co.neilson.sqlite.orm;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <p>
+ * A diagnostic which reads the query plan of each distinct query made through
+ * the ObjectModels of a DatabaseModel, so that missing indexes are found
+ * before they are noticed in production.
+ * </p>
+ * <p>
+ * The first time a query shape is seen - its table, WHERE clause with
+ * literals replaced by ?, GROUP BY and ORDER BY clauses - the advisor runs
+ * EXPLAIN QUERY PLAN for it and records whether SQLite scans the table
+ * without an index or sorts the results in a temporary B-tree. Later queries
+ * of the same shape only increment its count. Each Finding suggests an
+ * &#64;Index built from the columns the query filters and orders by.
+ * </p>
+ * <p>
+ * Enable the advisor with DatabaseModel.enableQueryPlanAdvisor(). It adds a
+ * query to the first execution of each shape and is intended for development
+ * and testing.
+ * </p>
+ *
+ * @version 0.2
+ * @since 0.2
+ * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+ */
+public class QueryPlanAdvisor {
+
+	private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+	private static final Pattern NUMERIC_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+	private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_]\\w*");
+	private static final Pattern EQUALITY = Pattern.compile("([A-Za-z_]\\w*)\\s*(?:=|==|\\bIS\\b|\\bIN\\b)", Pattern.CASE_INSENSITIVE);
+	private static final Pattern FULL_SCAN = Pattern.compile("^SCAN (?:TABLE )?+(\\w++)(?! USING (?:COVERING )?INDEX)(?! USING INTEGER PRIMARY KEY)", Pattern.CASE_INSENSITIVE);
+	private static final Pattern TEMP_SORT = Pattern.compile("USE TEMP B-TREE FOR (?:ORDER BY|GROUP BY|DISTINCT|RIGHT PART OF ORDER BY|LAST TERM OF ORDER BY)",
+			Pattern.CASE_INSENSITIVE);
+
+	/**
+	 * The query plan of a query shape and the number of times the shape has
+	 * been queried
+	 *
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public static class Finding {
+
+		private final String tableName;
+		private final String whereClause;
+		private final String groupBy;
+		private final String orderBy;
+		private final AtomicLong count = new AtomicLong();
+		private volatile List<String> plan = Collections.emptyList();
+		private volatile boolean fullScan;
+		private volatile boolean tempSort;
+		private volatile ObjectModelIndex suggestedIndex;
+
+		private Finding(String tableName, String whereClause, String groupBy, String orderBy) {
+			this.tableName = tableName;
+			this.whereClause = whereClause;
+			this.groupBy = groupBy;
+			this.orderBy = orderBy;
+		}
+
+		/**
+		 * @return <b>String</b> the table queried
+		 */
+		public String getTableName() {
+			return tableName;
+		}
+
+		/**
+		 * @return <b>String</b> the WHERE clause template of the query or null
+		 */
+		public String getWhereClause() {
+			return whereClause;
+		}
+
+		/**
+		 * @return <b>String</b> the GROUP BY clause of the query or null
+		 */
+		public String getGroupBy() {
+			return groupBy;
+		}
+
+		/**
+		 * @return <b>String</b> the ORDER BY clause of the query or null
+		 */
+		public String getOrderBy() {
+			return orderBy;
+		}
+
+		/**
+		 * @return <b>long</b> the number of times the query shape has been
+		 *         queried since the advisor was enabled
+		 */
+		public long getCount() {
+			return count.get();
+		}
+
+		/**
+		 * @return <b>List&ltString&gt</b> the detail lines of the query plan
+		 */
+		public List<String> getPlan() {
+			return plan;
+		}
+
+		/**
+		 * @return <b>boolean</b> true if SQLite reads every row of the table
+		 *         without an index
+		 */
+		public boolean isFullScan() {
+			return fullScan;
+		}
+
+		/**
+		 * @return <b>boolean</b> true if SQLite sorts or groups the results in
+		 *         a temporary B-tree
+		 */
+		public boolean isTempSort() {
+			return tempSort;
+		}
+
+		/**
+		 * @return <b>boolean</b> true if the query scans the table or sorts in
+		 *         a temporary B-tree
+		 */
+		public boolean isOffending() {
+			return fullScan || tempSort;
+		}
+
+		/**
+		 * @return <b>ObjectModelIndex</b> an index which would serve the
+		 *         query, or null if no column of the query could be indexed
+		 */
+		public ObjectModelIndex getSuggestedIndex() {
+			return suggestedIndex;
+		}
+
+		/**
+		 * @return <b>String</b> the suggested index as an &#64;Index
+		 *         annotation for the object type, or null
+		 */
+		public String getSuggestedAnnotation() {
+			ObjectModelIndex index = suggestedIndex;
+			if (index == null)
+				return null;
+			StringBuilder annotation = new StringBuilder("@Index(columns = { ");
+			String[] columnNames = index.getColumnNames();
+			for (int i = 0; i < columnNames.length; i++) {
+				if (i > 0)
+					annotation.append(", ");
+				annotation.append('"').append(columnNames[i]).append(index.isDescending(i) ? " DESC" : "").append('"');
+			}
+			return annotation.append(" })").toString();
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder text = new StringBuilder(tableName);
+			if (whereClause != null)
+				text.append(" WHERE ").append(whereClause);
+			if (groupBy != null)
+				text.append(" GROUP BY ").append(groupBy);
+			if (orderBy != null)
+				text.append(" ORDER BY ").append(orderBy);
+			return text.toString();
+		}
+	}
+
+	private final ConcurrentHashMap<String, Finding> findings = new ConcurrentHashMap<String, Finding>();
+
+	/**
+	 * QueryPlanAdvisor should not be instantiated directly. Use
+	 * DatabaseModel.enableQueryPlanAdvisor() instead.
+	 *
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected QueryPlanAdvisor() {
+	}
+
+	/**
+	 * Counts a query, reading its query plan if its shape has not been seen
+	 * before. Failures to read the plan are ignored so that diagnostics never
+	 * break the query being diagnosed.
+	 *
+	 * @param objectModel
+	 *            the ObjectModel making the query
+	 * @param whereClause
+	 *            the WHERE clause of the query or null
+	 * @param whereArgs
+	 *            the arguments of the WHERE clause
+	 * @param groupBy
+	 *            the GROUP BY clause of the query or null
+	 * @param having
+	 *            the HAVING clause of the query or null
+	 * @param orderBy
+	 *            the ORDER BY clause of the query or null
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public <R, C> void observe(ObjectModel<?, R, C> objectModel, String whereClause, Object[] whereArgs, String groupBy, String having, String orderBy) {
+		String tableName = objectModel.getTableName();
+		String template = normalize(whereClause);
+		String key = (tableName + '\u0000' + template + '\u0000' + normalize(groupBy) + '\u0000' + normalize(orderBy)).toLowerCase(Locale.ENGLISH);
+
+		Finding finding = findings.get(key);
+		if (finding == null) {
+			Finding newFinding = new Finding(tableName, template, normalize(groupBy), normalize(orderBy));
+			finding = findings.putIfAbsent(key, newFinding);
+			if (finding == null) {
+				finding = newFinding;
+				explain(objectModel, finding, whereClause, whereArgs, groupBy, having, orderBy);
+			}
+		}
+		finding.count.incrementAndGet();
+	}
+
+	/**
+	 * @return <b>List&ltFinding&gt</b> every query shape seen, the most
+	 *         frequently queried first
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public List<Finding> getFindings() {
+		List<Finding> list = new ArrayList<Finding>(findings.values());
+		Collections.sort(list, new Comparator<Finding>() {
+			@Override
+			public int compare(Finding a, Finding b) {
+				long difference = b.getCount() - a.getCount();
+				return difference < 0 ? -1 : difference > 0 ? 1 : 0;
+			}
+		});
+		return list;
+	}
+
+	/**
+	 * @return <b>List&ltFinding&gt</b> the query shapes which scan a table
+	 *         or sort in a temporary B-tree, the most frequently queried first
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public List<Finding> getOffendingFindings() {
+		List<Finding> list = getFindings();
+		for (int i = list.size() - 1; i >= 0; i--) {
+			if (!list.get(i).isOffending())
+				list.remove(i);
+		}
+		return list;
+	}
+
+	/**
+	 * @return <b>String</b> a report of the offending query shapes with their
+	 *         frequency, query plan and suggested index
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public String report() {
+		StringBuilder report = new StringBuilder();
+		for (Finding finding : getOffendingFindings()) {
+			report.append(finding.getCount()).append(" x ").append(finding).append('\n');
+			if (finding.isFullScan())
+				report.append("\tfull table scan\n");
+			if (finding.isTempSort())
+				report.append("\ttemporary B-tree sort\n");
+			for (String detail : finding.getPlan())
+				report.append("\tplan: ").append(detail).append('\n');
+			if (finding.getSuggestedAnnotation() != null)
+				report.append("\tsuggested: ").append(finding.getSuggestedAnnotation()).append('\n');
+		}
+		return report.toString();
+	}
+
+	/**
+	 * Forgets every query shape seen so far
+	 *
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public void clear() {
+		findings.clear();
+	}
+
+	private <R, C> void explain(ObjectModel<?, R, C> objectModel, Finding finding, String whereClause, Object[] whereArgs, String groupBy, String having, String orderBy) {
+		StringBuilder sql = new StringBuilder("EXPLAIN QUERY PLAN SELECT * FROM ").append(finding.tableName);
+		if (whereClause != null)
+			sql.append(" WHERE ").append(whereClause);
+		if (groupBy != null)
+			sql.append(" GROUP BY ").append(groupBy);
+		if (having != null)
+			sql.append(" HAVING ").append(having);
+		if (orderBy != null)
+			sql.append(" ORDER BY ").append(orderBy);
+
+		List<String> plan = new ArrayList<String>();
+		try {
+			DatabaseDriverInterface<R, C> databaseDriverInterface = objectModel.getDatabaseModel().getDatabaseDriverInterface();
+			R r = databaseDriverInterface.rawQuery(sql.toString(), whereClause == null || whereArgs == null ? new Object[0] : whereArgs);
+			try {
+				// The detail column is the last of the four columns of the plan
+				int detailIndex = databaseDriverInterface.getFirstColumnIndex() + 3;
+				while (databaseDriverInterface.next(r))
+					plan.add(databaseDriverInterface.getString(r, detailIndex));
+			} finally {
+				databaseDriverInterface.close(r);
+			}
+		} catch (SQLException e) {
+			plan.add("EXPLAIN QUERY PLAN failed: " + e.getMessage());
+			finding.plan = Collections.unmodifiableList(plan);
+			return;
+		}
+
+		boolean fullScan = false;
+		boolean tempSort = false;
+		for (String detail : plan) {
+			Matcher matcher = FULL_SCAN.matcher(detail.trim());
+			if (matcher.find() && matcher.group(1).equalsIgnoreCase(finding.tableName))
+				fullScan = true;
+			if (TEMP_SORT.matcher(detail).find())
+				tempSort = true;
+		}
+		finding.plan = Collections.unmodifiableList(plan);
+		finding.fullScan = fullScan;
+		finding.tempSort = tempSort;
+		if (fullScan || tempSort)
+			finding.suggestedIndex = suggestIndex(objectModel, finding.whereClause, groupBy != null ? groupBy : orderBy);
+	}
+
+	/**
+	 * Suggests an index on the columns compared for equality, followed by the
+	 * other columns of the WHERE clause and then the columns the results are
+	 * grouped or ordered by
+	 */
+	private static ObjectModelIndex suggestIndex(ObjectModel<?, ?, ?> objectModel, String whereClause, String orderBy) {
+		Set<String> equalityColumns = new LinkedHashSet<String>();
+		Set<String> otherColumns = new LinkedHashSet<String>();
+		if (whereClause != null) {
+			String unquoted = STRING_LITERAL.matcher(whereClause).replaceAll("?");
+			Matcher matcher = EQUALITY.matcher(unquoted);
+			while (matcher.find()) {
+				ObjectModelColumn objectModelColumn = objectModel.getObjectModelColumn(matcher.group(1));
+				if (objectModelColumn != null)
+					equalityColumns.add(objectModelColumn.getName());
+			}
+			matcher = IDENTIFIER.matcher(unquoted);
+			while (matcher.find()) {
+				ObjectModelColumn objectModelColumn = objectModel.getObjectModelColumn(matcher.group());
+				if (objectModelColumn != null && !equalityColumns.contains(objectModelColumn.getName()))
+					otherColumns.add(objectModelColumn.getName());
+			}
+		}
+
+		List<String> columnNames = new ArrayList<String>(equalityColumns);
+		List<Boolean> descending = new ArrayList<Boolean>();
+		for (int i = 0; i < columnNames.size(); i++)
+			descending.add(false);
+		// Only the first range column can be searched by the index
+		if (!otherColumns.isEmpty()) {
+			columnNames.add(otherColumns.iterator().next());
+			descending.add(false);
+		}
+		if (orderBy != null && otherColumns.isEmpty()) {
+			for (String term : orderBy.split(",")) {
+				Matcher matcher = ObjectModel.ORDER_BY_TERM.matcher(term);
+				if (!matcher.matches())
+					break;
+				ObjectModelColumn objectModelColumn = objectModel.getObjectModelColumn(matcher.group(1));
+				if (objectModelColumn == null)
+					break;
+				if (columnNames.contains(objectModelColumn.getName()))
+					continue;
+				columnNames.add(objectModelColumn.getName());
+				descending.add("DESC".equalsIgnoreCase(matcher.group(2)));
+			}
+		}
+		if (columnNames.isEmpty())
+			return null;
+
+		boolean[] order = new boolean[descending.size()];
+		StringBuilder name = new StringBuilder("idx_").append(objectModel.getTableName());
+		for (int i = 0; i < order.length; i++) {
+			order[i] = descending.get(i);
+			name.append('_').append(columnNames.get(i));
+		}
+		return new ObjectModelIndex(name.toString(), objectModel.getTableName(), columnNames.toArray(new String[columnNames.size()]), order, false, null);
+	}
+
+	/**
+	 * Replaces the literals of a clause with ? and collapses its whitespace, so
+	 * that queries which differ only in their values share a shape
+	 */
+	static String normalize(String clause) {
+		if (clause == null)
+			return null;
+		String normalized = STRING_LITERAL.matcher(clause).replaceAll("?");
+		normalized = NUMERIC_LITERAL.matcher(normalized).replaceAll("?");
+		return normalized.trim().replaceAll("\\s+", " ");
+	}
+}
@@ -0,0 +1,220 @@
+/* Copyright 2014 Sheldon Neilson www.neilson.co.za
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package za.co.neilson.sqlite.orm;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Streams the results of a query to Subscribers with backpressure, obtained
+ * from ObjectModel.publish().
+ * </p>
+ * <p>
+ * Each Subscriber gets its own cursor, which is opened on the first request.
+ * Rows are read and hydrated only as they are requested, and the cursor is
+ * closed when the results are exhausted, when an error occurs or when the
+ * Subscription is cancelled. No thread is held while there is no outstanding
+ * demand.
+ * </p>
+ * <p>
+ * Rows are delivered on the publisher's Executor or, if it has none, by the
+ * thread calling Subscription.request(). Calls to onNext(), onError() and
+ * onComplete() are never concurrent.
+ * </p>
+ *
+ * @param <T>
+ *            The object type published
+ * @version 0.2
+ * @since 0.2
+ * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+ */
+public class ResultPublisher<T> {
+
+	/**
+	 * Receives the objects published by a ResultPublisher
+	 * 
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public static interface Subscriber<T> {
+		public void onSubscribe(Subscription subscription);
+
+		public void onNext(T t);
+
+		public void onError(Throwable throwable);
+
+		public void onComplete();
+	}
+
+	/**
+	 * Links a Subscriber to a ResultPublisher
+	 * 
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public static interface Subscription {
+		public void request(long n);
+
+		public void cancel();
+	}
+
+	private static final Executor CALLING_THREAD = new Executor() {
+		@Override
+		public void execute(Runnable runnable) {
+			runnable.run();
+		}
+	};
+
+	private final ObjectModel<T, ?, ?> objectModel;
+	private final String whereClause;
+	private final Object[] whereArgs;
+	private final String orderBy;
+	private final Executor executor;
+
+	/**
+	 * ResultPublishers should not be instantiated directly. Use
+	 * ObjectModel.publish() instead.
+	 * 
+	 * @param objectModel
+	 *            the ObjectModel to query
+	 * @param whereClause
+	 *            the optional WHERE clause of the query
+	 * @param whereArgs
+	 *            the arguments of the query
+	 * @param orderBy
+	 *            the optional ORDER BY clause of the query
+	 * @param executor
+	 *            the Executor on which rows are delivered or null to deliver
+	 *            them on the thread calling Subscription.request()
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected ResultPublisher(ObjectModel<T, ?, ?> objectModel, String whereClause, Object[] whereArgs, String orderBy, Executor executor) {
+		this.objectModel = objectModel;
+		this.whereClause = whereClause;
+		this.whereArgs = whereArgs;
+		this.orderBy = orderBy;
+		this.executor = executor != null ? executor : CALLING_THREAD;
+	}
+
+	/**
+	 * Runs the query for a new Subscriber
+	 * 
+	 * @param subscriber
+	 *            the Subscriber to receive the results
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public void subscribe(Subscriber<? super T> subscriber) {
+		if (subscriber == null)
+			throw new NullPointerException("subscriber");
+		subscriber.onSubscribe(new ResultSubscription(subscriber));
+	}
+
+	private class ResultSubscription implements Subscription, Runnable {
+		private final Subscriber<? super T> subscriber;
+		private final AtomicLong demand = new AtomicLong();
+		private final AtomicInteger pending = new AtomicInteger();
+		private volatile boolean cancelled;
+		private volatile Throwable invalidRequest;
+		private CloseableIterator<T> iterator;
+		private boolean terminated;
+
+		ResultSubscription(Subscriber<? super T> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				invalidRequest = new IllegalArgumentException("The number of rows requested must be greater than 0");
+			} else {
+				long current;
+				long next;
+				do {
+					current = demand.get();
+					next = current + n < 0 ? Long.MAX_VALUE : current + n;
+				} while (!demand.compareAndSet(current, next));
+			}
+			schedule();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			schedule();
+		}
+
+		private void schedule() {
+			if (pending.getAndIncrement() == 0)
+				executor.execute(this);
+		}
+
+		/**
+		 * Drains the outstanding demand. Only one thread runs this at a time;
+		 * requests made while it runs, including from within onNext(), are
+		 * picked up before it returns.
+		 */
+		@Override
+		public void run() {
+			int missed = 1;
+			do {
+				drain();
+				missed = pending.addAndGet(-missed);
+			} while (missed != 0);
+		}
+
+		private void drain() {
+			if (terminated)
+				return;
+			if (cancelled) {
+				terminate();
+				return;
+			}
+			if (invalidRequest != null) {
+				terminate();
+				subscriber.onError(invalidRequest);
+				return;
+			}
+			try {
+				if (iterator == null && demand.get() > 0)
+					iterator = objectModel.iterate(whereClause, whereArgs, orderBy);
+				while (demand.get() > 0 && !cancelled) {
+					if (!iterator.hasNext()) {
+						terminate();
+						subscriber.onComplete();
+						return;
+					}
+					T t = iterator.next();
+					demand.decrementAndGet();
+					subscriber.onNext(t);
+				}
+			} catch (Exception e) {
+				terminate();
+				subscriber.onError(e);
+				return;
+			}
+			if (cancelled)
+				terminate();
+		}
+
+		private void terminate() {
+			terminated = true;
+			if (iterator != null) {
+				iterator.close();
+				iterator = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,336 @@
+/* Copyright 2014 Sheldon Neilson www.neilson.co.za
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package za.co.neilson.sqlite.orm;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * <p>
+ * A short lived unit of work obtained from DatabaseModel.openSession().
+ * </p>
+ * <p>
+ * A Session keeps a first-level cache (identity map) of every object it has
+ * read or written, keyed by the object's type and primary key. Lookups by
+ * primary key made through the Session are served from the identity map once
+ * the record has been loaded, and every query made through the Session returns
+ * the same instance for the same record.
+ * </p>
+ * <p>
+ * Sessions are intended to be used for the duration of a single request by a
+ * single thread and are not thread safe. Changes made to the database outside
+ * of the Session are not visible to objects it has already loaded; call
+ * clear() or evict() to discard them.
+ * </p>
+ *
+ * @param <R>
+ *            The type of the result collection returned by a query. Android
+ *            Returns a Cursor Object whilst JDBC returns a ResultSet
+ * @param <C>
+ *            The type of map used to map column names to column values.
+ *            Android requires the use of a ContentValues object whilst JDBC
+ *            simply uses a HashMap<String,Object>
+ * @version 0.2
+ * @since 0.2
+ * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+ */
+public class Session<R, C> {
+
+	private final DatabaseModel<R, C> databaseModel;
+	private final HashMap<Class<?>, HashMap<List<String>, Object>> identityMaps;
+	private boolean open;
+
+	/**
+	 * Sessions should not be instantiated directly. Use
+	 * DatabaseModel.openSession() instead.
+	 *
+	 * @param databaseModel
+	 *            the DatabaseModel through which the Session reads and writes
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected Session(DatabaseModel<R, C> databaseModel) {
+		this.databaseModel = databaseModel;
+		this.identityMaps = new HashMap<Class<?>, HashMap<List<String>, Object>>();
+		this.open = true;
+	}
+
+	/**
+	 * @param type
+	 *            the type of the object to retrieve
+	 * @param primaryKey
+	 *            the values of the object's primary key columns, in column
+	 *            order
+	 * @return <b>T</b> the object with the given primary key or null if no
+	 *         such record exists
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public <T> T get(Class<T> type, Object... primaryKey) throws SQLException {
+		ObjectModel<T, R, C> objectModel = getObjectModel(type);
+		List<String> key = ObjectModel.toPrimaryKey(primaryKey);
+		T t = type.cast(getIdentityMap(type).get(key));
+		if (t == null) {
+			t = objectModel.getByPrimaryKey(primaryKey);
+			if (t != null && key != null)
+				getIdentityMap(type).put(key, t);
+		}
+		return t;
+	}
+
+	/**
+	 * Queries the ObjectModel for the given type. If the query selects a
+	 * record by its primary key and the record has already been loaded by this
+	 * Session, the database is not queried.
+	 *
+	 * @param type
+	 *            the type of the object to retrieve
+	 * @param whereClause
+	 *            The optional WHERE clause to apply to the query. Passing null
+	 *            will select all rows
+	 * @param whereArgs
+	 *            Question marks in the whereClause String will be replaced with
+	 *            these whereArgs in order. (where id = ?)
+	 * @return <b>T</b> The first instance returned by the query
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public <T> T getFirst(Class<T> type, String whereClause, Object... whereArgs) throws SQLException {
+		ObjectModel<T, R, C> objectModel = getObjectModel(type);
+		Object[] primaryKeyArgs = objectModel.getPrimaryKeyArgs(whereClause, whereArgs);
+		if (primaryKeyArgs != null)
+			return get(type, primaryKeyArgs);
+
+		return attach(objectModel, objectModel.getFirst(whereClause, whereArgs));
+	}
+
+	/**
+	 * Queries the ObjectModel for the given type, replacing any records that
+	 * have already been loaded by this Session with the Session's instance.
+	 *
+	 * @param type
+	 *            the type of the objects to retrieve
+	 * @param whereClause
+	 *            The optional WHERE clause to apply to the query. Passing null
+	 *            will select all rows
+	 * @param whereArgs
+	 *            Question marks in the whereClause String will be replaced with
+	 *            these whereArgs in order. (where id = ?)
+	 * @return <b>List&ltT&gt</b> a List of the objects returned by the query
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public <T> List<T> getAll(Class<T> type, String whereClause, Object... whereArgs) throws SQLException {
+		ObjectModel<T, R, C> objectModel = getObjectModel(type);
+		List<T> list = objectModel.getAll(whereClause, whereArgs);
+		for (int i = 0; i < list.size(); i++)
+			list.set(i, attach(objectModel, list.get(i)));
+		return list;
+	}
+
+	/**
+	 * Inserts the object and adds it to the Session's identity map. Objects
+	 * with an auto incremented primary key are added to the identity map the
+	 * first time they are retrieved through the Session.
+	 *
+	 * @param t
+	 *            the Object to insert
+	 * @return <b>long</b> the row id of the inserted record
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public <T> long insert(T t) throws SQLException {
+		ObjectModel<T, R, C> objectModel = getObjectModel(typeOf(t));
+		long result = objectModel.insert(t);
+		if (!isAutoIncremented(objectModel))
+			put(objectModel, t);
+		return result;
+	}
+
+	/**
+	 * Updates the object's record and replaces any instance of the record held
+	 * in the Session's identity map with the object.
+	 *
+	 * @param t
+	 *            the Object to update
+	 * @return <b>int</b> the number of rows affected.
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public <T> int update(T t) throws SQLException {
+		ObjectModel<T, R, C> objectModel = getObjectModel(typeOf(t));
+		int result = objectModel.update(t);
+		put(objectModel, t);
+		return result;
+	}
+
+	/**
+	 * Inserts or updates the object's record and adds the object to the
+	 * Session's identity map.
+	 *
+	 * @param t
+	 *            the Object to insert or update
+	 * @return <b>int</b> the number of rows affected.
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public <T> int insertOrUpdate(T t) throws SQLException {
+		ObjectModel<T, R, C> objectModel = getObjectModel(typeOf(t));
+		int result = objectModel.insertOrUpdate(t);
+		put(objectModel, t);
+		return result;
+	}
+
+	/**
+	 * Deletes the object's record and removes it from the Session's identity
+	 * map.
+	 *
+	 * @param t
+	 *            the Object to delete
+	 * @return <b>int</b> the number of rows affected.
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public <T> int delete(T t) throws SQLException {
+		ObjectModel<T, R, C> objectModel = getObjectModel(typeOf(t));
+		int result = objectModel.delete(t);
+		evict(t);
+		return result;
+	}
+
+	/**
+	 * Removes the object from the Session's identity map. The next lookup of
+	 * the object's record will query the database.
+	 *
+	 * @param t
+	 *            the Object to remove
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public <T> void evict(T t) {
+		ObjectModel<T, R, C> objectModel = getObjectModel(typeOf(t));
+		List<String> key = objectModel.getPrimaryKey(t);
+		if (key != null)
+			getIdentityMap(objectModel.getObjetType()).remove(key);
+	}
+
+	/**
+	 * @param t
+	 *            the Object to find
+	 * @return <b>boolean</b> true if the object's record is held in the
+	 *         Session's identity map
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public <T> boolean contains(T t) {
+		ObjectModel<T, R, C> objectModel = getObjectModel(typeOf(t));
+		List<String> key = objectModel.getPrimaryKey(t);
+		return key != null && getIdentityMap(objectModel.getObjetType()).get(key) == t;
+	}
+
+	/**
+	 * Discards every object held in the Session's identity map
+	 *
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public void clear() {
+		identityMaps.clear();
+	}
+
+	/**
+	 * Discards the Session's identity map. The Session cannot be used once it
+	 * has been closed.
+	 *
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public void close() {
+		clear();
+		open = false;
+	}
+
+	/**
+	 * @return <b>boolean</b> true if the Session has not been closed
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public boolean isOpen() {
+		return open;
+	}
+
+	/**
+	 * Returns the Session's instance of the object's record, adding the object
+	 * to the identity map if the record has not been loaded before.
+	 */
+	private <T> T attach(ObjectModel<T, R, C> objectModel, T t) {
+		if (t == null)
+			return null;
+		List<String> key = objectModel.getPrimaryKey(t);
+		if (key == null)
+			return t;
+
+		HashMap<List<String>, Object> identityMap = getIdentityMap(objectModel.getObjetType());
+		Object existing = identityMap.get(key);
+		if (existing != null)
+			return objectModel.getObjetType().cast(existing);
+
+		identityMap.put(key, t);
+		return t;
+	}
+
+	private <T> void put(ObjectModel<T, R, C> objectModel, T t) {
+		List<String> key = objectModel.getPrimaryKey(t);
+		if (key != null)
+			getIdentityMap(objectModel.getObjetType()).put(key, t);
+	}
+
+	private boolean isAutoIncremented(ObjectModel<?, R, C> objectModel) {
+		for (ObjectModelColumn objectModelColumn : objectModel.getPrimaryKeyColumns()) {
+			if (objectModelColumn.isAutoIncrement())
+				return true;
+		}
+		return false;
+	}
+
+	private HashMap<List<String>, Object> getIdentityMap(Class<?> type) {
+		HashMap<List<String>, Object> identityMap = identityMaps.get(type);
+		if (identityMap == null) {
+			identityMap = new HashMap<List<String>, Object>();
+			identityMaps.put(type, identityMap);
+		}
+		return identityMap;
+	}
+
+	private <T> ObjectModel<T, R, C> getObjectModel(Class<T> type) {
+		if (!open)
+			throw new IllegalStateException("The Session has been closed");
+
+		ObjectModel<T, R, C> objectModel = databaseModel.getObjectModel(type);
+		if (objectModel == null)
+			throw new IllegalArgumentException("No ObjectModel has been registered for " + type.getName());
+		return objectModel;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> Class<T> typeOf(T t) {
+		return (Class<T>) t.getClass();
+	}
+}
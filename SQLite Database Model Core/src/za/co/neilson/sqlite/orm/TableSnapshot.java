@@ -0,0 +1,193 @@
+/* Copyright 2014 Sheldon Neilson www.neilson.co.za
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package za.co.neilson.sqlite.orm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+
+/**
+ * <p>
+ * An immutable in-memory copy of every record in a preloaded ObjectModel's
+ * table, with hash indexes on the primary key and on each &#64;Unique column.
+ * </p>
+ * <p>
+ * Snapshots are never modified once built. When records are written through
+ * the ObjectModel the snapshot is marked out of date and a new one is loaded
+ * by the next query, so readers holding the old snapshot are unaffected.
+ * find() returns copies; the objects returned by getRows(), get() and
+ * getUnique() are shared between every caller and must be treated as read
+ * only.
+ * </p>
+ *
+ * @param <T>
+ *            The object type held by the snapshot
+ * @version 0.2
+ * @since 0.2
+ * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+ */
+public class TableSnapshot<T> {
+
+	private final ObjectModel<T, ?, ?> objectModel;
+	private final List<T> rows;
+	private final HashMap<List<String>, T> primaryKeyIndex;
+	private final HashMap<String, HashMap<String, T>> uniqueIndexes;
+
+	/**
+	 * Builds the snapshot's indexes
+	 *
+	 * @param objectModel
+	 *            the ObjectModel from which the records were loaded
+	 * @param rows
+	 *            every record in the ObjectModel's table
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected TableSnapshot(ObjectModel<T, ?, ?> objectModel, List<T> rows) {
+		this.objectModel = objectModel;
+		this.rows = Collections.unmodifiableList(new ArrayList<T>(rows));
+		this.primaryKeyIndex = new HashMap<List<String>, T>(rows.size() * 2);
+		this.uniqueIndexes = new HashMap<String, HashMap<String, T>>();
+
+		for (ObjectModelColumn objectModelColumn : objectModel.getObjectModelColumns()) {
+			if (objectModelColumn.isUnique())
+				uniqueIndexes.put(objectModelColumn.getName().toLowerCase(Locale.ENGLISH), new HashMap<String, T>(rows.size() * 2));
+		}
+
+		for (T t : this.rows) {
+			List<String> primaryKey = objectModel.getPrimaryKey(t);
+			if (primaryKey != null)
+				primaryKeyIndex.put(primaryKey, t);
+
+			for (ObjectModelColumn objectModelColumn : objectModel.getObjectModelColumns()) {
+				if (!objectModelColumn.isUnique())
+					continue;
+				try {
+					String value = toIndexValue(objectModel.setColumnValue(t, objectModelColumn));
+					if (value != null)
+						uniqueIndexes.get(objectModelColumn.getName().toLowerCase(Locale.ENGLISH)).put(value, t);
+				} catch (NoSuchFieldException | SecurityException | IllegalArgumentException | IllegalAccessException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return <b>List&ltT&gt</b> an unmodifiable List of every record in the
+	 *         snapshot
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public List<T> getRows() {
+		return rows;
+	}
+
+	/**
+	 * @return <b>int</b> the number of records in the snapshot
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public int size() {
+		return rows.size();
+	}
+
+	/**
+	 * @param primaryKey
+	 *            the values of the record's primary key columns, in column
+	 *            order
+	 * @return <b>T</b> the record with the given primary key or null if no
+	 *         such record exists
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public T get(Object... primaryKey) {
+		List<String> key = ObjectModel.toPrimaryKey(primaryKey);
+		return key == null ? null : primaryKeyIndex.get(key);
+	}
+
+	/**
+	 * @param columnName
+	 *            the name of a &#64;Unique column
+	 * @param value
+	 *            the value of the column
+	 * @return <b>T</b> the record with the given value or null if no such
+	 *         record exists
+	 * @throws IllegalArgumentException
+	 *             if the column is not unique
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public T getUnique(String columnName, Object value) {
+		HashMap<String, T> index = uniqueIndexes.get(columnName.toLowerCase(Locale.ENGLISH));
+		if (index == null)
+			throw new IllegalArgumentException(columnName + " is not a unique column");
+
+		String key = toIndexValue(value);
+		return key == null ? null : index.get(key);
+	}
+
+	/**
+	 * Answers a query from the snapshot if it has no WHERE clause or its WHERE
+	 * clause selects records by primary key or by a single unique column.
+	 *
+	 * @param whereClause
+	 *            the WHERE clause of the query
+	 * @param whereArgs
+	 *            the arguments of the query
+	 * @return <b>List&ltT&gt</b> a new List of copies of the matching records
+	 *         or null if the query cannot be answered from the snapshot
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public List<T> find(String whereClause, Object[] whereArgs) {
+		if (whereClause == null || whereClause.trim().isEmpty())
+			return copiesOf(rows);
+
+		Object[] primaryKeyArgs = objectModel.getPrimaryKeyArgs(whereClause, whereArgs);
+		if (primaryKeyArgs != null)
+			return asList(get(primaryKeyArgs));
+
+		Matcher matcher = ObjectModel.EQUALITY_TERM.matcher(whereClause);
+		if (matcher.matches() && whereArgs != null && whereArgs.length == 1) {
+			HashMap<String, T> index = uniqueIndexes.get(matcher.group(1).toLowerCase(Locale.ENGLISH));
+			if (index != null) {
+				String key = toIndexValue(whereArgs[0]);
+				return asList(key == null ? null : index.get(key));
+			}
+		}
+		return null;
+	}
+
+	private List<T> asList(T t) {
+		return copiesOf(t == null ? Collections.<T> emptyList() : Collections.singletonList(t));
+	}
+
+	private List<T> copiesOf(List<T> records) {
+		List<T> list = new ArrayList<T>(records.size());
+		for (T t : records) {
+			T copy = objectModel.copyOf(t);
+			if (copy == null)
+				return null;
+			list.add(copy);
+		}
+		return list;
+	}
+
+	private static String toIndexValue(Object value) {
+		List<String> key = ObjectModel.toPrimaryKey(value);
+		return key == null ? null : key.get(0);
+	}
+}
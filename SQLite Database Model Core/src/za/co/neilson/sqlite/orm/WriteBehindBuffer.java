@@ -0,0 +1,456 @@
+/* Copyright 2014 Sheldon Neilson www.neilson.co.za
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package za.co.neilson.sqlite.orm;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>
+ * A bounded in-memory buffer of pending inserts for an ObjectModel, obtained
+ * from ObjectModel.enableWriteBehind().
+ * </p>
+ * <p>
+ * Writes are written to the database by a background thread in a single
+ * transaction once <b>batchSize</b> writes are pending or every
+ * <b>flushMillis</b> milliseconds, whichever comes first. Writes to a record
+ * that is already pending replace the pending write, so only the last value
+ * of a record is written. Records with an auto incremented primary key are
+ * never coalesced.
+ * </p>
+ * <p>
+ * Each write returns a Future which completes with the row id (insert) or the
+ * number of rows affected (insertOrUpdate) once the transaction containing it
+ * has been committed, or with the exception that prevented it from being
+ * written. Callers that do not need to know may ignore it. When the buffer is
+ * full, writers block until the background thread has drained it.
+ * </p>
+ * <p>
+ * Pending writes are not visible to queries until they have been flushed.
+ * DatabaseModel.disconnect() flushes every buffer before closing the
+ * connection.
+ * </p>
+ *
+ * @param <T>
+ *            The object type written through the buffer
+ * @version 0.2
+ * @since 0.2
+ * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+ */
+public class WriteBehindBuffer<T> {
+
+	private final ObjectModel<T, ?, ?> objectModel;
+	private final int batchSize;
+	private final long flushMillis;
+	private final int capacity;
+	private final boolean coalescing;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notFull = lock.newCondition();
+	private final Condition flushRequested = lock.newCondition();
+	private LinkedHashMap<Object, PendingWrite<T>> pending = new LinkedHashMap<Object, PendingWrite<T>>();
+
+	private final Object flushLock = new Object();
+	private final ThreadLocal<Boolean> flushing = new ThreadLocal<Boolean>();
+	private final Thread flusher;
+	private volatile boolean closed;
+
+	private final AtomicLong writtenCount = new AtomicLong();
+	private final AtomicLong coalescedCount = new AtomicLong();
+	private final AtomicLong failedCount = new AtomicLong();
+
+	/**
+	 * WriteBehindBuffers should not be instantiated directly. Use
+	 * ObjectModel.enableWriteBehind() instead.
+	 *
+	 * @param objectModel
+	 *            the ObjectModel through which pending writes are written
+	 * @param batchSize
+	 *            the number of pending writes that triggers a flush
+	 * @param flushMillis
+	 *            the maximum time in milliseconds between flushes
+	 * @param capacity
+	 *            the maximum number of pending writes
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected WriteBehindBuffer(ObjectModel<T, ?, ?> objectModel, int batchSize, long flushMillis, int capacity) {
+		if (batchSize < 1)
+			throw new IllegalArgumentException("batchSize must be greater than 0");
+		if (flushMillis < 1)
+			throw new IllegalArgumentException("flushMillis must be greater than 0");
+		if (capacity < batchSize)
+			throw new IllegalArgumentException("capacity must not be less than batchSize");
+
+		this.objectModel = objectModel;
+		this.batchSize = batchSize;
+		this.flushMillis = flushMillis;
+		this.capacity = capacity;
+
+		boolean coalescing = objectModel.getPrimaryKeyColumns().length > 0;
+		for (ObjectModelColumn objectModelColumn : objectModel.getPrimaryKeyColumns()) {
+			if (objectModelColumn.isAutoIncrement())
+				coalescing = false;
+		}
+		this.coalescing = coalescing;
+
+		this.flusher = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				runFlusher();
+			}
+		}, "WriteBehind-" + objectModel.getTableName());
+		this.flusher.setDaemon(true);
+		this.flusher.start();
+	}
+
+	/**
+	 * Queues the object to be inserted
+	 *
+	 * @param t
+	 *            the Object to insert
+	 * @return <b>Future&ltLong&gt</b> completes with the row id of the inserted
+	 *         record once it has been committed
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public Future<Long> insert(T t) {
+		return enqueue(t, false);
+	}
+
+	/**
+	 * Queues the object to be inserted, or updated if a record with the same
+	 * primary key exists when the buffer is flushed
+	 *
+	 * @param t
+	 *            the Object to insert or update
+	 * @return <b>Future&ltLong&gt</b> completes with the number of rows
+	 *         affected once the write has been committed
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public Future<Long> insertOrUpdate(T t) {
+		return enqueue(t, true);
+	}
+
+	/**
+	 * Writes every pending write to the database in the calling thread and
+	 * waits for it to be committed
+	 *
+	 * @throws SQLException
+	 *             if the transaction could not be committed
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public void flush() throws SQLException {
+		drain();
+	}
+
+	/**
+	 * Flushes the buffer and stops its background thread. Writes made through
+	 * the ObjectModel after the buffer has been closed are written directly.
+	 *
+	 * @throws SQLException
+	 *             if the final flush could not be committed
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public void close() throws SQLException {
+		closed = true;
+		lock.lock();
+		try {
+			flushRequested.signalAll();
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		try {
+			flusher.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		drain();
+	}
+
+	/**
+	 * @return <b>boolean</b> true if the buffer has been closed
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * @return <b>int</b> the number of pending writes
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public int size() {
+		lock.lock();
+		try {
+			return pending.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return <b>int</b> the maximum number of pending writes
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return <b>long</b> the number of records written to the database
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public long getWrittenCount() {
+		return writtenCount.get();
+	}
+
+	/**
+	 * @return <b>long</b> the number of writes that replaced a pending write
+	 *         to the same record
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+
+	/**
+	 * @return <b>long</b> the number of records that could not be written
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+
+	/**
+	 * @return <b>boolean</b> true if the calling thread is writing pending
+	 *         writes to the database, in which case writes made through the
+	 *         ObjectModel must not be buffered
+	 */
+	boolean isFlushingThread() {
+		return flushing.get() != null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "WriteBehindBuffer [table=" + objectModel.getTableName() + ", pending=" + size() + ", batchSize=" + batchSize + ", flushMillis=" + flushMillis + ", capacity=" + capacity
+				+ ", written=" + writtenCount + ", coalesced=" + coalescedCount + ", failed=" + failedCount + "]";
+	}
+
+	private Future<Long> enqueue(T t, boolean upsert) {
+		if (t == null)
+			throw new IllegalArgumentException("Cannot write a null object");
+
+		Object key = coalescing ? objectModel.getPrimaryKey(t) : null;
+		if (key == null)
+			key = new Object();
+
+		PendingResult result = new PendingResult();
+		lock.lock();
+		try {
+			if (closed)
+				throw new IllegalStateException("The WriteBehindBuffer has been closed");
+
+			PendingWrite<T> existing = pending.get(key);
+			if (existing != null) {
+				existing.t = t;
+				existing.upsert |= upsert;
+				existing.results.add(result);
+				coalescedCount.incrementAndGet();
+				return result;
+			}
+
+			while (pending.size() >= capacity && !closed) {
+				flushRequested.signal();
+				notFull.awaitUninterruptibly();
+			}
+			if (closed)
+				throw new IllegalStateException("The WriteBehindBuffer has been closed");
+
+			pending.put(key, new PendingWrite<T>(t, upsert, result));
+			if (pending.size() >= batchSize)
+				flushRequested.signal();
+		} finally {
+			lock.unlock();
+		}
+		return result;
+	}
+
+	private void runFlusher() {
+		while (!closed) {
+			lock.lock();
+			try {
+				if (pending.size() < batchSize && !closed)
+					flushRequested.await(flushMillis, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				break;
+			} finally {
+				lock.unlock();
+			}
+
+			try {
+				drain();
+			} catch (SQLException e) {
+				// Reported to the writers through their Futures
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Takes every pending write and writes them in a single transaction.
+	 * Flushes are serialized so that writes reach the database in the order
+	 * they were made. The transaction is begun before a flush is waited for,
+	 * so that a thread already inside a transaction never waits on a flusher
+	 * that is itself waiting for that transaction to end.
+	 */
+	private void drain() throws SQLException {
+		lock.lock();
+		try {
+			if (pending.isEmpty())
+				return;
+		} finally {
+			lock.unlock();
+		}
+
+		DatabaseDriverInterface<?, ?> databaseDriverInterface = objectModel.getDatabaseModel().getDatabaseDriverInterface();
+		Collection<PendingWrite<T>> batch = null;
+		flushing.set(Boolean.TRUE);
+		try {
+			// The transaction belongs to this thread, so writes made by other
+			// threads wait for it to end rather than joining it
+			databaseDriverInterface.beginTransaction();
+			try {
+				synchronized (flushLock) {
+					lock.lock();
+					try {
+						// Another flush may have emptied the buffer; the
+						// transaction is still committed so that an enclosing
+						// transaction is not rolled back
+						batch = pending.values();
+						pending = new LinkedHashMap<Object, PendingWrite<T>>();
+						notFull.signalAll();
+					} finally {
+						lock.unlock();
+					}
+					for (PendingWrite<T> pendingWrite : batch) {
+						try {
+							pendingWrite.value = pendingWrite.upsert ? objectModel.insertOrUpdate(pendingWrite.t) : objectModel.insert(pendingWrite.t);
+						} catch (SQLException | RuntimeException e) {
+							pendingWrite.error = e;
+						}
+					}
+				}
+				databaseDriverInterface.setTransactionSuccessful();
+			} finally {
+				databaseDriverInterface.endTransaction();
+			}
+		} catch (SQLException | RuntimeException e) {
+			if (batch != null) {
+				failedCount.addAndGet(batch.size());
+				for (PendingWrite<T> pendingWrite : batch)
+					pendingWrite.fail(e);
+			}
+			throw e;
+		} finally {
+			flushing.remove();
+		}
+
+		for (PendingWrite<T> pendingWrite : batch) {
+			if (pendingWrite.error != null) {
+				failedCount.incrementAndGet();
+				pendingWrite.fail(pendingWrite.error);
+			} else {
+				writtenCount.incrementAndGet();
+				pendingWrite.complete();
+			}
+		}
+	}
+
+	private static class PendingWrite<T> {
+		T t;
+		boolean upsert;
+		long value;
+		Exception error;
+		final List<PendingResult> results = new ArrayList<PendingResult>(1);
+
+		PendingWrite(T t, boolean upsert, PendingResult result) {
+			this.t = t;
+			this.upsert = upsert;
+			this.results.add(result);
+		}
+
+		void complete() {
+			for (PendingResult result : results)
+				result.complete(value);
+		}
+
+		void fail(Throwable throwable) {
+			for (PendingResult result : results)
+				result.fail(throwable);
+		}
+	}
+
+	/**
+	 * A Future completed by the flusher rather than by running a task
+	 */
+	private static class PendingResult extends FutureTask<Long> {
+		private static final Callable<Long> NONE = new Callable<Long>() {
+			@Override
+			public Long call() {
+				return null;
+			}
+		};
+
+		PendingResult() {
+			super(NONE);
+		}
+
+		@Override
+		public void run() {
+			// Completed by the flusher
+		}
+
+		void complete(long value) {
+			set(value);
+		}
+
+		void fail(Throwable throwable) {
+			setException(throwable);
+		}
+	}
+}
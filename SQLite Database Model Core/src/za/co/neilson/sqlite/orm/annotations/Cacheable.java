@@ -0,0 +1,55 @@
+/* Copyright 2014 Sheldon Neilson www.neilson.co.za
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package za.co.neilson.sqlite.orm.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * Enables the shared second-level entity cache for an object type. Primary
+ * key lookups made through the type's ObjectModel are served from the cache
+ * once the record has been loaded.
+ * </p>
+ * <p>
+ * The cache is bounded by <b>maxEntries</b> and, if it is greater than 0, by
+ * the estimated size of the cached objects in bytes, <b>maxBytes</b>. The
+ * least recently used entries are evicted first.
+ * </p>
+ * <p>
+ * If <b>maxQueries</b> is greater than 0 the results of up to that many
+ * distinct getAll() queries are cached as well, as lists of primary keys.
+ * </p>
+ *
+ * @param maxEntries
+ *            the maximum number of objects held by the cache
+ * @param maxBytes
+ *            <b>Optional</b> - the maximum estimated size of the objects held
+ *            by the cache in bytes. 0 disables the size bound
+ * @param maxQueries
+ *            <b>Optional</b> - the maximum number of query results held by
+ *            the query cache. 0 disables query caching
+ * @version 0.2
+ * @since 0.2
+ * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Cacheable {
+	int maxEntries() default 1000;
+
+	long maxBytes() default 0;
+
+	int maxQueries() default 0;
+}
@@ -45,6 +45,12 @@ import java.lang.annotation.Target;
  *            <b>Optional</b> - this object's reference to the parent object
  * @param parentReference
  *            <b>Optional</b> - the parent object's reference to this object
+ * @param index
+ *            <b>Optional</b> - set to false to prevent the foreign key
+ *            column from being indexed automatically. The column is indexed,
+ *            by an index named fk_&lt;table&gt;_&lt;column&gt;, unless it already
+ *            leads an index, so that loading and deleting by the relationship
+ *            does not scan the table
  * @version 0.1
  * @since 0.1
  * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
@@ -59,4 +65,6 @@ public @interface ForeignKey {
 	String childReference() default "";
 
 	String parentReference() default "";
+
+	boolean index() default true;
 }
@@ -0,0 +1,61 @@
+/* Copyright 2014 Sheldon Neilson www.neilson.co.za
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+package za.co.neilson.sqlite.orm.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * Declares a secondary index on an object type's table, created with the
+ * table by ObjectModel.onCreateTable().
+ * </p>
+ * <p>
+ * On a field, the field's column is the first column of the index and any
+ * <b>columns</b> follow it. On a type, <b>columns</b> lists every column of
+ * the index; use &#64;Indexes to declare more than one index on a type. A
+ * column may be followed by ASC or DESC, e.g. "createdDate DESC".
+ * </p>
+ *
+ * @param name
+ *            <b>Optional</b> - the name of the index. Defaults to idx_, the
+ *            table name and the column names joined by underscores
+ * @param columns
+ *            the columns of the index, following the annotated field's
+ *            column on a field
+ * @param unique
+ *            <b>Optional</b> - creates a UNIQUE index
+ * @param descending
+ *            <b>Optional</b> - orders the annotated field's column in
+ *            descending order. Ignored on a type
+ * @param where
+ *            <b>Optional</b> - the WHERE clause of a partial index, which
+ *            only holds the rows that match it
+ * @version 0.2
+ * @since 0.2
+ * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+ */
+@Target({ ElementType.FIELD, ElementType.TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Index {
+	String name() default "";
+
+	String[] columns() default {};
+
+	boolean unique() default false;
+
+	boolean descending() default false;
+
+	String where() default "";
+}
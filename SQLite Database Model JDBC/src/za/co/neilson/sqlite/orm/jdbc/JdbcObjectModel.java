@@ -292,6 +292,8 @@ public abstract class JdbcObjectModel<T> extends ObjectModel<T, ResultSet, HashM
 		sql.append(")");
 
 		getDatabaseModel().getDatabaseDriverInterface().execute(sql.toString());
+
+		onCreateIndexes();
 	}
 
 	/**
@@ -309,7 +311,15 @@ public abstract class JdbcObjectModel<T> extends ObjectModel<T, ResultSet, HashM
 	 * @since 0.1
 	 */
 	public T getFirst(String whereClause, Object[] whereArgs,String orderBy) {
-		T t = null;
+		List<T> preloaded = getPreloadedResults(whereClause, whereArgs, orderBy, 1);
+		if (preloaded != null)
+			return preloaded.isEmpty() ? null : preloaded.get(0);
+
+		T t = getCachedInstance(whereClause, whereArgs);
+		if (t != null)
+			return t;
+
+		long cacheStamp = getCacheStamp();
 		ResultSet resultSet = null;
 		try {
 			resultSet = getResultSet(whereClause, whereArgs, null, null, orderBy, 1);
@@ -327,6 +337,7 @@ public abstract class JdbcObjectModel<T> extends ObjectModel<T, ResultSet, HashM
 				}
 			}
 		}
+		cacheInstance(whereClause, whereArgs, t, cacheStamp);
 		return t;
 	}
 
@@ -348,7 +359,17 @@ public abstract class JdbcObjectModel<T> extends ObjectModel<T, ResultSet, HashM
 	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
 	 */
 	public final List<T> getAll(String whereClause, Object[] whereArgs, String orderBy, Integer limit) throws SQLException {
-		List<T> list = new ArrayList<T>();
+		List<T> list = getPreloadedResults(whereClause, whereArgs, orderBy, limit);
+		if (list != null)
+			return list;
+
+		list = getCachedResults(whereClause, whereArgs, orderBy, limit);
+		if (list != null)
+			return list;
+
+		long queryVersion = getQueryVersion();
+		long cacheStamp = getCacheStamp();
+		list = new ArrayList<T>();
 		ResultSet resultSet = null;
 		try {
 			resultSet = getResultSet(whereClause, whereArgs, null, null, orderBy, limit);
@@ -372,20 +393,27 @@ public abstract class JdbcObjectModel<T> extends ObjectModel<T, ResultSet, HashM
 				}
 			}
 		}
+		cacheResults(whereClause, whereArgs, orderBy, limit, list, queryVersion, cacheStamp);
 		return list;
 	}
 
 	/**
 	 * @param t
 	 *            the Object to insert
-	 * @return <b>long</b> the row id of the inserted record
+	 * @return <b>long</b> the row id of the inserted record, or 0 if the
+	 *         insert has been queued in write-behind mode
 	 * @throws SQLException
 	 * @since 0.1
 	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
 	 */
 	public final long insert(T t) throws SQLException {
+		if (enqueueWrite(t, QueryType.INSERT))
+			return 0;
+
 		long result = ((JdbcSqliteDatabaseDriverInterface) getDatabaseModel().getDatabaseDriverInterface()).insert(getTableName(), setColumnValues(t, QueryType.INSERT));
 
+		onTableChanged(QueryType.INSERT, null, null);
+
 		result += insertOrUpdateRelatedChildObjects(t);
 
 		return result;
@@ -400,11 +428,13 @@ public abstract class JdbcObjectModel<T> extends ObjectModel<T, ResultSet, HashM
 	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
 	 */
 	public final long[] insertAll(Collection<T> collection) throws SQLException {
+		flushPendingWrites();
 		long[] rowIds = new long[collection.size()];
 		int i = 0;
 		for (Object t : collection) {
 			rowIds[i++] = ((JdbcSqliteDatabaseDriverInterface) getDatabaseModel().getDatabaseDriverInterface()).insert(getTableName(), setColumnValues(t, QueryType.INSERT));
 		}
+		onTableChanged(QueryType.INSERT, null, null);
 		return rowIds;
 	}
 
@@ -426,8 +456,11 @@ public abstract class JdbcObjectModel<T> extends ObjectModel<T, ResultSet, HashM
 	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
 	 */
 	public final int update(T t, String whereClause, Object... whereArgs) throws SQLException {
+		flushPendingWrites();
 		int result = ((JdbcSqliteDatabaseDriverInterface) getDatabaseModel().getDatabaseDriverInterface()).update(getTableName(), setColumnValues(t, QueryType.UPDATE), whereClause, whereArgs);
 
+		onTableChanged(QueryType.UPDATE, whereClause, whereArgs);
+
 		result += insertOrUpdateRelatedChildObjects(t);
 
 		return result;
@@ -435,6 +468,7 @@ public abstract class JdbcObjectModel<T> extends ObjectModel<T, ResultSet, HashM
 
 	@Override
 	public int deleteAll(String whereClause, Object... whereArgs) throws SQLException {
+		flushPendingWrites();
 		int result = 0;
 
 		/*
@@ -468,6 +502,7 @@ public abstract class JdbcObjectModel<T> extends ObjectModel<T, ResultSet, HashM
 			}
 		}
 		result += getDatabaseModel().getDatabaseDriverInterface().delete(getTableName(), whereClause, whereArgs);
+		onTableChanged(QueryType.DELETE, whereClause, whereArgs);
 		return result;
 	}
 }
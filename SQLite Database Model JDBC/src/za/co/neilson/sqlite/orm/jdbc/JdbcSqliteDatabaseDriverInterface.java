@@ -14,11 +14,18 @@ package za.co.neilson.sqlite.orm.jdbc;
 import java.io.File;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
+import java.util.Calendar;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.concurrent.locks.ReentrantLock;
 
 import za.co.neilson.sqlite.orm.DatabaseDriverInterface;
 import za.co.neilson.sqlite.orm.DatabaseModel;
@@ -42,6 +49,16 @@ public class JdbcSqliteDatabaseDriverInterface implements DatabaseDriverInterfac
 
 	private File dataBaseFile;
 	private Connection connection;
+	private boolean readOnly;
+	private int transactionDepth;
+	private boolean transactionSuccessful;
+	private boolean transactionFailed;
+	/**
+	 * Held by the thread executing a statement, and by the thread which began
+	 * a transaction until the transaction ends, so that statements from other
+	 * threads cannot join a transaction they did not begin
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
 
 	/**
 	 * <p>
@@ -84,6 +101,20 @@ public class JdbcSqliteDatabaseDriverInterface implements DatabaseDriverInterfac
 		}
 	}
 	
+	/**
+	 * Creates a driver for an additional read-only connection to an existing
+	 * database file
+	 * 
+	 * @param dataBaseFile
+	 *            the database file
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	private JdbcSqliteDatabaseDriverInterface(File dataBaseFile) {
+		this.dataBaseFile = dataBaseFile;
+		this.readOnly = true;
+	}
+
 	/* (non-Javadoc)
 	 * @see za.co.neilson.sqlite.orm.DatabaseDriverInterface#getDatabaseFile()
 	 */
@@ -103,7 +134,14 @@ public class JdbcSqliteDatabaseDriverInterface implements DatabaseDriverInterfac
 	public void connect() throws SQLException {
 		if (!isConnected()) {
 			if (dataBaseFile != null) {
-				connection = DriverManager.getConnection("jdbc:sqlite:" + dataBaseFile.getName());
+				if (readOnly) {
+					// SQLITE_OPEN_READONLY
+					Properties properties = new Properties();
+					properties.setProperty("open_mode", "1");
+					connection = DriverManager.getConnection("jdbc:sqlite:" + dataBaseFile.getName(), properties);
+				} else {
+					connection = DriverManager.getConnection("jdbc:sqlite:" + dataBaseFile.getName());
+				}
 
 				// Ensure referential integrity is maintained
 				execute("PRAGMA foreign_keys = 1;");
@@ -181,9 +219,14 @@ public class JdbcSqliteDatabaseDriverInterface implements DatabaseDriverInterfac
 	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
 	 */
 	public boolean execute(String sql) throws SQLException {
-		Statement statement;
-		statement = getConnection().createStatement();
-		return statement.execute(sql);
+		lock.lock();
+		try {
+			Statement statement;
+			statement = getConnection().createStatement();
+			return statement.execute(sql);
+		} finally {
+			lock.unlock();
+		}
 	}
 
 	/**
@@ -216,8 +259,23 @@ public class JdbcSqliteDatabaseDriverInterface implements DatabaseDriverInterfac
 	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
 	 */
 	public ResultSet query(String tableName, String[] columnNames, String whereClause, Object[] whereArgs, String groupBy, String having, String orderBy, Integer limit) throws SQLException {
-		Statement statement = getConnection().createStatement();
+		return query(tableName, columnNames, whereClause, whereArgs, groupBy, having, orderBy, limit, 0);
+	}
 
+	/**
+	 * Queries the given table, passing fetchSize to Statement.setFetchSize() if
+	 * it is greater than 0
+	 * 
+	 * @see za.co.neilson.sqlite.orm.DatabaseDriverInterface#query(java.lang.String,
+	 *      java.lang.String[], java.lang.String, java.lang.Object[],
+	 *      java.lang.String, java.lang.String, java.lang.String,
+	 *      java.lang.Integer, int)
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	@Override
+	public ResultSet query(String tableName, String[] columnNames, String whereClause, Object[] whereArgs, String groupBy, String having, String orderBy, Integer limit, int fetchSize)
+			throws SQLException {
 		StringBuilder sqlBuilder = new StringBuilder();
 
 		sqlBuilder.append("select ");
@@ -230,52 +288,53 @@ public class JdbcSqliteDatabaseDriverInterface implements DatabaseDriverInterfac
 
 		sqlBuilder.append(" from " + tableName);
 
-		if (whereClause != null) {
-			if (whereArgs != null && whereArgs.length > 0) {
-				for (Object whereArg : whereArgs) {
-					whereArg = Query.isNumeric(whereArg) ? whereArg : "'" + whereArg + "'";
-					whereClause = whereClause.replaceFirst("\\?", String.valueOf(whereArg));
-				}
-			}
+		if (whereClause != null)
 			sqlBuilder.append(" where " + whereClause);
-		}
 
 		if (groupBy != null)
 			sqlBuilder.append(" group by " + groupBy);
 
+		if (having != null)
+			sqlBuilder.append(" having " + having);
+
 		if (orderBy != null)
 			sqlBuilder.append(" order by " + orderBy);
 
 		if (limit != null)
 			sqlBuilder.append(" limit " + String.valueOf(limit));
 
-		sqlBuilder.append(";");
-
-		ResultSet resultSet = statement.executeQuery(sqlBuilder.toString());
-
-		return resultSet;
+		lock.lock();
+		try {
+			PreparedStatement statement = getConnection().prepareStatement(sqlBuilder.toString());
+			if (fetchSize > 0)
+				statement.setFetchSize(fetchSize);
+			bind(statement, 1, whereClause == null ? null : whereArgs);
+
+			return statement.executeQuery();
+		} finally {
+			lock.unlock();
+		}
 	}
 
 	/**
 	 * @param sql
 	 *            the sql query to execute
 	 * @param whereArgs
-	 *            any ?s in the sql query will be replaced by the String
-	 *            representation of these selectionArgs in order
+	 *            the values bound to the ?s in the sql query, in order
 	 * @return ResultSet
 	 * @throws SQLException
 	 * @since 0.1
 	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
 	 */
 	public ResultSet rawQuery(String sql, Object[] whereArgs) throws SQLException {
-
-		for (Object selectionArg : whereArgs) {
-			sql = sql.replaceFirst("\\?", String.valueOf(selectionArg));
+		lock.lock();
+		try {
+			PreparedStatement statement = getConnection().prepareStatement(sql);
+			bind(statement, 1, whereArgs);
+			return statement.executeQuery();
+		} finally {
+			lock.unlock();
 		}
-
-		Statement statement = getConnection().createStatement();
-		ResultSet resultSet = statement.executeQuery(sql);
-		return resultSet;
 	}
 
 	/**
@@ -294,10 +353,6 @@ public class JdbcSqliteDatabaseDriverInterface implements DatabaseDriverInterfac
 	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
 	 */
 	public int update(String tableName, HashMap<String, Object> columnValues, String whereClause, Object[] whereArgs) throws SQLException {
-		int result = 0;
-
-		Statement statement = getConnection().createStatement();
-
 		StringBuilder sqlBuilder = new StringBuilder();
 
 		sqlBuilder.append("update");
@@ -306,41 +361,31 @@ public class JdbcSqliteDatabaseDriverInterface implements DatabaseDriverInterfac
 
 		sqlBuilder.append(" set");
 
+		Object[] values = new Object[columnValues.size()];
 		int i = 0;
 		for (Entry<String, Object> entry : columnValues.entrySet()) {
-			sqlBuilder.append(" " + entry.getKey() + " = ");
-			if (entry.getValue() == null) {
-				sqlBuilder.append("NULL");
-			} else {
-
-				boolean numeric = Query.isNumeric(entry.getValue());
-				if (!numeric)
-					sqlBuilder.append("'");
-
-				sqlBuilder.append(entry.getValue());
-
-				if (!numeric)
-					sqlBuilder.append("'");
-			}
+			sqlBuilder.append(" " + entry.getKey() + " = ?");
+			values[i] = entry.getValue();
 			if (i++ < columnValues.size() - 1)
 				sqlBuilder.append(",");
 		}
 
-		if (whereClause != null) {
-			if (whereArgs != null && whereArgs.length > 0) {
-				for (Object whereArg : whereArgs) {
-					whereArg = Query.isNumeric(whereArg) ? whereArg : "'" + whereArg + "'";
-					whereClause = whereClause.replaceFirst("\\?", String.valueOf(whereArg));
-				}
-			}
+		if (whereClause != null)
 			sqlBuilder.append(" where " + whereClause);
-		}
 
-		sqlBuilder.append(";");
-
-		result = statement.executeUpdate(sqlBuilder.toString());
-
-		return result;
+		lock.lock();
+		try {
+			PreparedStatement statement = getConnection().prepareStatement(sqlBuilder.toString());
+			try {
+				int index = bind(statement, 1, values);
+				bind(statement, index, whereClause == null ? null : whereArgs);
+				return statement.executeUpdate();
+			} finally {
+				statement.close();
+			}
+		} finally {
+			lock.unlock();
+		}
 	}
 
 	/**
@@ -358,31 +403,91 @@ public class JdbcSqliteDatabaseDriverInterface implements DatabaseDriverInterfac
 	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
 	 */
 	public int delete(String tableName, String whereClause, Object[] whereArgs) throws SQLException {
-		int result = 0;
-
-		Statement statement = getConnection().createStatement();
-
 		StringBuilder sqlBuilder = new StringBuilder();
 
 		sqlBuilder.append("delete from");
 
 		sqlBuilder.append(" " + tableName);
 
-		if (whereClause != null) {
-			if (whereArgs != null && whereArgs.length > 0) {
-				for (Object whereArg : whereArgs) {
-					whereArg = Query.isNumeric(whereArg) ? whereArg : "'" + whereArg + "'";
-					whereClause = whereClause.replaceFirst("\\?", String.valueOf(whereArg));
-				}
-			}
+		if (whereClause != null)
 			sqlBuilder.append(" where " + whereClause);
-		}
 
-		sqlBuilder.append(";");
+		lock.lock();
+		try {
+			PreparedStatement statement = getConnection().prepareStatement(sqlBuilder.toString());
+			try {
+				bind(statement, 1, whereClause == null ? null : whereArgs);
+				return statement.executeUpdate();
+			} finally {
+				statement.close();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
 
-		result = statement.executeUpdate(sqlBuilder.toString());
+	/* (non-Javadoc)
+	 * @see za.co.neilson.sqlite.orm.DatabaseDriverInterface#executeUpdate(java.lang.String, java.lang.Object[])
+	 */
+	@Override
+	public int executeUpdate(String sql, Object[] bindArgs) throws SQLException {
+		lock.lock();
+		try {
+			PreparedStatement statement = getConnection().prepareStatement(sql);
+			try {
+				bind(statement, 1, bindArgs);
+				return statement.executeUpdate();
+			} finally {
+				statement.close();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
 
-		return result;
+	/**
+	 * Binds values to the parameters of a PreparedStatement by type. Booleans
+	 * are bound as 1 or 0, Dates and Calendars as milliseconds since the epoch
+	 * and enums by name.
+	 * 
+	 * @param statement
+	 *            the statement to bind
+	 * @param index
+	 *            the index of the first parameter to bind
+	 * @param values
+	 *            the values to bind, or null to bind nothing
+	 * @return <b>int</b> the index of the next unbound parameter
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	protected int bind(PreparedStatement statement, int index, Object[] values) throws SQLException {
+		if (values == null)
+			return index;
+
+		for (Object value : values) {
+			if (value == null) {
+				statement.setNull(index, Types.NULL);
+			} else if (value instanceof Boolean) {
+				statement.setInt(index, ((Boolean) value) ? 1 : 0);
+			} else if (value instanceof Double || value instanceof Float) {
+				statement.setDouble(index, ((Number) value).doubleValue());
+			} else if (value instanceof Number) {
+				statement.setLong(index, ((Number) value).longValue());
+			} else if (value instanceof Date) {
+				statement.setLong(index, ((Date) value).getTime());
+			} else if (value instanceof Calendar) {
+				statement.setLong(index, ((Calendar) value).getTimeInMillis());
+			} else if (value instanceof byte[]) {
+				statement.setBytes(index, (byte[]) value);
+			} else if (value instanceof Enum) {
+				statement.setString(index, ((Enum<?>) value).name());
+			} else {
+				statement.setString(index, value.toString());
+			}
+			index++;
+		}
+		return index;
 	}
 
 	/**
@@ -399,8 +504,6 @@ public class JdbcSqliteDatabaseDriverInterface implements DatabaseDriverInterfac
 	public long insert(String tableName, HashMap<String, Object> columnValues) throws SQLException {
 		long result = 0;
 
-		Statement statement = getConnection().createStatement();
-
 		StringBuilder sqlBuilder = new StringBuilder();
 
 		sqlBuilder.append("insert into");
@@ -411,36 +514,239 @@ public class JdbcSqliteDatabaseDriverInterface implements DatabaseDriverInterfac
 		sqlBuilder.append(Query.join(columnValues.keySet().toArray(new String[] {})));
 		sqlBuilder.append(") values (");
 
+		Object[] values = new Object[columnValues.size()];
 		int i = 0;
 		for (Entry<String, Object> entry : columnValues.entrySet()) {
-			if (entry.getValue() == null) {
-				sqlBuilder.append("NULL");
-			} else {
-				boolean numeric = Query.isNumeric(entry.getValue());
-				if (!numeric)
-					sqlBuilder.append("'");
+			sqlBuilder.append("?");
+			values[i] = entry.getValue();
+			if (i++ < columnValues.size() - 1)
+				sqlBuilder.append(",");
+		}
 
-				sqlBuilder.append(entry.getValue());
+		sqlBuilder.append(")");
 
-				if (!numeric)
-					sqlBuilder.append("'");
+		lock.lock();
+		try {
+			PreparedStatement statement = getConnection().prepareStatement(sqlBuilder.toString());
+			try {
+				bind(statement, 1, values);
+				result = statement.executeUpdate();
+
+				ResultSet generatedKeys = statement.getGeneratedKeys();
+				try {
+					if (generatedKeys.next())
+						result = generatedKeys.getLong(1);
+				} finally {
+					generatedKeys.close();
+				}
+			} finally {
+				statement.close();
 			}
-			if (i++ < columnValues.size() - 1)
-				sqlBuilder.append(",");
+		} finally {
+			lock.unlock();
 		}
 
-		sqlBuilder.append(");");
+		return result;
+	}
 
-		result = statement.executeUpdate(sqlBuilder.toString());
+	/**
+	 * Opens an additional connection to the database file in read-only mode
+	 * 
+	 * @return <b>JdbcSqliteDatabaseDriverInterface</b> a new, connected,
+	 *         read-only driver which must be disconnected when it is no longer
+	 *         needed
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	@Override
+	public JdbcSqliteDatabaseDriverInterface openReadOnlyConnection() throws SQLException {
+		JdbcSqliteDatabaseDriverInterface readOnlyConnection = new JdbcSqliteDatabaseDriverInterface(dataBaseFile);
+		readOnlyConnection.connect();
+		return readOnlyConnection;
+	}
+
+	/* (non-Javadoc)
+	 * @see za.co.neilson.sqlite.orm.DatabaseDriverInterface#next(java.lang.Object)
+	 */
+	@Override
+	public boolean next(ResultSet resultSet) throws SQLException {
+		return resultSet.next();
+	}
+
+	/* (non-Javadoc)
+	 * @see za.co.neilson.sqlite.orm.DatabaseDriverInterface#getLong(java.lang.Object, int)
+	 */
+	@Override
+	public long getLong(ResultSet resultSet, int columnIndex) throws SQLException {
+		return resultSet.getLong(columnIndex);
+	}
 
-		long lastid = result;
-		ResultSet generatedKeys = statement.getGeneratedKeys();
-		if (generatedKeys.next()) {
-			lastid = generatedKeys.getLong(1);
+	/* (non-Javadoc)
+	 * @see za.co.neilson.sqlite.orm.DatabaseDriverInterface#getDouble(java.lang.Object, int)
+	 */
+	@Override
+	public double getDouble(ResultSet resultSet, int columnIndex) throws SQLException {
+		return resultSet.getDouble(columnIndex);
+	}
+
+	/* (non-Javadoc)
+	 * @see za.co.neilson.sqlite.orm.DatabaseDriverInterface#getString(java.lang.Object, int)
+	 */
+	@Override
+	public String getString(ResultSet resultSet, int columnIndex) throws SQLException {
+		return resultSet.getString(columnIndex);
+	}
+
+	/* (non-Javadoc)
+	 * @see za.co.neilson.sqlite.orm.DatabaseDriverInterface#getBlob(java.lang.Object, int)
+	 */
+	@Override
+	public byte[] getBlob(ResultSet resultSet, int columnIndex) throws SQLException {
+		return resultSet.getBytes(columnIndex);
+	}
+
+	/* (non-Javadoc)
+	 * @see za.co.neilson.sqlite.orm.DatabaseDriverInterface#isNull(java.lang.Object, int)
+	 */
+	@Override
+	public boolean isNull(ResultSet resultSet, int columnIndex) throws SQLException {
+		// getLong() reads the column without boxing it or decoding text and
+		// blobs, and SQLite converts any value type to an integer
+		resultSet.getLong(columnIndex);
+		return resultSet.wasNull();
+	}
+
+	/**
+	 * Closes the ResultSet and the Statement that produced it
+	 * 
+	 * @param resultSet
+	 *            the result of a query
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	@Override
+	public void close(ResultSet resultSet) {
+		try {
+			Statement statement = resultSet.getStatement();
+			resultSet.close();
+			if (statement != null)
+				statement.close();
+		} catch (SQLException e) {
+			e.printStackTrace();
 		}
-		result = lastid;
+	}
 
-		return result;
+	/**
+	 * Begins a transaction by disabling the connection's auto-commit mode.
+	 * Nested calls join the outermost transaction. The transaction belongs to
+	 * the calling thread: until it ends, statements and transactions from
+	 * other threads wait rather than join it.
+	 * 
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	@Override
+	public void beginTransaction() throws SQLException {
+		lock.lock();
+		try {
+			if (transactionDepth == 0) {
+				getConnection().setAutoCommit(false);
+				transactionFailed = false;
+			}
+		} catch (SQLException | RuntimeException e) {
+			lock.unlock();
+			throw e;
+		}
+		// The lock stays held until the matching endTransaction()
+		transactionDepth++;
+		transactionSuccessful = false;
+	}
+
+	/* (non-Javadoc)
+	 * @see za.co.neilson.sqlite.orm.DatabaseDriverInterface#setTransactionSuccessful()
+	 */
+	@Override
+	public void setTransactionSuccessful() throws SQLException {
+		if (transactionDepth == 0 || !lock.isHeldByCurrentThread())
+			throw new IllegalStateException("No transaction is in progress on this thread");
+		transactionSuccessful = true;
+	}
+
+	/**
+	 * Ends the current transaction. When the outermost transaction ends the
+	 * connection is committed, or rolled back if any transaction was not
+	 * marked as successful, and auto-commit mode is restored.
+	 * 
+	 * @throws SQLException
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	@Override
+	public void endTransaction() throws SQLException {
+		if (transactionDepth == 0 || !lock.isHeldByCurrentThread())
+			throw new IllegalStateException("No transaction is in progress on this thread");
+
+		try {
+			if (!transactionSuccessful)
+				transactionFailed = true;
+			transactionSuccessful = false;
+
+			if (--transactionDepth == 0) {
+				try {
+					if (transactionFailed) {
+						getConnection().rollback();
+					} else {
+						getConnection().commit();
+					}
+				} finally {
+					getConnection().setAutoCommit(true);
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see za.co.neilson.sqlite.orm.DatabaseDriverInterface#inTransaction()
+	 */
+	@Override
+	public boolean inTransaction() {
+		return lock.isHeldByCurrentThread() && transactionDepth > 0;
+	}
+
+	/**
+	 * Inserts the rows as a single JDBC batch of one PreparedStatement
+	 * 
+	 * @see za.co.neilson.sqlite.orm.DatabaseDriverInterface#insertBatch(java.lang.String,
+	 *      java.lang.String[], java.util.List)
+	 * @since 0.2
+	 * @author <a href="http://www.neilson.co.za">Sheldon Neilson</a>
+	 */
+	@Override
+	public int insertBatch(String tableName, String[] columnNames, List<Object[]> rows) throws SQLException {
+		if (rows.isEmpty())
+			return 0;
+
+		lock.lock();
+		try {
+			PreparedStatement statement = getConnection().prepareStatement(Query.insertStatement(tableName, columnNames));
+			try {
+				for (Object[] row : rows) {
+					for (int i = 0; i < columnNames.length; i++)
+						statement.setObject(i + 1, row[i]);
+					statement.addBatch();
+				}
+				statement.executeBatch();
+			} finally {
+				statement.close();
+			}
+		} finally {
+			lock.unlock();
+		}
+		return rows.size();
 	}
 
 	/* (non-Javadoc)